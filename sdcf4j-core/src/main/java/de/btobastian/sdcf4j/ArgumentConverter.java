@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ * 
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * Converts a single command argument to the type of an executor's method parameter.
+ *
+ * @param <T> The type of the converted argument.
+ */
+public interface ArgumentConverter<T> {
+
+    /**
+     * Converts the given argument.
+     *
+     * @param argument The argument. Never <code>null</code>.
+     * @return The converted argument.
+     * @throws IllegalArgumentException If the argument cannot be converted.
+     */
+    T convert(String argument) throws IllegalArgumentException;
+
+}
@@ -84,6 +84,34 @@ public @interface Command {
      */
     boolean async() default false;
 
+    /**
+     * Gets the key by which the executions of the command are serialized.
+     * Executions with the same key (e.g. in the same channel) are executed one after another in the order the
+     * messages were received, executions with different keys are executed in parallel.
+     * If set, the command is executed async.
+     *
+     * @return The key by which the executions of the command are serialized.
+     */
+    SerialKey serialBy() default SerialKey.NONE;
+
+    /**
+     * Gets the cooldown of the command in milliseconds.
+     * A user can't use the command again until the cooldown is over. The cooldowns are stored in the
+     * {@link CommandHandler#getStateBackend() state backend} of the handler.
+     *
+     * @return The cooldown of the command in milliseconds or <code>0</code> if the command has no cooldown.
+     */
+    long cooldown() default 0;
+
+    /**
+     * Gets how many executions of the command may run at the same time.
+     * If the limit is reached, further executions are rejected immediately instead of waiting, so an expensive
+     * command can't use up all threads.
+     *
+     * @return The maximum number of concurrent executions or <code>0</code> if there's no limit.
+     */
+    int maxConcurrent() default 0;
+
     /**
      * Gets whether the bot has to be mentioned to react to a command.
      * This would look like <code>@botname alias</code>
@@ -18,13 +18,44 @@
  */
 package de.btobastian.sdcf4j;
 
+import de.btobastian.sdcf4j.audit.AuditLog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * The basic command handler.
  */
@@ -32,10 +63,45 @@ public abstract class CommandHandler {
 
     protected final HashMap<String, SimpleCommand> commands = new HashMap<>();
     protected final List<SimpleCommand> commandList = new ArrayList<>();
-    private final HashMap<String, List<String>> permissions = new HashMap<>();
+    protected final List<SimpleTrigger> triggerList = new ArrayList<>();
+    // replaced as a whole when the permissions are reloaded, modifications are guarded by the permission lock
+    private volatile PermissionStore permissionStore = new PermissionStore();
+    private final Object permissionLock = new Object();
+    private final AtomicBoolean reloadingPermissions = new AtomicBoolean();
+    private final HashMap<Class<?>, ArgumentConverter<?>> argumentConverters = new HashMap<>();
 
     protected String defaultPrefix = "";
 
+    private volatile ExecutorService executorService;
+    private volatile FairScheduler fairScheduler;
+    private volatile StripedSerialExecutor serialExecutor;
+    // the fields which are read by the dispatch engine are package-private
+    volatile DispatchRing dispatchRing;
+    private volatile CommandMetrics metrics = new CommandMetrics() { };
+    private volatile long adaptiveAsyncThresholdNanos = 0;
+    private volatile int adaptiveAsyncStrikes = 3;
+    private volatile AuditLog auditLog;
+    volatile TraceSink traceSink;
+    volatile int traceSampleRate = 1000;
+    volatile boolean alwaysTracedCommands = false;
+    private volatile StateBackend stateBackend = new LocalStateBackend();
+    private volatile long permissionVersion = 0;
+    private volatile long deduplicationWindow = 0;
+    volatile boolean ignoreBots = false;
+    final ConcurrentLongSet ignoredUsers = new ConcurrentLongSet();
+    final ConcurrentLongSet ignoredChannels = new ConcurrentLongSet();
+    final ConcurrentLongSet ignoredServers = new ConcurrentLongSet();
+    // the indices of the disabled commands per server, the arrays are never modified after they are published
+    final ConcurrentLongMap<long[]> disabledCommands = new ConcurrentLongMap<>();
+    private volatile TriggerMatcher triggerMatcher;
+    private volatile SimpleTrigger[] triggers;
+    private final ConcurrentLongMap<PendingReply[]> pendingReplies = new ConcurrentLongMap<>();
+    private volatile TimingWheel timingWheel;
+    private final DispatchEngine dispatchEngine = new DispatchEngine(this);
+
+    // guarded by itself, also guards the invokers of the commands
+    private final List<Object> interceptors = new ArrayList<>();
+
     // From Javacord's DiscordRegexPattern
     protected static final Pattern USER_MENTION =
             Pattern.compile("(?x)          # enable comment mode \n"
@@ -51,13 +117,31 @@ public abstract class CommandHandler {
                     + "(?<id>[0-9]++)      # the user id as named group \n"
                     + ">                   # '>'");
 
+    /**
+     * Class constructor.
+     */
+    protected CommandHandler() {
+        DefaultArgumentConverters.registerAll(argumentConverters);
+    }
+
     /**
      * Registers an executor.
      *
      * @param executor The executor to register.
      */
     public void registerCommand(CommandExecutor executor) {
+        // all methods are checked before anything is registered, so an invalid method doesn't leave the executor
+        // half registered
+        List<SimpleCommand> newCommands = new ArrayList<>();
+        List<SimpleTrigger> newTriggers = new ArrayList<>();
         for (Method method : executor.getClass().getMethods()) {
+            Trigger trigger = method.getAnnotation(Trigger.class);
+            if (trigger != null) {
+                if (trigger.keywords().length == 0 && trigger.patterns().length == 0) {
+                    throw new IllegalArgumentException("Trigger needs at least one keyword or pattern!");
+                }
+                newTriggers.add(new SimpleTrigger(trigger, method, executor));
+            }
             Command annotation = method.getAnnotation(Command.class);
             if (annotation == null) {
                 continue;
@@ -65,153 +149,2151 @@ public abstract class CommandHandler {
             if (annotation.aliases().length == 0) {
                 throw new IllegalArgumentException("Aliases array cannot be empty!");
             }
-            SimpleCommand command = new SimpleCommand(annotation, method, executor);
-            for (String alias : annotation.aliases()) {
+            newCommands.add(new SimpleCommand(annotation, method, executor));
+        }
+        for (SimpleCommand command : newCommands) {
+            for (String alias : command.annotation.aliases()) {
                 // add command to map. It's faster to access it from the map than iterating to the whole list
                 commands.put(defaultPrefix + alias.toLowerCase().replace(" ", ""), command);
             }
-            // we need a list, too, because a HashMap is not ordered.
-            commandList.add(command);
+            synchronized (interceptors) {
+                command.invoker = compileInvoker(command);
+                command.index = commandList.size();
+                // we need a list, too, because a HashMap is not ordered.
+                commandList.add(command);
+            }
+        }
+        if (!newTriggers.isEmpty()) {
+            registerTriggers(newTriggers);
         }
     }
 
     /**
-     * Gets a map which contains all set permissions.
-     * The map's key is the user id, the value is a list with all permissions of this user.
+     * Compiles the registered and the new triggers into a single matcher and registers the new triggers.
+     * The triggers are only registered if the matcher was compiled, so an invalid pattern doesn't break the
+     * triggers which are already registered.
      *
-     * @return A map which contains all set permissions.
+     * @param newTriggers The new triggers.
+     * @throws IllegalArgumentException If a keyword or pattern of the new triggers is invalid.
      */
-    public HashMap<String, List<String>> getPermissions() {
-        return permissions;
+    private void registerTriggers(List<SimpleTrigger> newTriggers) {
+        List<SimpleTrigger> all = new ArrayList<>(triggerList);
+        all.addAll(newTriggers);
+        List<String[]> keywords = new ArrayList<>();
+        List<String[]> patterns = new ArrayList<>();
+        for (SimpleTrigger trigger : all) {
+            keywords.add(trigger.getTriggerAnnotation().keywords());
+            patterns.add(trigger.getTriggerAnnotation().patterns());
+        }
+        TriggerMatcher matcher = new TriggerMatcher(keywords, patterns);
+        triggerList.addAll(newTriggers);
+        // the matcher is published last, so it never refers to a trigger which is not in the array
+        triggers = all.toArray(new SimpleTrigger[0]);
+        triggerMatcher = matcher;
     }
 
     /**
-     * Adds a permission for the user with the given id.
+     * Adds an interceptor which wraps the invocation of every command.
+     * Interceptors are called in the order they were added, after all {@link #addBeforeInterceptor(
+     * CommandInterceptor.Before) before interceptors} and before all {@link #addAfterInterceptor(
+     * CommandInterceptor.After) after interceptors}.
      *
-     * @param userId The id of the user.
-     * @param permission The permission to add.
+     * @param interceptor The interceptor.
      */
-    public void addPermission(String userId, String permission) {
-        List<String> permissions = this.permissions.get(userId);
-        if (permissions == null) {
-            permissions = new ArrayList<>();
-            this.permissions.put(userId, permissions);
+    public void addInterceptor(CommandInterceptor interceptor) {
+        addInterceptorObject(interceptor);
+    }
+
+    /**
+     * Adds an interceptor which is called before every command.
+     * If it returns <code>false</code>, the command and all following interceptors are skipped.
+     *
+     * @param interceptor The interceptor.
+     */
+    public void addBeforeInterceptor(CommandInterceptor.Before interceptor) {
+        addInterceptorObject(interceptor);
+    }
+
+    /**
+     * Adds an interceptor which is called after every command, even if the command threw an exception.
+     *
+     * @param interceptor The interceptor.
+     */
+    public void addAfterInterceptor(CommandInterceptor.After interceptor) {
+        addInterceptorObject(interceptor);
+    }
+
+    /**
+     * Adds an interceptor and recompiles the invokers of all registered commands.
+     *
+     * @param interceptor The interceptor.
+     */
+    private void addInterceptorObject(Object interceptor) {
+        if (interceptor == null) {
+            throw new IllegalArgumentException("Interceptor cannot be null!");
+        }
+        synchronized (interceptors) {
+            interceptors.add(interceptor);
+            for (SimpleCommand command : commandList) {
+                command.invoker = compileInvoker(command);
+            }
         }
-        permissions.add(permission);
     }
 
     /**
-     * Checks if the user with the given id has the required permission.
+     * Composes the interceptors and the method of the command into a single invoker.
+     * The chain is built once from the inside out, so invoking it doesn't iterate the interceptors.
+     * Must be called while holding the lock of the interceptors.
      *
-     * @param userId The id of the user.
-     * @param permission The permission to check.
-     * @return If the user has the given permission.
+     * @param command The command.
+     * @return The invoker of the command.
      */
-    public boolean hasPermission(String userId, String permission) {
-        if (permission.equals("none") || permission.equals("")) {
-            return true;
+    private CommandInvoker compileInvoker(final SimpleCommand command) {
+        final Method method = command.method;
+        final CommandExecutor executor = command.executor;
+        CommandInvoker invoker = (context, parameters) -> {
+            try {
+                return method.invoke(executor, parameters);
+            } catch (InvocationTargetException e) {
+                // interceptors should see the exception of the command
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        };
+        for (int phase = 2; phase >= 0; phase--) {
+            for (int i = interceptors.size() - 1; i >= 0; i--) {
+                Object interceptor = interceptors.get(i);
+                final CommandInvoker next = invoker;
+                if (phase == 2 && interceptor instanceof CommandInterceptor.After) {
+                    final CommandInterceptor.After after = (CommandInterceptor.After) interceptor;
+                    invoker = (context, parameters) -> {
+                        Object reply;
+                        try {
+                            reply = next.invoke(context, parameters);
+                        } catch (Exception | Error e) {
+                            after.after(command, context, null, e);
+                            throw e;
+                        }
+                        after.after(command, context, reply, null);
+                        return reply;
+                    };
+                } else if (phase == 1 && interceptor instanceof CommandInterceptor) {
+                    final CommandInterceptor around = (CommandInterceptor) interceptor;
+                    invoker = (context, parameters) -> around.intercept(command, context, parameters, next);
+                } else if (phase == 0 && interceptor instanceof CommandInterceptor.Before) {
+                    final CommandInterceptor.Before before = (CommandInterceptor.Before) interceptor;
+                    invoker = (context, parameters) ->
+                            before.before(command, context, parameters) ? next.invoke(context, parameters) : null;
+                }
+            }
         }
-        List<String> permissions = this.permissions.get(userId);
-        if (permissions == null) {
-            return false;
+        return invoker;
+    }
+
+    /**
+     * Registers a converter for parameters of the given type.
+     * Parameters with a converter are bound to the arguments of the command in the same order as additional
+     * <code>String</code> parameters. If an argument cannot be converted, the user gets the usage of the command.
+     * Converters for <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>, their
+     * wrappers, enums and {@link java.time.Duration} are registered by default.
+     * Changing the converters after registering a command has no effect on the command!
+     *
+     * @param type The type of the parameter.
+     * @param converter The converter.
+     * @param <T> The type of the parameter.
+     */
+    public <T> void registerArgumentConverter(Class<T> type, ArgumentConverter<? extends T> converter) {
+        if (type == null || converter == null) {
+            throw new IllegalArgumentException("Type and converter cannot be null!");
         }
-        for (String perm : permissions) {
-            // user has the permission
-            if (checkPermission(perm, permission)) {
-                return true;
+        argumentConverters.put(type, converter);
+    }
+
+    /**
+     * Removes the converter for parameters of the given type.
+     *
+     * @param type The type of the parameter.
+     */
+    public void unregisterArgumentConverter(Class<?> type) {
+        argumentConverters.remove(type);
+    }
+
+    /**
+     * Gets the converter for parameters of the given type.
+     *
+     * @param type The type of the parameter.
+     * @return The converter or <code>null</code> if there's no converter for the given type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ArgumentConverter<?> getArgumentConverter(Class<?> type) {
+        ArgumentConverter<?> converter = argumentConverters.get(type);
+        if (converter == null && type.isEnum()) {
+            converter = DefaultArgumentConverters.forEnum((Class<? extends Enum>) type);
+            argumentConverters.put(type, converter);
+        }
+        return converter;
+    }
+
+    /**
+     * Sets the executor service which is used for async commands.
+     * The executor is shared by all shards the handler is attached to.
+     *
+     * @param executorService The executor service.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("Executor service cannot be null!");
+        }
+        this.executorService = executorService;
+    }
+
+    /**
+     * Gets the executor service which is used for async commands.
+     * If no executor service was set, a cached thread pool with daemon threads is used.
+     *
+     * @return The executor service which is used for async commands.
+     */
+    public ExecutorService getExecutorService() {
+        ExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            synchronized (this) {
+                executorService = this.executorService;
+                if (executorService == null) {
+                    final AtomicInteger threadCounter = new AtomicInteger();
+                    executorService = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "sdcf4j-command-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    this.executorService = executorService;
+                }
             }
         }
-        // user hasn't enough permissions
-        return false;
+        return executorService;
     }
 
     /**
-     * Gets a list with all commands in the order they were registered.
-     * This is useful for automatic help commands.
+     * Sets the scheduler which is used for async commands.
+     * The commands of every server (and of every user in private messages) are queued separately and the queues
+     * are served round-robin, so one busy server can't delay the commands of other servers.
+     * The scheduler should use the {@link #getExecutorService() executor service} of this handler.
      *
-     * @return A list with all commands the the order they were registered.
+     * @param fairScheduler The scheduler or <code>null</code> to submit async commands directly to the executor.
      */
-    public List<SimpleCommand> getCommands() {
-        return Collections.unmodifiableList(commandList);
+    public void setFairScheduler(FairScheduler fairScheduler) {
+        this.fairScheduler = fairScheduler;
     }
 
     /**
-     * Sets the default command prefix.
-     * Changing the default prefix after registering a command has no effect!
+     * Gets the scheduler which is used for async commands.
      *
-     * @param defaultPrefix The default command prefix.
+     * @return The scheduler or <code>null</code> if async commands are submitted directly to the executor.
      */
-    public void setDefaultPrefix(String defaultPrefix) {
-        if (defaultPrefix == null) {
-            this.defaultPrefix = "";
-        } else {
-            this.defaultPrefix = defaultPrefix.replace(" ", "");
+    public FairScheduler getFairScheduler() {
+        return fairScheduler;
+    }
+
+    /**
+     * Sets the ring which decouples the handling of messages from the listener threads of the platform.
+     * With a ring, the listener only publishes the message and a consumer thread of the ring handles it, so
+     * commands which are not async don't block the platform. A ring can only be used by one handler.
+     *
+     * @param dispatchRing The ring or <code>null</code> to handle messages on the listener thread. A previous ring
+     *                     is not closed.
+     */
+    public void setDispatchRing(DispatchRing dispatchRing) {
+        if (dispatchRing != null) {
+            dispatchRing.start(dispatchEngine::handleMessage);
         }
+        this.dispatchRing = dispatchRing;
     }
 
     /**
-     * Gets the default command prefix.
+     * Gets the ring which decouples the handling of messages from the listener threads of the platform.
      *
-     * @return The default command prefix.
+     * @return The ring or <code>null</code> if messages are handled on the listener thread.
      */
-    public String getDefaultPrefix() {
-        return defaultPrefix;
+    public DispatchRing getDispatchRing() {
+        return dispatchRing;
+    }
+
+    /**
+     * Sets the executor which is used for commands with a {@link Command#serialBy()} key.
+     *
+     * @param serialExecutor The executor.
+     */
+    public void setSerialExecutor(StripedSerialExecutor serialExecutor) {
+        if (serialExecutor == null) {
+            throw new IllegalArgumentException("Serial executor cannot be null!");
+        }
+        this.serialExecutor = serialExecutor;
     }
 
     /**
-     * Checks if you are allowed to do something with the given permission.
+     * Gets the executor which is used for commands with a {@link Command#serialBy()} key.
+     * If no executor was set, one with 256 stripes on top of the {@link #getExecutorService() executor service}
+     * is used.
      *
-     * @param has The permission the user has.
-     * @param required The permission which is required.
-     * @return If you can use the command with the given permission.
+     * @return The executor which is used for commands with a serial key.
      */
-    private boolean checkPermission(String has, String required) {
-        String[] splitHas = has.split("\\.");
-        String[] splitRequired = required.split("\\.");
-        int lower = splitHas.length > splitRequired.length ? splitRequired.length : splitHas.length;
-        for (int i = 0; i < lower; i++) {
-            if (!splitHas[i].equalsIgnoreCase(splitRequired[i])) {
-                return splitHas[i].equals("*");
+    public StripedSerialExecutor getSerialExecutor() {
+        StripedSerialExecutor serialExecutor = this.serialExecutor;
+        if (serialExecutor == null) {
+            synchronized (this) {
+                serialExecutor = this.serialExecutor;
+                if (serialExecutor == null) {
+                    serialExecutor = new StripedSerialExecutor(getExecutorService(), 256);
+                    this.serialExecutor = serialExecutor;
+                }
             }
         }
-        return splitRequired.length == splitHas.length;
+        return serialExecutor;
     }
 
     /**
-     * A simple representation of a command.
+     * Sets the metrics which receive information about the handled commands.
+     *
+     * @param metrics The metrics.
      */
-    public class SimpleCommand {
+    public void setMetrics(CommandMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null!");
+        }
+        this.metrics = metrics;
+    }
 
-        private final Command annotation;
-        private final Method method;
-        private final CommandExecutor executor;
+    /**
+     * Sets the audit log which records every execution and rejection of a command.
+     *
+     * @param auditLog The audit log or <code>null</code> to disable auditing.
+     */
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
 
-        /**
-         * Class constructor.
-         *
-         * @param annotation The annotation of the executor's method.
-         * @param method The method which listens to the commands.
-         * @param executor The executor of the method.
-         */
-        protected SimpleCommand(Command annotation, Method method, CommandExecutor executor) {
-            this.annotation = annotation;
-            this.method = method;
-            this.executor = executor;
+    /**
+     * Gets the audit log which records every execution and rejection of a command.
+     *
+     * @return The audit log or <code>null</code> if auditing is disabled.
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Sets the sink which receives the stage timings of sampled commands.
+     * Which messages are sampled is controlled by {@link #setTraceSampleRate(int)} and
+     * {@link #setAlwaysTraced(String, boolean)}. Without a sink, tracing costs nothing but a single check. With a
+     * sink, a message which is not traced only costs a random draw and doesn't allocate.
+     *
+     * @param traceSink The sink or <code>null</code> to disable tracing.
+     */
+    public void setTraceSink(TraceSink traceSink) {
+        this.traceSink = traceSink;
+    }
+
+    /**
+     * Gets the sink which receives the stage timings of sampled commands.
+     *
+     * @return The sink or <code>null</code> if tracing is disabled.
+     */
+    public TraceSink getTraceSink() {
+        return traceSink;
+    }
+
+    /**
+     * Sets how many messages are sampled. The default is one in <code>1000</code>.
+     *
+     * @param rate Trace one in <code>rate</code> messages or <code>0</code> to only trace the commands which are
+     *             always traced.
+     */
+    public void setTraceSampleRate(int rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative!");
         }
+        this.traceSampleRate = rate;
+    }
 
-        /**
-         * The command annotation of the method.
-         *
-         * @return The command annotation of the method.
-         */
-        public Command getCommandAnnotation() {
-            return annotation;
+    /**
+     * Gets how many messages are sampled.
+     *
+     * @return One in how many messages is traced or <code>0</code> if only the commands which are always traced are
+     *         traced.
+     */
+    public int getTraceSampleRate() {
+        return traceSampleRate;
+    }
+
+    /**
+     * Sets whether every execution of the command is traced, regardless of the sample rate.
+     *
+     * @param command An alias of the command.
+     * @param alwaysTraced Whether every execution of the command is traced or not.
+     */
+    public void setAlwaysTraced(String command, boolean alwaysTraced) {
+        getCommand(command).alwaysTraced = alwaysTraced;
+        boolean any = false;
+        for (SimpleCommand registered : commandList) {
+            any |= registered.alwaysTraced;
         }
+        alwaysTracedCommands = any;
+    }
 
-        /**
-         * Gets the method which listens to the commands.
-         *
-         * @return The method which listens to the commands.
+    /**
+     * Enables the adaptive async mode.
+     * Commands which are executed on the listener thread are measured. If a command takes longer than the
+     * threshold more often than it's faster (at least <code>strikes</code> times), it's executed async from then
+     * on, so it can't block the handling of other events.
+     *
+     * @param threshold The maximum time a command should block the listener thread or <code>0</code> to disable the
+     *                  adaptive async mode.
+     * @param unit The unit of the threshold.
+     * @param strikes How often a command may exceed the threshold before it's promoted.
+     */
+    public void setAdaptiveAsync(long threshold, TimeUnit unit, int strikes) {
+        if (unit == null) {
+            throw new IllegalArgumentException("Unit cannot be null!");
+        }
+        if (strikes < 1) {
+            throw new IllegalArgumentException("Strikes must be at least 1!");
+        }
+        this.adaptiveAsyncStrikes = strikes;
+        this.adaptiveAsyncThresholdNanos = Math.max(unit.toNanos(threshold), 0);
+    }
+
+    /**
+     * Checks if the adaptive async mode is enabled.
+     *
+     * @return Whether the adaptive async mode is enabled or not.
+     * @see #setAdaptiveAsync(long, TimeUnit, int)
+     */
+    public boolean isAdaptiveAsync() {
+        return adaptiveAsyncThresholdNanos > 0;
+    }
+
+    /**
+     * Gets the metrics which receive information about the handled commands.
+     *
+     * @return The metrics.
+     */
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets a map which contains all set permissions.
+     * The map's key is the user id, the value is a list with all permissions of this user.
+     * Call {@link #invalidatePermissionCache()} after modifying the map directly.
+     * Direct modifications are not written to the {@link #getStateBackend() state backend}, and the map is replaced
+     * by a new one when the permissions are reloaded from the backend.
+     *
+     * @return A map which contains all set permissions.
+     */
+    public HashMap<String, List<String>> getPermissions() {
+        return permissionStore.getUserPermissions();
+    }
+
+    /**
+     * Adds a permission for the user with the given id.
+     *
+     * @param userId The id of the user.
+     * @param permission The permission to add.
+     */
+    public void addPermission(String userId, String permission) {
+        writeGrant(PermissionGrant.Kind.USER_PERMISSION, userId, permission);
+    }
+
+    /**
+     * Adds a permission for the group with the given name.
+     * All members of the group (and of groups which inherit from it) have this permission.
+     *
+     * @param group The name of the group.
+     * @param permission The permission to add.
+     */
+    public void addGroupPermission(String group, String permission) {
+        writeGrant(PermissionGrant.Kind.GROUP_PERMISSION, group, permission);
+    }
+
+    /**
+     * Lets the group inherit all permissions of the parent group.
+     *
+     * @param group The name of the group.
+     * @param parent The name of the parent group.
+     */
+    public void addGroupParent(String group, String parent) {
+        writeGrant(PermissionGrant.Kind.GROUP_PARENT, group, parent);
+    }
+
+    /**
+     * Adds the user with the given id to the group.
+     *
+     * @param userId The id of the user.
+     * @param group The name of the group.
+     */
+    public void addUserToGroup(String userId, String group) {
+        writeGrant(PermissionGrant.Kind.USER_GROUP, userId, group);
+    }
+
+    /**
+     * Adds all users with the given role to the group.
+     *
+     * @param roleId The id of the role.
+     * @param group The name of the group.
+     */
+    public void addRoleToGroup(String roleId, String group) {
+        writeGrant(PermissionGrant.Kind.ROLE_GROUP, roleId, group);
+    }
+
+    /**
+     * Adds a single grant to the permissions of this handler and writes it to the state backend.
+     *
+     * @param kind The kind of the grant.
+     * @param subject The subject of the grant.
+     * @param value The value of the grant.
+     */
+    private void writeGrant(PermissionGrant.Kind kind, String subject, String value) {
+        writePermissions(Collections.singletonList(new PermissionGrant(kind, subject, value)).iterator(), 1, false);
+    }
+
+    /**
+     * Clears the cached permissions.
+     * This is only required after modifying the map of {@link #getPermissions()} directly.
+     */
+    public void invalidatePermissionCache() {
+        permissionStore.refresh();
+    }
+
+    /**
+     * Imports permissions in bulk.
+     * The grants are added in a single pass without copying them. Grants with the same kind and subject should be
+     * consecutive (e.g. sorted by user) for the best performance.
+     *
+     * @param grants The grants to import.
+     */
+    public void importPermissions(Iterator<? extends PermissionGrant> grants) {
+        importPermissions(grants, 0);
+    }
+
+    /**
+     * Imports permissions in bulk.
+     * The grants are collected into maps which are sized for the expected number of grants, so a large import
+     * doesn't rehash them again and again.
+     *
+     * @param grants The grants to import.
+     * @param expectedGrants The expected number of grants or <code>0</code> if it's unknown.
+     * @see #importPermissions(Iterator)
+     */
+    public void importPermissions(Iterator<? extends PermissionGrant> grants, int expectedGrants) {
+        writePermissions(grants, expectedGrants, false);
+    }
+
+    /**
+     * Exports all permissions, groups and memberships.
+     * The grants are passed to the consumer one by one, so they are never copied as a whole.
+     *
+     * @param consumer The consumer which receives the grants.
+     */
+    public void exportPermissions(Consumer<? super PermissionGrant> consumer) {
+        permissionStore.exportGrants(consumer);
+    }
+
+    /**
+     * Reads permissions in the text format of {@link PermissionGrant} (one grant per line).
+     * Empty lines and lines starting with <code>#</code> are ignored. The stream is not closed.
+     * If a line is not a valid grant, the grants of the lines before it are kept.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the stream cannot be read.
+     * @throws IllegalArgumentException If a line is not a valid grant.
+     */
+    public void readPermissions(InputStream in) throws IOException {
+        readPermissions(in, 0);
+    }
+
+    /**
+     * Reads permissions in the text format of {@link PermissionGrant} (one grant per line).
+     *
+     * @param in The stream to read from.
+     * @param expectedGrants The expected number of grants (e.g. the number of lines) or <code>0</code> if it's
+     *                       unknown. It's used to size the maps the grants are collected into.
+     * @throws IOException If the stream cannot be read.
+     * @throws IllegalArgumentException If a line is not a valid grant.
+     * @see #readPermissions(InputStream)
+     */
+    public void readPermissions(InputStream in, int expectedGrants) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        Iterator<PermissionGrant> grants = new Iterator<PermissionGrant>() {
+            private String next = null;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null) {
+                        String line = reader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+                        if (!line.isEmpty() && line.charAt(0) != '#') {
+                            next = line;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public PermissionGrant next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = null;
+                return PermissionGrant.parse(line);
+            }
+        };
+        try {
+            importPermissions(grants, expectedGrants);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes all permissions in the text format of {@link PermissionGrant} (one grant per line).
+     * The stream is flushed but not closed.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writePermissions(OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        try {
+            exportPermissions(grant -> {
+                try {
+                    writer.write(grant.toString());
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Removes all permissions, groups and memberships.
+     */
+    public void clearPermissions() {
+        writePermissions(Collections.<PermissionGrant>emptyIterator(), 0, true);
+    }
+
+    /**
+     * Adds the grants to the permissions of this handler and writes them to the state backend.
+     *
+     * @param grants The grants to write.
+     * @param expectedGrants The expected number of grants or <code>0</code> if it's unknown.
+     * @param replace Whether the grants replace all existing permissions or are added to them.
+     * @throws UncheckedIOException If the state backend cannot write the grants.
+     */
+    private void writePermissions(final Iterator<? extends PermissionGrant> grants, int expectedGrants,
+                                  boolean replace) {
+        synchronized (permissionLock) {
+            final PermissionStore.Batch batch = new PermissionStore.Batch(expectedGrants);
+            long version;
+            try {
+                // the grants are collected while the backend consumes them, so they are only iterated once. The
+                // store is not locked meanwhile, so permission checks are not blocked by the backend
+                version = stateBackend.writePermissions(new Iterator<PermissionGrant>() {
+                    @Override
+                    public boolean hasNext() {
+                        return grants.hasNext();
+                    }
+
+                    @Override
+                    public PermissionGrant next() {
+                        PermissionGrant grant = grants.next();
+                        batch.accept(grant);
+                        return grant;
+                    }
+                }, replace);
+            } catch (IOException e) {
+                // the local permissions may differ from the backend now
+                permissionVersion = Long.MIN_VALUE;
+                throw new UncheckedIOException(e);
+            } finally {
+                publishPermissions(batch, replace);
+            }
+            // if another process changed the permissions meanwhile, they are reloaded on the next check
+            if (version == permissionVersion + 1) {
+                permissionVersion = version;
+            }
+        }
+    }
+
+    /**
+     * Makes the collected grants visible to permission checks.
+     * Must be called while holding the permission lock.
+     *
+     * @param batch The collected grants.
+     * @param replace Whether the grants replace all existing permissions or are added to them.
+     */
+    private void publishPermissions(PermissionStore.Batch batch, boolean replace) {
+        if (replace) {
+            PermissionStore store = new PermissionStore(permissionStore);
+            store.merge(batch);
+            permissionStore = store;
+        } else {
+            permissionStore.merge(batch);
+        }
+    }
+
+    /**
+     * Starts reloading the permissions from the state backend if another process changed them.
+     * The permissions are loaded by the executor service, so permission checks keep using the current permissions
+     * meanwhile and are never blocked by the reload.
+     */
+    private void syncPermissions() {
+        if (stateBackend.getPermissionVersion() == permissionVersion
+                || !reloadingPermissions.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getExecutorService().execute(this::reloadPermissions);
+        } catch (RejectedExecutionException e) {
+            // retried on the next check
+            reloadingPermissions.set(false);
+        }
+    }
+
+    /**
+     * Loads the permissions of the state backend and makes them visible to permission checks.
+     * If the backend knows which grants were added since the last load, only these are added to the current store.
+     * Otherwise all permissions are loaded into a new store which is swapped in.
+     * If the permissions cannot be read, the current permissions are kept until the version changes again and the
+     * error is passed to the uncaught exception handler of the current thread.
+     */
+    private void reloadPermissions() {
+        try {
+            synchronized (permissionLock) {
+                StateBackend backend = this.stateBackend;
+                // read the version first, so changes during the read cause another reload
+                long version = backend.getPermissionVersion();
+                if (version == permissionVersion) {
+                    return;
+                }
+                try {
+                    PermissionStore.Batch added = new PermissionStore.Batch();
+                    long addedVersion = backend.readPermissionsSince(permissionVersion, added);
+                    if (addedVersion >= 0) {
+                        permissionStore.merge(added);
+                        // the grants may be newer than the version which was read first
+                        version = addedVersion;
+                    } else {
+                        permissionStore = loadPermissions(backend);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // don't read the broken permissions again on every check
+                    permissionVersion = version;
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    return;
+                }
+                permissionVersion = version;
+            }
+        } finally {
+            reloadingPermissions.set(false);
+        }
+    }
+
+    /**
+     * Loads the permissions of the state backend into a new store.
+     * The new store shares the interned permissions of the current store, so the commands keep their bit indices.
+     *
+     * @param backend The state backend.
+     * @return The new store.
+     * @throws IOException If the permissions cannot be read.
+     */
+    private PermissionStore loadPermissions(StateBackend backend) throws IOException {
+        // the permissions usually changed only a little since they were loaded the last time
+        PermissionStore.Batch batch = new PermissionStore.Batch(permissionStore.getGrantCount());
+        backend.readPermissions(batch);
+        PermissionStore store = new PermissionStore(permissionStore);
+        store.merge(batch);
+        return store;
+    }
+
+    /**
+     * Sets the backend which stores the permissions, cooldowns and processed messages.
+     * A shared backend (like the {@link FileStateBackend}) lets several bot processes use the same state.
+     * The permissions of this handler are replaced by the permissions of the backend. If the permissions of the
+     * backend were never written, the permissions of this handler are written to it instead, so they are kept.
+     *
+     * @param stateBackend The state backend.
+     * @throws IOException If the permissions of the backend cannot be read.
+     */
+    public void setStateBackend(StateBackend stateBackend) throws IOException {
+        if (stateBackend == null) {
+            throw new IllegalArgumentException("State backend cannot be null!");
+        }
+        synchronized (permissionLock) {
+            long version = stateBackend.getPermissionVersion();
+            if (version == 0) {
+                PermissionStore store = permissionStore;
+                List<PermissionGrant> grants = new ArrayList<>(store.getGrantCount());
+                store.exportGrants(grants::add);
+                version = stateBackend.writePermissions(grants.iterator(), true);
+            } else {
+                permissionStore = loadPermissions(stateBackend);
+            }
+            this.stateBackend = stateBackend;
+            permissionVersion = version;
+        }
+    }
+
+    /**
+     * Interns a permission which is required by a command.
+     *
+     * @param permission The permission.
+     * @return The bit index of the permission or <code>-1</code> if no permission is required.
+     */
+    private int internPermission(String permission) {
+        int index = permissionStore.intern(permission);
+        // the cached bitsets don't contain a new permission. The field is read again, because a reload may have
+        // swapped the store meanwhile
+        permissionStore.invalidate();
+        return index;
+    }
+
+    /**
+     * Gets the backend which stores the permissions, cooldowns and processed messages.
+     * By default, a {@link LocalStateBackend} is used.
+     *
+     * @return The state backend.
+     */
+    public StateBackend getStateBackend() {
+        return stateBackend;
+    }
+
+    /**
+     * Sets how long the ids of handled messages are remembered.
+     * If several bot processes receive the same message (e.g. while a shard is moved), only the first one handles
+     * it. This requires a shared {@link #setStateBackend(StateBackend) state backend}.
+     *
+     * @param deduplicationWindow The time in milliseconds or <code>0</code> to disable deduplication.
+     */
+    public void setDeduplicationWindow(long deduplicationWindow) {
+        if (deduplicationWindow < 0) {
+            throw new IllegalArgumentException("Deduplication window cannot be negative!");
+        }
+        this.deduplicationWindow = deduplicationWindow;
+    }
+
+    /**
+     * Gets how long the ids of handled messages are remembered.
+     *
+     * @return The time in milliseconds or <code>0</code> if deduplication is disabled.
+     */
+    public long getDeduplicationWindow() {
+        return deduplicationWindow;
+    }
+
+    /**
+     * Sets whether messages of bots and webhooks are ignored. They are not ignored by default.
+     *
+     * @param ignoreBots Whether messages of bots and webhooks are ignored or not.
+     */
+    public void setIgnoreBots(boolean ignoreBots) {
+        this.ignoreBots = ignoreBots;
+    }
+
+    /**
+     * Checks if messages of bots and webhooks are ignored.
+     *
+     * @return Whether messages of bots and webhooks are ignored or not.
+     */
+    public boolean isIgnoreBots() {
+        return ignoreBots;
+    }
+
+    /**
+     * Ignores all messages of the user.
+     *
+     * @param userId The id of the user.
+     */
+    public void addIgnoredUser(long userId) {
+        ignoredUsers.add(userId);
+    }
+
+    /**
+     * Stops ignoring the messages of the user.
+     *
+     * @param userId The id of the user.
+     */
+    public void removeIgnoredUser(long userId) {
+        ignoredUsers.remove(userId);
+    }
+
+    /**
+     * Checks if the messages of the user are ignored.
+     *
+     * @param userId The id of the user.
+     * @return Whether the messages of the user are ignored or not.
+     */
+    public boolean isIgnoredUser(long userId) {
+        return ignoredUsers.contains(userId);
+    }
+
+    /**
+     * Gets the ids of all ignored users.
+     *
+     * @return The ids of the ignored users.
+     */
+    public long[] getIgnoredUsers() {
+        return ignoredUsers.toArray();
+    }
+
+    /**
+     * Ignores all messages of the channel.
+     *
+     * @param channelId The id of the channel.
+     */
+    public void addIgnoredChannel(long channelId) {
+        ignoredChannels.add(channelId);
+    }
+
+    /**
+     * Stops ignoring the messages of the channel.
+     *
+     * @param channelId The id of the channel.
+     */
+    public void removeIgnoredChannel(long channelId) {
+        ignoredChannels.remove(channelId);
+    }
+
+    /**
+     * Checks if the messages of the channel are ignored.
+     *
+     * @param channelId The id of the channel.
+     * @return Whether the messages of the channel are ignored or not.
+     */
+    public boolean isIgnoredChannel(long channelId) {
+        return ignoredChannels.contains(channelId);
+    }
+
+    /**
+     * Gets the ids of all ignored channels.
+     *
+     * @return The ids of the ignored channels.
+     */
+    public long[] getIgnoredChannels() {
+        return ignoredChannels.toArray();
+    }
+
+    /**
+     * Ignores all messages of the server.
+     *
+     * @param serverId The id of the server.
+     */
+    public void addIgnoredServer(long serverId) {
+        ignoredServers.add(serverId);
+    }
+
+    /**
+     * Stops ignoring the messages of the server.
+     *
+     * @param serverId The id of the server.
+     */
+    public void removeIgnoredServer(long serverId) {
+        ignoredServers.remove(serverId);
+    }
+
+    /**
+     * Checks if the messages of the server are ignored.
+     *
+     * @param serverId The id of the server.
+     * @return Whether the messages of the server are ignored or not.
+     */
+    public boolean isIgnoredServer(long serverId) {
+        return ignoredServers.contains(serverId);
+    }
+
+    /**
+     * Gets the ids of all ignored servers.
+     *
+     * @return The ids of the ignored servers.
+     */
+    public long[] getIgnoredServers() {
+        return ignoredServers.toArray();
+    }
+
+    /**
+     * Checks if a message is ignored because of its author or channel.
+     * Adapters call this with the values of the event before they create the {@link MessageContext}, so an
+     * ignored message doesn't allocate anything. If {@link #hasIgnoredServers()} returns <code>true</code>, the
+     * server must be checked with {@link #isIgnoredServer(long)}, too. Messages which are ignored before their
+     * context is created are not passed to {@link #messageIgnored(MessageContext)}.
+     *
+     * @param authorId The id of the author.
+     * @param channelId The id of the channel.
+     * @param fromBot Whether the message was sent by a bot or a webhook.
+     * @return Whether the message is ignored or not.
+     */
+    protected boolean isIgnored(long authorId, long channelId, boolean fromBot) {
+        if (ignoreBots && fromBot) {
+            return true;
+        }
+        if (!ignoredUsers.isEmpty() && ignoredUsers.contains(authorId)) {
+            return true;
+        }
+        return !ignoredChannels.isEmpty() && ignoredChannels.contains(channelId);
+    }
+
+    /**
+     * Checks if the messages of any server are ignored.
+     * Used by adapters to skip resolving the server of a message, see {@link #isIgnored(long, long, boolean)}.
+     *
+     * @return Whether the messages of any server are ignored or not.
+     */
+    protected boolean hasIgnoredServers() {
+        return !ignoredServers.isEmpty();
+    }
+
+    /**
+     * Enables or disables a command in a server. All commands are enabled by default.
+     *
+     * @param serverId The id of the server.
+     * @param command An alias of the command.
+     * @param enabled Whether the command is enabled or not.
+     */
+    public void setCommandEnabled(long serverId, String command, boolean enabled) {
+        int index = getCommand(command).index;
+        synchronized (disabledCommands) {
+            long[] disabled = disabledCommands.get(serverId);
+            boolean isDisabled = disabled != null && isDisabled(disabled, index);
+            if (isDisabled != enabled) {
+                return;
+            }
+            long[] updated;
+            if (enabled) {
+                updated = disabled.clone();
+                updated[index >>> 6] &= ~(1L << index);
+            } else {
+                updated = disabled == null ? new long[(commandList.size() + 63) >>> 6]
+                        : Arrays.copyOf(disabled, Math.max(disabled.length, (index >>> 6) + 1));
+                updated[index >>> 6] |= 1L << index;
+            }
+            boolean empty = true;
+            for (long word : updated) {
+                empty &= word == 0;
+            }
+            // servers without disabled commands don't take any memory
+            disabledCommands.put(serverId, empty ? null : updated);
+        }
+    }
+
+    /**
+     * Checks if a command is enabled in a server.
+     *
+     * @param serverId The id of the server.
+     * @param command An alias of the command.
+     * @return Whether the command is enabled or not.
+     */
+    public boolean isCommandEnabled(long serverId, String command) {
+        long[] disabled = disabledCommands.get(serverId);
+        return disabled == null || !isDisabled(disabled, getCommand(command).index);
+    }
+
+    /**
+     * Gets the commands which are disabled in a server.
+     *
+     * @param serverId The id of the server.
+     * @return The disabled commands.
+     */
+    public List<SimpleCommand> getDisabledCommands(long serverId) {
+        long[] disabled = disabledCommands.get(serverId);
+        List<SimpleCommand> commands = new ArrayList<>();
+        if (disabled != null) {
+            for (SimpleCommand command : commandList) {
+                if (isDisabled(disabled, command.index)) {
+                    commands.add(command);
+                }
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Enables all commands in a server.
+     *
+     * @param serverId The id of the server.
+     */
+    public void enableAllCommands(long serverId) {
+        // same lock as setCommandEnabled, otherwise it could put back the old bitset
+        synchronized (disabledCommands) {
+            disabledCommands.remove(serverId);
+        }
+    }
+
+    /**
+     * Gets the command with the given alias.
+     * The alias is normalized like it is at registration and can be given with or without the default prefix.
+     *
+     * @param alias The alias of the command.
+     * @return The command.
+     */
+    private SimpleCommand getCommand(String alias) {
+        if (alias == null) {
+            throw new IllegalArgumentException("Command cannot be null!");
+        }
+        String key = alias.toLowerCase().replace(" ", "");
+        SimpleCommand command = commands.get(defaultPrefix + key);
+        if (command == null) {
+            command = commands.get(key);
+        }
+        if (command == null) {
+            throw new IllegalArgumentException("Unknown command " + alias + "!");
+        }
+        return command;
+    }
+
+    /**
+     * Checks if the bit of the command is set.
+     *
+     * @param disabled The bitset of the disabled commands of a server.
+     * @param index The index of the command.
+     * @return Whether the command is disabled or not.
+     */
+    static boolean isDisabled(long[] disabled, int index) {
+        int word = index >>> 6;
+        return word < disabled.length && (disabled[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Checks if the message was already handled by this or another process.
+     * Only messages which contain a command or fire a trigger are checked. The message is marked as handled by the
+     * first check, further checks for the same context return the same result.
+     *
+     * @param context The context of the message.
+     * @return Whether the message was already handled or not.
+     */
+    protected boolean isDuplicate(MessageContext context) {
+        long window = deduplicationWindow;
+        if (window <= 0) {
+            return false;
+        }
+        if (context.duplicate == MessageContext.UNCHECKED) {
+            context.duplicate = stateBackend.markProcessed(context.getMessageId(), window)
+                    ? MessageContext.FIRST : MessageContext.DUPLICATE;
+        }
+        return context.duplicate == MessageContext.DUPLICATE;
+    }
+
+    /**
+     * Starts the cooldown of the command for the author of the message.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @return <code>0</code> if the author can use the command or the remaining cooldown in milliseconds.
+     */
+    protected long startCooldown(SimpleCommand command, MessageContext context) {
+        long cooldown = command.getCommandAnnotation().cooldown();
+        if (cooldown <= 0) {
+            return 0;
+        }
+        return stateBackend.tryStartCooldown(context.getAuthorId(), command.cooldownKey, cooldown);
+    }
+
+    /**
+     * Gets the message which is sent if the cooldown of the command is not over.
+     *
+     * @param remainingCooldown The remaining cooldown in milliseconds.
+     * @return The message or <code>null</code> if no message should be sent.
+     */
+    protected String getCooldownMessage(long remainingCooldown) {
+        String message = Sdcf4jMessage.COOLDOWN.getMessage();
+        return message == null ? null : String.format(message, (remainingCooldown + 999) / 1000);
+    }
+
+    /**
+     * Checks if the user with the given id has the required permission.
+     * Permissions of roles are not checked, because they depend on the server.
+     *
+     * @param userId The id of the user.
+     * @param permission The permission to check.
+     * @return If the user has the given permission.
+     */
+    public boolean hasPermission(String userId, String permission) {
+        syncPermissions();
+        return permissionStore.userHas(userId, permission);
+    }
+
+    /**
+     * Checks if the author of the message has the permission which is required by the command.
+     * The author has the permission if the author or one of the author's roles has it.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @return Whether the author has the required permission or not.
+     */
+    protected boolean hasPermission(SimpleCommand command, MessageContext context) {
+        return hasPermission(command.permissionIndex, context);
+    }
+
+    /**
+     * Checks if the author of the message has the permission with the given bit index.
+     *
+     * @param index The bit index of the permission or <code>-1</code> if no permission is required.
+     * @param context The context of the message.
+     * @return Whether the author has the permission or not.
+     */
+    private boolean hasPermission(int index, MessageContext context) {
+        if (index < 0) {
+            return true;
+        }
+        syncPermissions();
+        PermissionStore store = permissionStore;
+        if (store.userHas(context.getAuthorId(), index)) {
+            return true;
+        }
+        if (store.hasRoleGroups()) {
+            for (long roleId : context.getRoleIds()) {
+                if (store.roleHas(roleId, index)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a list with all commands in the order they were registered.
+     * This is useful for automatic help commands.
+     *
+     * @return A list with all commands the the order they were registered.
+     */
+    public List<SimpleCommand> getCommands() {
+        return Collections.unmodifiableList(commandList);
+    }
+
+    /**
+     * Gets a list with all triggers in the order they were registered.
+     *
+     * @return A list with all triggers in the order they were registered.
+     */
+    public List<SimpleTrigger> getTriggers() {
+        return Collections.unmodifiableList(triggerList);
+    }
+
+    /**
+     * Sets the default command prefix.
+     * Changing the default prefix after registering a command has no effect!
+     *
+     * @param defaultPrefix The default command prefix.
+     */
+    public void setDefaultPrefix(String defaultPrefix) {
+        if (defaultPrefix == null) {
+            this.defaultPrefix = "";
+        } else {
+            this.defaultPrefix = defaultPrefix.replace(" ", "");
+        }
+    }
+
+    /**
+     * Gets the default command prefix.
+     *
+     * @return The default command prefix.
+     */
+    public String getDefaultPrefix() {
+        return defaultPrefix;
+    }
+
+    /**
+     * Handles a received message.
+     * Adapters only have to wrap the message in a {@link MessageContext} and pass it to this method on the thread
+     * which received it. The message is handled by the {@link DispatchEngine} which is shared by all platforms. If a
+     * {@link #setDispatchRing(DispatchRing) dispatch ring} is set, the message is handled by a consumer of the ring.
+     *
+     * @param context The context of the message.
+     */
+    protected void dispatch(MessageContext context) {
+        dispatchEngine.dispatch(context);
+    }
+
+    /**
+     * Gets the parameters which are used to invoke the executor's method.
+     * Platform objects are taken from the context. <code>Supplier&lt;T&gt;</code> parameters resolve the object
+     * when they are called for the first time.
+     *
+     * @param command The command.
+     * @param splitMessage The spit message (index 0: command, index > 0: arguments)
+     * @param context The context of the message.
+     * @return The parameters which are used to invoke the executor's method or <code>null</code> if the arguments
+     *         are invalid.
+     */
+    protected Object[] getParameters(SimpleCommand command, String[] splitMessage, MessageContext context) {
+        return DispatchEngine.getParameters(command, splitMessage, context);
+    }
+
+    /**
+     * Invokes the method of the command and sends its reply.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param parameters The parameters for the method.
+     */
+    void invokeMethod(SimpleCommand command, MessageContext context, Object[] parameters) {
+        DispatchTrace trace = context.trace;
+        trace.mark(DispatchStage.QUEUE);
+        Object reply = null;
+        boolean failed = false;
+        try {
+            reply = invokeCommand(command, context, parameters);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            failed = true;
+            handleInvocationError(command.method, e);
+        }
+        trace.mark(DispatchStage.INVOKE);
+        if (reply != null) {
+            context.sendMessage(String.valueOf(reply));
+        }
+        trace.mark(DispatchStage.REPLY);
+        trace.finish(failed);
+        commandCompleted(command, context, failed);
+    }
+
+    /**
+     * Called if a message didn't invoke a command, e.g. because it's no command, a reply which was awaited or it
+     * was dropped by a full or closed {@link DispatchRing}. Messages of the bot itself and messages which the
+     * adapter ignored before it created their context (see {@link #isIgnored(long, long, boolean)}) are not
+     * reported. By default, this method does nothing.
+     *
+     * @param context The context of the message.
+     */
+    protected void messageIgnored(MessageContext context) { }
+
+    /**
+     * Called after a command was executed and its reply was sent. By default, this method does nothing.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param failed Whether the method threw an exception or not.
+     */
+    protected void commandCompleted(SimpleCommand command, MessageContext context, boolean failed) { }
+
+    /**
+     * Waits for the next message of the user in the channel.
+     * The message is passed to the returned future instead of being handled as a command or trigger. If there
+     * already is a pending wait for the user in the channel, it's cancelled.
+     *
+     * @param channelId The id of the channel.
+     * @param userId The id of the user.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return A future which is completed with a snapshot of the reply or with a
+     *         {@link TimeoutException} if the user didn't reply in time.
+     */
+    public CompletableFuture<Reply> awaitReply(long channelId, long userId, long timeout, TimeUnit unit) {
+        return awaitReply(channelId, userId, timeout, unit, context -> true);
+    }
+
+    /**
+     * Waits for the next message of the user in the channel which is accepted by the filter.
+     * Messages which are not accepted are handled as usual. The filter is called while the message is handled, so
+     * it can use the context of the message, but the future is completed with a snapshot of the message.
+     *
+     * @param channelId The id of the channel.
+     * @param userId The id of the user.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @param filter The filter for the reply, e.g. to only accept "yes" or "no".
+     * @return A future which is completed with a snapshot of the reply or with a
+     *         {@link TimeoutException} if the user didn't reply in time.
+     * @see #awaitReply(long, long, long, TimeUnit)
+     */
+    public CompletableFuture<Reply> awaitReply(long channelId, long userId, long timeout, TimeUnit unit,
+                                               Predicate<? super MessageContext> filter) {
+        if (unit == null || filter == null) {
+            throw new IllegalArgumentException("Unit and filter cannot be null!");
+        }
+        final PendingReply pending = new PendingReply(channelId, userId, filter);
+        PendingReply previous = addPendingReply(pending);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+        pending.timeout = getTimingWheel().schedule(
+                () -> pending.future.completeExceptionally(new TimeoutException()), timeout, unit);
+        pending.future.whenComplete((reply, throwable) -> {
+            removePendingReply(pending);
+            pending.timeout.cancel();
+        });
+        return pending.future;
+    }
+
+    /**
+     * Adds a pending wait for a reply and replaces the wait for the same user in the same channel.
+     * The waits are grouped by channel in copy-on-write arrays, so looking up a wait doesn't allocate.
+     *
+     * @param pending The pending wait.
+     * @return The replaced wait or <code>null</code> if there was none.
+     */
+    private PendingReply addPendingReply(PendingReply pending) {
+        long key = replyKey(pending.channelId);
+        synchronized (pendingReplies) {
+            PendingReply[] waits = pendingReplies.get(key);
+            if (waits == null) {
+                pendingReplies.put(key, new PendingReply[] {pending});
+                return null;
+            }
+            for (int i = 0; i < waits.length; i++) {
+                if (waits[i].userId == pending.userId) {
+                    PendingReply previous = waits[i];
+                    PendingReply[] updated = waits.clone();
+                    updated[i] = pending;
+                    pendingReplies.put(key, updated);
+                    return previous;
+                }
+            }
+            PendingReply[] updated = Arrays.copyOf(waits, waits.length + 1);
+            updated[waits.length] = pending;
+            pendingReplies.put(key, updated);
+            return null;
+        }
+    }
+
+    /**
+     * Removes a pending wait for a reply.
+     *
+     * @param pending The pending wait.
+     * @return Whether the wait was removed or not. It's not removed if it was already removed or replaced.
+     */
+    private boolean removePendingReply(PendingReply pending) {
+        long key = replyKey(pending.channelId);
+        synchronized (pendingReplies) {
+            PendingReply[] waits = pendingReplies.get(key);
+            if (waits == null) {
+                return false;
+            }
+            for (int i = 0; i < waits.length; i++) {
+                if (waits[i] == pending) {
+                    if (waits.length == 1) {
+                        pendingReplies.remove(key);
+                        return true;
+                    }
+                    PendingReply[] updated = new PendingReply[waits.length - 1];
+                    System.arraycopy(waits, 0, updated, 0, i);
+                    System.arraycopy(waits, i + 1, updated, i, updated.length - i);
+                    pendingReplies.put(key, updated);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Gets the key of the pending waits of a channel. The map can't store the id <code>0</code>.
+     *
+     * @param channelId The id of the channel.
+     * @return The key.
+     */
+    private static long replyKey(long channelId) {
+        return channelId != 0 ? channelId : Long.MIN_VALUE;
+    }
+
+    /**
+     * Gets the timing wheel for the timeouts of replies, a tick is 100 ms.
+     *
+     * @return The timing wheel.
+     */
+    private TimingWheel getTimingWheel() {
+        TimingWheel timingWheel = this.timingWheel;
+        if (timingWheel == null) {
+            synchronized (this) {
+                timingWheel = this.timingWheel;
+                if (timingWheel == null) {
+                    timingWheel = new TimingWheel(100, TimeUnit.MILLISECONDS, 512, "sdcf4j-timer");
+                    this.timingWheel = timingWheel;
+                }
+            }
+        }
+        return timingWheel;
+    }
+
+    /**
+     * Checks if there are any pending waits for replies.
+     * Used to skip the lookup in {@link #handleReply(MessageContext)}.
+     *
+     * @return Whether there are any pending waits for replies or not.
+     */
+    protected boolean hasPendingReplies() {
+        return !pendingReplies.isEmpty();
+    }
+
+    /**
+     * Passes the message to a pending wait for a reply of the author in the channel.
+     * This must be called before the message is handled as a command or trigger.
+     *
+     * @param context The context of the message.
+     * @return Whether the message was a reply or not. If it was, it must not be handled any further.
+     */
+    protected boolean handleReply(MessageContext context) {
+        if (pendingReplies.isEmpty()) {
+            return false;
+        }
+        PendingReply[] waits = pendingReplies.get(replyKey(context.getChannelId()));
+        if (waits == null) {
+            return false;
+        }
+        long authorId = context.getAuthorId();
+        for (PendingReply pending : waits) {
+            if (pending.userId == authorId) {
+                if (!pending.filter.test(context) || !removePendingReply(pending)) {
+                    return false;
+                }
+                // the context refers to the event, which must not outlive the handling of the message
+                return pending.future.complete(Reply.of(context));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if any triggers are registered.
+     * Used to skip the lookup in {@link #handleTriggers(String, MessageContext)}.
+     *
+     * @return Whether any triggers are registered or not.
+     */
+    protected boolean hasTriggers() {
+        return triggerMatcher != null;
+    }
+
+    /**
+     * Fires all triggers which match the content of the message.
+     * Async triggers are submitted like async commands, see {@link #executeAsync(SimpleCommand, MessageContext,
+     * Runnable)}. If the executor doesn't accept an async trigger, it doesn't fire and a
+     * {@link RejectedExecutionException} is passed to {@link #handleInvocationError(Method, Exception)}.
+     *
+     * @param content The content of the message.
+     * @param context The context of the message.
+     */
+    protected void handleTriggers(final String content, final MessageContext context) {
+        TriggerMatcher matcher = triggerMatcher;
+        if (matcher == null) {
+            return;
+        }
+        String[] matches = matcher.match(content);
+        if (matches == null || isDuplicate(context)) {
+            return;
+        }
+        SimpleTrigger[] triggers = this.triggers;
+        boolean isPrivate = context.isPrivate();
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] == null) {
+                continue;
+            }
+            final SimpleTrigger trigger = triggers[i];
+            Trigger annotation = trigger.getTriggerAnnotation();
+            if (isPrivate ? !annotation.privateMessages() : !annotation.channelMessages()) {
+                continue;
+            }
+            if (!hasPermission(trigger.permissionIndex, context)) {
+                continue;
+            }
+            SerialKey serialBy = annotation.serialBy();
+            if (annotation.async() || serialBy != SerialKey.NONE) {
+                // the context is not thread-safe, so everything is resolved before the trigger is handed over
+                final Object[] parameters = getTriggerParameters(trigger, context, matches[i], content, true);
+                RejectedExecutionException rejection = null;
+                try {
+                    if (!submit(serialBy, context, () -> invokeTrigger(trigger, context, parameters))) {
+                        rejection = new RejectedExecutionException("The queue of the trigger is full");
+                    }
+                } catch (RejectedExecutionException e) {
+                    rejection = e;
+                }
+                if (rejection != null) {
+                    // async triggers are best-effort, but a dropped trigger must not go unnoticed
+                    handleInvocationError(trigger.method, rejection);
+                }
+            } else {
+                invokeTrigger(trigger, context, getTriggerParameters(trigger, context, matches[i], content, false));
+            }
+        }
+    }
+
+    /**
+     * Gets the parameters for the method of the trigger.
+     *
+     * @param trigger The trigger.
+     * @param context The context of the message.
+     * @param match The matched text.
+     * @param content The content of the message.
+     * @param eager Whether the values of suppliers should be resolved now or not.
+     * @return The parameters for the method.
+     */
+    private Object[] getTriggerParameters(SimpleTrigger trigger, MessageContext context, String match,
+                                          String content, boolean eager) {
+        Object[] parameters = new Object[trigger.bindings.length];
+        boolean matchBound = false;
+        for (int i = 0; i < parameters.length; i++) {
+            switch (trigger.bindings[i]) {
+                case SimpleCommand.BINDING_COMMAND:
+                    parameters[i] = matchBound ? content : match;
+                    matchBound = true;
+                    break;
+                case SimpleCommand.BINDING_SUPPLIER:
+                    final Class<?> suppliedType = trigger.contextTypes[i];
+                    if (eager) {
+                        final Object supplied = context.get(suppliedType);
+                        parameters[i] = (Supplier<?>) () -> supplied;
+                    } else {
+                        parameters[i] = (Supplier<?>) () -> context.get(suppliedType);
+                    }
+                    break;
+                case SimpleCommand.BINDING_OPTIONAL:
+                    parameters[i] = Optional.ofNullable(context.get(trigger.contextTypes[i]));
+                    break;
+                default:
+                    parameters[i] = context.get(trigger.contextTypes[i]);
+                    break;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Invokes the method of the trigger and sends its reply.
+     *
+     * @param trigger The trigger.
+     * @param context The context of the message.
+     * @param parameters The parameters for the method.
+     */
+    private void invokeTrigger(SimpleTrigger trigger, MessageContext context, Object[] parameters) {
+        Object reply;
+        try {
+            reply = trigger.method.invoke(trigger.executor, parameters);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            handleInvocationError(trigger.method, e);
+            return;
+        }
+        if (reply != null) {
+            context.sendMessage(String.valueOf(reply));
+        }
+    }
+
+    /**
+     * Handles an exception which occurred while invoking the method of an executor.
+     * By default, the exception is passed to the uncaught exception handler of the current thread.
+     *
+     * @param method The method.
+     * @param e The exception.
+     */
+    protected void handleInvocationError(Method method, Exception e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Invokes the method of the command.
+     * Releases the slot which was reserved by {@link #acquireSlot(SimpleCommand)}.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param parameters The parameters for the method.
+     * @return The reply of the method.
+     * @throws IllegalAccessException If the method is not accessible.
+     * @throws InvocationTargetException If the method or an interceptor threw an exception.
+     */
+    protected Object invokeCommand(SimpleCommand command, MessageContext context, Object[] parameters)
+            throws IllegalAccessException, InvocationTargetException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object reply = command.invoker.invoke(context, parameters);
+            failed = false;
+            return reply;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw e;
+        } catch (Exception e) {
+            // thrown by the method or an interceptor
+            throw new InvocationTargetException(e);
+        } finally {
+            releaseSlot(command);
+            long duration = System.nanoTime() - start;
+            metrics.commandExecuted(context.getShard(), command, duration, failed);
+            AuditLog auditLog = this.auditLog;
+            if (auditLog != null) {
+                auditLog.record(context.getAuthorId(), context.getServerId(), context.getChannelId(),
+                        command.mainAlias, context.getContent(), duration, failed, null);
+            }
+            if (adaptiveAsyncThresholdNanos > 0 && !command.isAsync()) {
+                recordSyncExecution(command, context, duration);
+            }
+        }
+    }
+
+    /**
+     * Records the duration of a command which was executed on the listener thread and promotes the command to
+     * async if it was too slow too often.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param durationNanos How long the execution took in nanoseconds.
+     */
+    private void recordSyncExecution(SimpleCommand command, MessageContext context, long durationNanos) {
+        AtomicInteger slowExecutions = command.slowExecutions;
+        if (durationNanos <= adaptiveAsyncThresholdNanos) {
+            // fast executions make up for slow ones, so only commands which are slow most of the time are promoted
+            int slow = slowExecutions.get();
+            if (slow > 0) {
+                slowExecutions.compareAndSet(slow, slow - 1);
+            }
+            return;
+        }
+        if (slowExecutions.incrementAndGet() >= adaptiveAsyncStrikes && !command.promoted) {
+            command.promoted = true;
+            commandPromoted(command, context, durationNanos);
+        }
+    }
+
+    /**
+     * Called if a command was promoted to async by the adaptive async mode.
+     * By default, the promotion is reported to the {@link #getMetrics() metrics}.
+     *
+     * @param command The command.
+     * @param context The context of the message which triggered the promotion.
+     * @param durationNanos How long the last execution took in nanoseconds.
+     */
+    protected void commandPromoted(SimpleCommand command, MessageContext context, long durationNanos) {
+        metrics.commandPromoted(context.getShard(), command, durationNanos);
+    }
+
+    /**
+     * Executes the given task of an async command.
+     * Commands with a {@link Command#serialBy()} key are executed by the serial executor, all other commands by
+     * the fair scheduler (if set) or the executor service. If the task is not accepted, the slot of the command is
+     * released and the command is rejected as {@link RejectionReason#OVERLOADED overloaded}.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param task The task.
+     */
+    protected void executeAsync(SimpleCommand command, MessageContext context, Runnable task) {
+        boolean accepted;
+        try {
+            accepted = submit(command.annotation.serialBy(), context, task);
+        } catch (RejectedExecutionException e) {
+            accepted = false;
+        }
+        if (!accepted) {
+            releaseSlot(command);
+            reject(command, context, RejectionReason.OVERLOADED);
+        }
+    }
+
+    /**
+     * Submits the task of an async command or trigger to the executor which is responsible for it.
+     *
+     * @param serialBy The key by which the executions are serialized.
+     * @param context The context of the message.
+     * @param task The task.
+     * @return Whether the task was accepted or not.
+     * @throws RejectedExecutionException If the executor rejected the task.
+     */
+    private boolean submit(SerialKey serialBy, MessageContext context, Runnable task) {
+        switch (serialBy) {
+            case CHANNEL:
+                getSerialExecutor().execute(context.getChannelId(), task);
+                return true;
+            case SERVER:
+                getSerialExecutor().execute(
+                        context.getServerId() != 0 ? context.getServerId() : context.getAuthorId(), task);
+                return true;
+            case USER:
+                getSerialExecutor().execute(context.getAuthorId(), task);
+                return true;
+            default:
+                break;
+        }
+        FairScheduler fairScheduler = this.fairScheduler;
+        if (fairScheduler == null) {
+            getExecutorService().execute(task);
+            return true;
+        }
+        long key = context.getServerId() != 0 ? context.getServerId() : context.getAuthorId();
+        return fairScheduler.execute(key, task);
+    }
+
+    /**
+     * Tries to reserve one of the {@link Command#maxConcurrent()} slots of the command.
+     * If a slot was reserved, it's released by {@link #invokeCommand(SimpleCommand, MessageContext, Object[])}
+     * or if {@link #executeAsync(SimpleCommand, MessageContext, Runnable)} rejects the command. Otherwise it must
+     * be released with {@link #releaseSlot(SimpleCommand)}.
+     *
+     * @param command The command.
+     * @return Whether a slot was reserved or not. Always <code>true</code> for commands without a limit.
+     */
+    protected boolean acquireSlot(SimpleCommand command) {
+        int max = command.annotation.maxConcurrent();
+        if (max <= 0) {
+            return true;
+        }
+        AtomicInteger inFlight = command.inFlight;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot which was reserved by {@link #acquireSlot(SimpleCommand)}.
+     *
+     * @param command The command.
+     */
+    protected void releaseSlot(SimpleCommand command) {
+        if (command.annotation.maxConcurrent() > 0) {
+            command.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reports that a command was not executed.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param reason The reason why the command was not executed.
+     */
+    protected void reject(SimpleCommand command, MessageContext context, RejectionReason reason) {
+        context.trace.reject(reason);
+        metrics.commandRejected(context.getShard(), command, reason);
+        AuditLog auditLog = this.auditLog;
+        if (auditLog != null) {
+            auditLog.record(context.getAuthorId(), context.getServerId(), context.getChannelId(),
+                    command.mainAlias, context.getContent(), 0, false, reason);
+        }
+    }
+
+    /**
+     * Gets the message which is sent if the arguments of the command are invalid.
+     *
+     * @param command The command.
+     * @return The message or <code>null</code> if no message should be sent.
+     */
+    protected String getInvalidArgumentsMessage(SimpleCommand command) {
+        String message = Sdcf4jMessage.INVALID_ARGUMENTS.getMessage();
+        if (message == null) {
+            return null;
+        }
+        return String.format(message, command.getUsage());
+    }
+
+    /**
+     * Parses the id of a mention (e.g. <code>&lt;@&amp;123&gt;</code>) or a plain id.
+     *
+     * @param arg The argument.
+     * @param prefix The prefix of the mention, e.g. <code>&lt;@&amp;</code> for roles.
+     * @return The id.
+     * @throws IllegalArgumentException If the argument is neither the mention nor an id.
+     */
+    protected static long parseMentionId(String arg, String prefix) {
+        String id = arg;
+        if (arg.startsWith(prefix) && arg.endsWith(">")) {
+            id = arg.substring(prefix.length(), arg.length() - 1);
+        }
+        return Long.parseLong(id);
+    }
+
+    /**
+     * A pending wait for a reply.
+     */
+    private static final class PendingReply {
+
+        private final CompletableFuture<Reply> future = new CompletableFuture<>();
+        private final long channelId;
+        private final long userId;
+        private final Predicate<? super MessageContext> filter;
+        private volatile TimingWheel.Timeout timeout;
+
+        /**
+         * Creates a new pending wait.
+         *
+         * @param channelId The id of the channel.
+         * @param userId The id of the user.
+         * @param filter The filter for the reply.
+         */
+        private PendingReply(long channelId, long userId, Predicate<? super MessageContext> filter) {
+            this.channelId = channelId;
+            this.userId = userId;
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * Gets the type argument of a <code>Supplier&lt;T&gt;</code> or <code>Optional&lt;T&gt;</code> parameter.
+     *
+     * @param type The generic type of the parameter.
+     * @return The type argument or <code>Object.class</code> if it's unknown.
+     */
+    private static Class<?> getTypeArgument(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * A simple representation of a command.
+     */
+    public class SimpleCommand {
+
+        static final byte BINDING_CONTEXT = 0;
+        static final byte BINDING_COMMAND = 1;
+        static final byte BINDING_ARGUMENT = 2;
+        static final byte BINDING_ARGUMENTS = 3;
+        static final byte BINDING_OBJECTS = 4;
+        static final byte BINDING_CONVERTED = 5;
+        static final byte BINDING_SUPPLIER = 6;
+        static final byte BINDING_OPTIONAL = 7;
+
+        private final Command annotation;
+        private final Method method;
+        private final CommandExecutor executor;
+
+        // how the parameters are bound, resolved once and read by the dispatch engine for every message
+        final Class<?>[] parameterTypes;
+        final byte[] bindings;
+        final int[] argumentIndices;
+        final ArgumentConverter<?>[] converters;
+        final Class<?>[] contextTypes;
+        private final int permissionIndex;
+        // the first alias, cached because the annotation returns a copy of the array on every call
+        private final String mainAlias;
+        // the lower case main alias, so it's the same in every process. Cooldowns are stored for the pair of user
+        // and this key, so users never share a cooldown
+        private final String cooldownKey;
+        // the method composed with the interceptors, guarded by the lock of the interceptors
+        private volatile CommandInvoker invoker;
+        // used by the adaptive async mode
+        private final AtomicInteger slowExecutions = new AtomicInteger();
+        private volatile boolean promoted = false;
+        // the position in the command list, used for the bitsets of the disabled commands
+        private int index;
+        // every execution is traced, regardless of the sample rate
+        volatile boolean alwaysTraced = false;
+        // the number of running executions, only counted if the command has a limit
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Class constructor.
+         *
+         * @param annotation The annotation of the executor's method.
+         * @param method The method which listens to the commands.
+         * @param executor The executor of the method.
+         */
+        protected SimpleCommand(Command annotation, Method method, CommandExecutor executor) {
+            this.annotation = annotation;
+            this.method = method;
+            this.executor = executor;
+            method.setAccessible(true);
+            this.permissionIndex = internPermission(annotation.requiredPermissions());
+            this.mainAlias = annotation.aliases()[0];
+            this.cooldownKey = mainAlias.toLowerCase();
+            this.parameterTypes = method.getParameterTypes();
+            this.bindings = new byte[parameterTypes.length];
+            this.argumentIndices = new int[parameterTypes.length];
+            this.converters = new ArgumentConverter<?>[parameterTypes.length];
+            this.contextTypes = new Class<?>[parameterTypes.length];
+            Type[] genericTypes = method.getGenericParameterTypes();
+            boolean commandBound = false;
+            int argumentIndex = 0;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Class<?> type = parameterTypes[i];
+                if (type == String.class) {
+                    if (!commandBound) {
+                        // the first string parameter is the command, the other ones are the arguments
+                        commandBound = true;
+                        bindings[i] = BINDING_COMMAND;
+                    } else {
+                        bindings[i] = BINDING_ARGUMENT;
+                        argumentIndices[i] = argumentIndex++;
+                    }
+                } else if (type == String[].class) {
+                    bindings[i] = BINDING_ARGUMENTS;
+                } else if (type == Object[].class) {
+                    bindings[i] = BINDING_OBJECTS;
+                } else if ((converters[i] = getArgumentConverter(type)) != null) {
+                    bindings[i] = BINDING_CONVERTED;
+                    argumentIndices[i] = argumentIndex++;
+                } else if (type == Supplier.class || type == Optional.class) {
+                    bindings[i] = type == Supplier.class ? BINDING_SUPPLIER : BINDING_OPTIONAL;
+                    contextTypes[i] = getTypeArgument(genericTypes[i]);
+                } else {
+                    bindings[i] = BINDING_CONTEXT;
+                    contextTypes[i] = type;
+                }
+            }
+        }
+
+        /**
+         * The command annotation of the method.
+         *
+         * @return The command annotation of the method.
+         */
+        public Command getCommandAnnotation() {
+            return annotation;
+        }
+
+        /**
+         * Gets the method which listens to the commands.
+         *
+         * @return The method which listens to the commands.
+         */
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Gets the executor of the method.
+         *
+         * @return The executor of the method.
+         */
+        public CommandExecutor getExecutor() {
+            return executor;
+        }
+
+        /**
+         * Gets the parameter types of the method.
+         *
+         * @return The parameter types of the method.
+         */
+        public Class<?>[] getParameterTypes() {
+            return parameterTypes.clone();
+        }
+
+        /**
+         * Checks if the command is executed async.
+         *
+         * @return Whether the command is executed async or not.
+         */
+        public boolean isAsync() {
+            return promoted || annotation.async() || annotation.serialBy() != SerialKey.NONE;
+        }
+
+        /**
+         * Gets the index of the command. Commands are numbered in the order they were registered.
+         *
+         * @return The index of the command.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Checks if the command was promoted to async by the adaptive async mode.
+         *
+         * @return Whether the command was promoted to async or not.
+         * @see CommandHandler#setAdaptiveAsync(long, TimeUnit, int)
+         */
+        public boolean isPromoted() {
+            return promoted;
+        }
+
+        /**
+         * Gets the main alias of the command, which is the first alias of the annotation.
+         *
+         * @return The main alias of the command.
+         */
+        public String getMainAlias() {
+            return mainAlias;
+        }
+
+        /**
+         * Gets the usage of the command.
+         * If no usage was provided it will use the first alias.
+         *
+         * @return The usage of the command.
+         */
+        public String getUsage() {
+            return annotation.usage().isEmpty() ? mainAlias : annotation.usage();
+        }
+    }
+
+    /**
+     * A simple representation of a trigger.
+     */
+    public class SimpleTrigger {
+
+        private final Trigger annotation;
+        private final Method method;
+        private final CommandExecutor executor;
+        private final byte[] bindings;
+        private final Class<?>[] contextTypes;
+        private final int permissionIndex;
+
+        /**
+         * Class constructor.
+         *
+         * @param annotation The annotation of the executor's method.
+         * @param method The method which listens to the trigger.
+         * @param executor The executor of the method.
+         */
+        protected SimpleTrigger(Trigger annotation, Method method, CommandExecutor executor) {
+            this.annotation = annotation;
+            this.method = method;
+            this.executor = executor;
+            method.setAccessible(true);
+            this.permissionIndex = internPermission(annotation.requiredPermissions());
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            Type[] genericTypes = method.getGenericParameterTypes();
+            this.bindings = new byte[parameterTypes.length];
+            this.contextTypes = new Class<?>[parameterTypes.length];
+            int strings = 0;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Class<?> type = parameterTypes[i];
+                if (type == String.class) {
+                    if (++strings > 2) {
+                        throw new IllegalArgumentException("A trigger can have at most two String parameters!");
+                    }
+                    // the first string parameter is the match, the second one the content
+                    bindings[i] = SimpleCommand.BINDING_COMMAND;
+                } else if (type == Supplier.class || type == Optional.class) {
+                    bindings[i] = type == Supplier.class
+                            ? SimpleCommand.BINDING_SUPPLIER : SimpleCommand.BINDING_OPTIONAL;
+                    contextTypes[i] = getTypeArgument(genericTypes[i]);
+                } else {
+                    bindings[i] = SimpleCommand.BINDING_CONTEXT;
+                    contextTypes[i] = type;
+                }
+            }
+        }
+
+        /**
+         * The trigger annotation of the method.
+         *
+         * @return The trigger annotation of the method.
+         */
+        public Trigger getTriggerAnnotation() {
+            return annotation;
+        }
+
+        /**
+         * Gets the method which listens to the trigger.
+         *
+         * @return The method which listens to the trigger.
          */
         public Method getMethod() {
             return method;
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * An interceptor which wraps the invocation of every command, e.g. for auditing or tracing.
+ * The interceptors of a handler are composed into a single invoker per command when the command is registered,
+ * so they don't add any allocations per invocation.
+ */
+@FunctionalInterface
+public interface CommandInterceptor {
+
+    /**
+     * Intercepts the invocation of a command.
+     *
+     * @param command The command.
+     * @param context The context of the message.
+     * @param parameters The parameters for the method of the command.
+     * @param next The next interceptor or the command itself. Not calling it skips the command.
+     * @return The reply of the command or <code>null</code> if there's no reply.
+     * @throws Exception If the command threw an exception or the interceptor wants to abort the command.
+     */
+    Object intercept(CommandHandler.SimpleCommand command, MessageContext context, Object[] parameters,
+                     CommandInvoker next) throws Exception;
+
+    /**
+     * An interceptor which is called before a command is invoked.
+     */
+    @FunctionalInterface
+    interface Before {
+
+        /**
+         * Called before the command is invoked.
+         *
+         * @param command The command.
+         * @param context The context of the message.
+         * @param parameters The parameters for the method of the command.
+         * @return Whether the command should be invoked or not.
+         */
+        boolean before(CommandHandler.SimpleCommand command, MessageContext context, Object[] parameters);
+
+    }
+
+    /**
+     * An interceptor which is called after a command was invoked.
+     */
+    @FunctionalInterface
+    interface After {
+
+        /**
+         * Called after the command was invoked.
+         *
+         * @param command The command.
+         * @param context The context of the message.
+         * @param reply The reply of the command or <code>null</code> if there's no reply.
+         * @param error The exception which was thrown by the command or <code>null</code> if it succeeded.
+         */
+        void after(CommandHandler.SimpleCommand command, MessageContext context, Object reply, Throwable error);
+
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * Invokes a command, either the method of the command itself or the next interceptor of the chain.
+ */
+@FunctionalInterface
+public interface CommandInvoker {
+
+    /**
+     * Invokes the command.
+     *
+     * @param context The context of the message.
+     * @param parameters The parameters for the method of the command.
+     * @return The reply of the command or <code>null</code> if there's no reply.
+     * @throws Exception If the command or an interceptor threw an exception.
+     */
+    Object invoke(MessageContext context, Object[] parameters) throws Exception;
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * Receives metrics about the handled commands.
+ * All methods have an empty default implementation, so you only have to implement the ones you need.
+ * The methods are called from the thread which handles the message, so implementations must be thread-safe
+ * and fast.
+ */
+public interface CommandMetrics {
+
+    /**
+     * Called after a command was executed.
+     *
+     * @param shard The shard which received the message.
+     * @param command The command.
+     * @param durationNanos How long the execution took in nanoseconds.
+     * @param failed Whether the method threw an exception or not.
+     */
+    default void commandExecuted(int shard, CommandHandler.SimpleCommand command, long durationNanos,
+                                 boolean failed) { }
+
+    /**
+     * Called if a command was not executed.
+     *
+     * @param shard The shard which received the message.
+     * @param command The command.
+     * @param reason The reason why the command was not executed.
+     */
+    default void commandRejected(int shard, CommandHandler.SimpleCommand command, RejectionReason reason) { }
+
+    /**
+     * Called if a command was promoted to async, because it repeatedly blocked the listener thread.
+     *
+     * @param shard The shard which received the message.
+     * @param command The command.
+     * @param durationNanos How long the last execution took in nanoseconds.
+     */
+    default void commandPromoted(int shard, CommandHandler.SimpleCommand command, long durationNanos) { }
+
+}
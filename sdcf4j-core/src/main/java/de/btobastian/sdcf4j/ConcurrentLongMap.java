@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map from ids to objects with lock-free, allocation-free lookups.
+ * Works like the {@link ConcurrentLongSet}: an open-addressing table with linear probing, entries are added in
+ * place and removing an entry or growing the table builds a new table. Writes are synchronized on the map.
+ *
+ * @param <V> The type of the values.
+ */
+class ConcurrentLongMap<V> {
+
+    /**
+     * Marks an empty slot. The id <code>0</code> can't be used as a key.
+     */
+    private static final long EMPTY = 0;
+
+    private volatile Table<V> table = new Table<>(16);
+    private volatile int size = 0;
+
+    /**
+     * Gets the value of the id.
+     *
+     * @param id The id.
+     * @return The value or <code>null</code> if there's no value for the id.
+     */
+    V get(long id) {
+        if (size == 0 || id == EMPTY) {
+            return null;
+        }
+        Table<V> table = this.table;
+        int mask = table.keys.length() - 1;
+        for (int slot = slotOf(id, mask); ; slot = (slot + 1) & mask) {
+            long stored = table.keys.get(slot);
+            if (stored == id) {
+                return table.values.get(slot);
+            }
+            if (stored == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return Whether the map is empty or not.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sets the value of the id.
+     *
+     * @param id The id.
+     * @param value The value or <code>null</code> to remove the id.
+     */
+    synchronized void put(long id, V value) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Id cannot be 0!");
+        }
+        if (value == null) {
+            remove(id);
+            return;
+        }
+        Table<V> table = this.table;
+        // the load factor stays below 1/2, so probe sequences are short and there's always an empty slot
+        if ((size + 1) * 2 > table.keys.length()) {
+            table = rebuild(table, table.keys.length() * 2, EMPTY);
+            this.table = table;
+        }
+        int mask = table.keys.length() - 1;
+        for (int slot = slotOf(id, mask); ; slot = (slot + 1) & mask) {
+            long stored = table.keys.get(slot);
+            if (stored == id) {
+                table.values.set(slot, value);
+                return;
+            }
+            if (stored == EMPTY) {
+                // the value is set first, so a reader which finds the key also finds the value
+                table.values.set(slot, value);
+                table.keys.set(slot, id);
+                size++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the id.
+     *
+     * @param id The id.
+     */
+    synchronized void remove(long id) {
+        if (get(id) == null) {
+            return;
+        }
+        table = rebuild(table, table.keys.length(), id);
+        size--;
+    }
+
+    /**
+     * Removes all ids.
+     */
+    synchronized void clear() {
+        table = new Table<>(16);
+        size = 0;
+    }
+
+    /**
+     * Copies the entries of a table into a new table.
+     *
+     * @param table The table to copy.
+     * @param capacity The capacity of the new table. Must be a power of two.
+     * @param skip An id which is not copied.
+     * @param <V> The type of the values.
+     * @return The new table.
+     */
+    private static <V> Table<V> rebuild(Table<V> table, int capacity, long skip) {
+        Table<V> rebuilt = new Table<>(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < table.keys.length(); i++) {
+            long id = table.keys.get(i);
+            if (id == EMPTY || id == skip) {
+                continue;
+            }
+            int slot = slotOf(id, mask);
+            while (rebuilt.keys.get(slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            // the new table is not published yet
+            rebuilt.values.lazySet(slot, table.values.get(i));
+            rebuilt.keys.lazySet(slot, id);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Gets the first slot of an id.
+     *
+     * @param id The id.
+     * @param mask The mask of the table.
+     * @return The first slot to probe.
+     */
+    private static int slotOf(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * The keys and values of the map.
+     *
+     * @param <V> The type of the values.
+     */
+    private static final class Table<V> {
+
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<V> values;
+
+        /**
+         * Creates an empty table.
+         *
+         * @param capacity The capacity of the table.
+         */
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+        }
+    }
+
+}
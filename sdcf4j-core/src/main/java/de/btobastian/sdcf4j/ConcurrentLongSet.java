@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of ids with lock-free, allocation-free lookups.
+ * The ids are stored in an open-addressing table with linear probing. Adding an id writes into the current table,
+ * removing an id or growing the table builds a new table, so a lookup never misses an id which is in the set.
+ * Writes are synchronized, they are expected to be rare compared to lookups.
+ */
+class ConcurrentLongSet {
+
+    /**
+     * Marks an empty slot. The id <code>0</code> can't be stored.
+     */
+    private static final long EMPTY = 0;
+
+    private volatile AtomicLongArray table = new AtomicLongArray(16);
+    private volatile int size = 0;
+
+    /**
+     * Checks if the set contains the id.
+     *
+     * @param id The id.
+     * @return Whether the set contains the id or not.
+     */
+    boolean contains(long id) {
+        if (size == 0 || id == EMPTY) {
+            return false;
+        }
+        AtomicLongArray table = this.table;
+        int mask = table.length() - 1;
+        for (int slot = slotOf(id, mask); ; slot = (slot + 1) & mask) {
+            long stored = table.get(slot);
+            if (stored == id) {
+                return true;
+            }
+            if (stored == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return Whether the set is empty or not.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id The id.
+     * @return Whether the id was added or already in the set.
+     */
+    synchronized boolean add(long id) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Id cannot be 0!");
+        }
+        AtomicLongArray table = this.table;
+        // the load factor stays below 1/2, so probe sequences are short and there's always an empty slot
+        if ((size + 1) * 2 > table.length()) {
+            table = rebuild(table, table.length() * 2, EMPTY);
+            this.table = table;
+        }
+        int mask = table.length() - 1;
+        for (int slot = slotOf(id, mask); ; slot = (slot + 1) & mask) {
+            long stored = table.get(slot);
+            if (stored == id) {
+                return false;
+            }
+            if (stored == EMPTY) {
+                table.set(slot, id);
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id The id.
+     * @return Whether the id was removed or not in the set.
+     */
+    synchronized boolean remove(long id) {
+        if (!contains(id)) {
+            return false;
+        }
+        table = rebuild(table, table.length(), id);
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all ids.
+     */
+    synchronized void clear() {
+        table = new AtomicLongArray(16);
+        size = 0;
+    }
+
+    /**
+     * Gets all ids.
+     *
+     * @return The ids in no particular order.
+     */
+    synchronized long[] toArray() {
+        long[] ids = new long[size];
+        int index = 0;
+        for (int i = 0; i < table.length(); i++) {
+            long stored = table.get(i);
+            if (stored != EMPTY) {
+                ids[index++] = stored;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Copies the ids of a table into a new table.
+     *
+     * @param table The table to copy.
+     * @param capacity The capacity of the new table. Must be a power of two.
+     * @param skip An id which is not copied.
+     * @return The new table.
+     */
+    private static AtomicLongArray rebuild(AtomicLongArray table, int capacity, long skip) {
+        AtomicLongArray rebuilt = new AtomicLongArray(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < table.length(); i++) {
+            long id = table.get(i);
+            if (id == EMPTY || id == skip) {
+                continue;
+            }
+            int slot = slotOf(id, mask);
+            while (rebuilt.get(slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            // the new table is not published yet
+            rebuilt.lazySet(slot, id);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Gets the first slot of an id.
+     *
+     * @param id The id.
+     * @param mask The mask of the table.
+     * @return The first slot to probe.
+     */
+    private static int slotOf(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
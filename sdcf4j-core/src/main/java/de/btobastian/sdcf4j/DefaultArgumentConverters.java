@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The argument converters which are registered by default.
+ */
+final class DefaultArgumentConverters {
+
+    private DefaultArgumentConverters() { }
+
+    /**
+     * Registers all default converters.
+     *
+     * @param converters The map to register the converters in.
+     */
+    static void registerAll(Map<Class<?>, ArgumentConverter<?>> converters) {
+        ArgumentConverter<Integer> intConverter = Integer::valueOf;
+        ArgumentConverter<Long> longConverter = Long::valueOf;
+        ArgumentConverter<Double> doubleConverter = Double::valueOf;
+        ArgumentConverter<Boolean> booleanConverter = DefaultArgumentConverters::parseBoolean;
+        converters.put(int.class, intConverter);
+        converters.put(Integer.class, intConverter);
+        converters.put(long.class, longConverter);
+        converters.put(Long.class, longConverter);
+        converters.put(double.class, doubleConverter);
+        converters.put(Double.class, doubleConverter);
+        converters.put(boolean.class, booleanConverter);
+        converters.put(Boolean.class, booleanConverter);
+        converters.put(Duration.class, (ArgumentConverter<Duration>) DefaultArgumentConverters::parseDuration);
+    }
+
+    /**
+     * Creates a case-insensitive converter for the given enum.
+     *
+     * @param type The class of the enum.
+     * @param <E> The type of the enum.
+     * @return A converter for the enum.
+     */
+    static <E extends Enum<E>> ArgumentConverter<E> forEnum(Class<E> type) {
+        final Map<String, E> constants = new HashMap<>();
+        for (E constant : type.getEnumConstants()) {
+            constants.put(constant.name().toLowerCase(Locale.ROOT), constant);
+        }
+        return argument -> {
+            E constant = constants.get(argument.toLowerCase(Locale.ROOT));
+            if (constant == null) {
+                throw new IllegalArgumentException("Unknown constant " + argument);
+            }
+            return constant;
+        };
+    }
+
+    /**
+     * Parses a boolean. Accepts <code>true/false</code>, <code>yes/no</code>, <code>on/off</code> and
+     * <code>1/0</code>.
+     *
+     * @param argument The argument to parse.
+     * @return The parsed boolean.
+     */
+    private static Boolean parseBoolean(String argument) {
+        switch (argument.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "yes":
+            case "on":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "no":
+            case "off":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                throw new IllegalArgumentException("Not a boolean: " + argument);
+        }
+    }
+
+    /**
+     * Parses a duration. Accepts the ISO-8601 format (e.g. <code>PT1H30M</code>) and a compact format like
+     * <code>1h30m</code> with the units <code>ms</code>, <code>s</code>, <code>m</code>, <code>h</code>,
+     * <code>d</code> and <code>w</code>.
+     *
+     * @param argument The argument to parse.
+     * @return The parsed duration.
+     */
+    private static Duration parseDuration(String argument) {
+        char first = argument.isEmpty() ? 0 : argument.charAt(0);
+        if (first == 'P' || first == 'p' || first == '-') {
+            try {
+                return Duration.parse(argument);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        try {
+            return Duration.ofMillis(parseCompactDuration(argument));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Duration too long: " + argument, e);
+        }
+    }
+
+    /**
+     * Parses a duration in the compact format, e.g. <code>1h30m</code>.
+     *
+     * @param argument The argument to parse.
+     * @return The parsed duration in milliseconds.
+     */
+    private static long parseCompactDuration(String argument) {
+        long millis = 0;
+        int length = argument.length();
+        int i = 0;
+        if (length == 0) {
+            throw new IllegalArgumentException("Empty duration");
+        }
+        while (i < length) {
+            long value = 0;
+            int start = i;
+            char c;
+            while (i < length && (c = argument.charAt(i)) >= '0' && c <= '9') {
+                value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                i++;
+            }
+            if (i == start || i == length) {
+                throw new IllegalArgumentException("Invalid duration: " + argument);
+            }
+            long unit;
+            switch (Character.toLowerCase(argument.charAt(i++))) {
+                case 'w':
+                    unit = 7 * 24 * 60 * 60 * 1000L;
+                    break;
+                case 'd':
+                    unit = 24 * 60 * 60 * 1000L;
+                    break;
+                case 'h':
+                    unit = 60 * 60 * 1000L;
+                    break;
+                case 'm':
+                    if (i < length && Character.toLowerCase(argument.charAt(i)) == 's') {
+                        i++;
+                        unit = 1;
+                    } else {
+                        unit = 60 * 1000L;
+                    }
+                    break;
+                case 's':
+                    unit = 1000L;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid duration: " + argument);
+            }
+            millis = Math.addExact(millis, Math.multiplyExact(value, unit));
+        }
+        return millis;
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+
+/**
+ * The dispatch engine which is shared by all platforms.
+ * It takes a message from {@link CommandHandler#dispatch(MessageContext)} through the checks of the handler to the
+ * invocation of the command: ignored authors, awaited replies, triggers, the lookup of the command, permissions,
+ * arguments, concurrency limits and cooldowns. The configuration and the hooks are the ones of the handler.
+ */
+final class DispatchEngine {
+
+    private final CommandHandler handler;
+
+    /**
+     * Creates a new engine.
+     *
+     * @param handler The handler whose messages are dispatched.
+     */
+    DispatchEngine(CommandHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Handles a received message.
+     * If a {@link CommandHandler#setDispatchRing(DispatchRing) dispatch ring} is set, the message is handled by a
+     * consumer of the ring.
+     *
+     * @param context The context of the message.
+     */
+    void dispatch(MessageContext context) {
+        if (context.getAuthorId() == context.getSelfId()) {
+            return;
+        }
+        if (isIgnored(context)) {
+            handler.messageIgnored(context);
+            return;
+        }
+        DispatchRing dispatchRing = handler.dispatchRing;
+        if (dispatchRing != null) {
+            if (!dispatchRing.publish(context)) {
+                handler.messageIgnored(context);
+            }
+            return;
+        }
+        handleMessage(context);
+    }
+
+    /**
+     * Checks if the message is ignored because of its author, channel or server.
+     * This runs before anything else, so ignored messages only cost a few lookups. The context was already
+     * created, though: the adapters of this library check the event with
+     * {@link CommandHandler#isIgnored(long, long, boolean)} before, so their ignored messages don't allocate.
+     *
+     * @param context The context of the message.
+     * @return Whether the message is ignored or not.
+     */
+    private boolean isIgnored(MessageContext context) {
+        if (handler.ignoreBots && context.isFromBot()) {
+            return true;
+        }
+        if (!handler.ignoredUsers.isEmpty() && handler.ignoredUsers.contains(context.getAuthorId())) {
+            return true;
+        }
+        if (!handler.ignoredChannels.isEmpty() && handler.ignoredChannels.contains(context.getChannelId())) {
+            return true;
+        }
+        // the server may have to be resolved, so it's only looked up if necessary
+        return !handler.ignoredServers.isEmpty() && handler.ignoredServers.contains(context.getServerId());
+    }
+
+    /**
+     * Handles a message which is not from the bot itself and not ignored.
+     * This is called by {@link #dispatch(MessageContext)} or by the consumers of the {@link DispatchRing}.
+     *
+     * @param context The context of the message.
+     */
+    void handleMessage(MessageContext context) {
+        if (handler.hasPendingReplies() && handler.handleReply(context)) {
+            handler.messageIgnored(context);
+            return;
+        }
+        String content = context.getContent();
+        if (handler.hasTriggers()) {
+            handler.handleTriggers(content, context);
+        }
+        TraceSink traceSink = handler.traceSink;
+        // the trace is only created once the command is known, so a message which is not traced doesn't allocate
+        boolean sampled = traceSink != null && isSampled();
+        boolean timed = sampled || traceSink != null && handler.alwaysTracedCommands;
+        long splitStart = timed ? System.nanoTime() : 0;
+        String[] splitMessage = splitMessage(content);
+        long splitEnd = timed ? System.nanoTime() : 0;
+        String commandString = splitMessage[0];
+        CommandHandler.SimpleCommand command = handler.commands.get(commandString.toLowerCase());
+        if (command == null) {
+            // maybe it requires a mention
+            if (splitMessage.length > 1) {
+                command = handler.commands.get(splitMessage[1].toLowerCase());
+                if (command == null || !command.getCommandAnnotation().requiresMention()) {
+                    handler.messageIgnored(context);
+                    return;
+                }
+                // remove the first which is the mention
+                splitMessage = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
+            } else {
+                handler.messageIgnored(context);
+                return;
+            }
+        }
+        DispatchTrace trace = timed && (sampled || command.alwaysTraced)
+                ? new DispatchTrace(traceSink, sampled, splitStart, splitEnd, command, context)
+                : DispatchTrace.NONE;
+        Command commandAnnotation = command.getCommandAnnotation();
+        if (commandAnnotation.requiresMention()) {
+            Matcher matcher = CommandHandler.USER_MENTION.matcher(commandString);
+            if (!matcher.find() || !matcher.group("id").equals(Long.toString(context.getSelfId()))) {
+                handler.messageIgnored(context);
+                return;
+            }
+        }
+        if (context.isPrivate() ? !commandAnnotation.privateMessages() : !commandAnnotation.channelMessages()) {
+            handler.messageIgnored(context);
+            return;
+        }
+        if (handler.isDuplicate(context)) {
+            handler.messageIgnored(context);
+            return;
+        }
+        if (!handler.disabledCommands.isEmpty() && !context.isPrivate()) {
+            long[] disabled = handler.disabledCommands.get(context.getServerId());
+            if (disabled != null && CommandHandler.isDisabled(disabled, command.getIndex())) {
+                handler.reject(command, context, RejectionReason.DISABLED);
+                if (Sdcf4jMessage.COMMAND_DISABLED.getMessage() != null) {
+                    context.sendMessage(Sdcf4jMessage.COMMAND_DISABLED.getMessage());
+                }
+                return;
+            }
+        }
+        trace.mark(DispatchStage.LOOKUP);
+        boolean permitted = handler.hasPermission(command, context);
+        trace.mark(DispatchStage.PERMISSIONS);
+        if (!permitted) {
+            handler.reject(command, context, RejectionReason.MISSING_PERMISSIONS);
+            if (Sdcf4jMessage.MISSING_PERMISSIONS.getMessage() != null) {
+                context.sendMessage(Sdcf4jMessage.MISSING_PERMISSIONS.getMessage());
+            }
+            return;
+        }
+        final Object[] parameters = handler.getParameters(command, splitMessage, context);
+        trace.mark(DispatchStage.PARAMETERS);
+        if (parameters == null) {
+            handler.reject(command, context, RejectionReason.INVALID_ARGUMENTS);
+            String invalidArgumentsMessage = handler.getInvalidArgumentsMessage(command);
+            if (invalidArgumentsMessage != null) {
+                context.sendMessage(invalidArgumentsMessage);
+            }
+            return;
+        }
+        if (!handler.acquireSlot(command)) {
+            handler.reject(command, context, RejectionReason.BUSY);
+            if (Sdcf4jMessage.COMMAND_BUSY.getMessage() != null) {
+                context.sendMessage(Sdcf4jMessage.COMMAND_BUSY.getMessage());
+            }
+            return;
+        }
+        long remainingCooldown = handler.startCooldown(command, context);
+        if (remainingCooldown > 0) {
+            handler.releaseSlot(command);
+            handler.reject(command, context, RejectionReason.COOLDOWN);
+            String cooldownMessage = handler.getCooldownMessage(remainingCooldown);
+            if (cooldownMessage != null) {
+                context.sendMessage(cooldownMessage);
+            }
+            return;
+        }
+        trace.mark(DispatchStage.ADMISSION);
+        if (command.isAsync()) {
+            final CommandHandler.SimpleCommand commandFinal = command;
+            handler.executeAsync(commandFinal, context, () -> handler.invokeMethod(commandFinal, context, parameters));
+        } else {
+            handler.invokeMethod(command, context, parameters);
+        }
+    }
+
+    /**
+     * Checks if a message is picked by the sample rate.
+     *
+     * @return Whether the message is sampled or not.
+     */
+    private boolean isSampled() {
+        int rate = handler.traceSampleRate;
+        return rate > 0 && ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    /**
+     * Splits a message into the command and its arguments.
+     * Arguments are separated by whitespace, but line breaks are kept in the arguments. A message which starts
+     * with whitespace has an empty command. The message is scanned twice, so the result is the only allocated
+     * array.
+     *
+     * @param content The content of the message.
+     * @return The command (index 0) and its arguments. Never empty.
+     */
+    static String[] splitMessage(String content) {
+        int length = content.length();
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < length; i++) {
+            if (isArgumentSeparator(content.charAt(i))) {
+                inToken = false;
+            } else if (!inToken) {
+                inToken = true;
+                count++;
+            }
+        }
+        boolean leadingSeparator = length > 0 && isArgumentSeparator(content.charAt(0));
+        String[] split = new String[leadingSeparator || count == 0 ? count + 1 : count];
+        int index = 0;
+        if (leadingSeparator || count == 0) {
+            split[index++] = "";
+        }
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || isArgumentSeparator(content.charAt(i))) {
+                if (start >= 0) {
+                    split[index++] = content.substring(start, i);
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return split;
+    }
+
+    /**
+     * Checks if the character separates arguments. This is every whitespace character except line breaks.
+     *
+     * @param c The character.
+     * @return Whether the character separates arguments or not.
+     */
+    private static boolean isArgumentSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Gets the parameters which are used to invoke the executor's method.
+     * This is the default implementation of {@link CommandHandler#getParameters(CommandHandler.SimpleCommand,
+     * String[], MessageContext)}.
+     * Platform objects are taken from the context. <code>Supplier&lt;T&gt;</code> parameters resolve the object
+     * when they are called for the first time.
+     *
+     * @param command The command.
+     * @param splitMessage The spit message (index 0: command, index > 0: arguments)
+     * @param context The context of the message.
+     * @return The parameters which are used to invoke the executor's method or <code>null</code> if the arguments
+     *         are invalid.
+     */
+    static Object[] getParameters(CommandHandler.SimpleCommand command, String[] splitMessage,
+                                  final MessageContext context) {
+        final Object[] parameters = new Object[command.parameterTypes.length];
+        String[] args = null;
+        for (int i = 0; i < parameters.length; i++) {
+            int index = command.argumentIndices[i];
+            switch (command.bindings[i]) {
+                case CommandHandler.SimpleCommand.BINDING_COMMAND:
+                    parameters[i] = splitMessage[0];
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_ARGUMENT:
+                    parameters[i] = index + 1 < splitMessage.length ? splitMessage[index + 1] : null;
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_ARGUMENTS:
+                    if (args == null) {
+                        args = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
+                    }
+                    parameters[i] = args;
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_OBJECTS:
+                    if (args == null) {
+                        args = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
+                    }
+                    parameters[i] = context.getObjectsFromString(args);
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_CONVERTED:
+                    if (index + 1 >= splitMessage.length) {
+                        if (command.parameterTypes[i].isPrimitive()) {
+                            return null;
+                        }
+                        break;
+                    }
+                    try {
+                        parameters[i] = command.converters[i].convert(splitMessage[index + 1]);
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_SUPPLIER:
+                    final Class<?> suppliedType = command.contextTypes[i];
+                    parameters[i] = (Supplier<?>) () -> context.get(suppliedType);
+                    break;
+                case CommandHandler.SimpleCommand.BINDING_OPTIONAL:
+                    parameters[i] = Optional.ofNullable(context.get(command.contextTypes[i]));
+                    break;
+                default:
+                    parameters[i] = context.get(command.contextTypes[i]);
+                    break;
+            }
+        }
+        return parameters;
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Decouples the handling of messages from the listener threads of the platform.
+ * If a ring is set with {@link CommandHandler#setDispatchRing(DispatchRing)}, the listener only publishes the
+ * context of a message into a preallocated ring buffer. Consumer threads drain the buffer in batches and handle
+ * the messages. Every channel is handled by the same consumer, so the messages of a channel keep their order.
+ * If a buffer is full, the message is dropped and counted, unless a {@link #setMaxWait(long, TimeUnit) maximum
+ * wait} is set. The listener thread never waits longer than that.
+ * A slot holds a reference to the context of its message until a consumer takes it, so a full ring keeps
+ * <code>bufferSize * consumers</code> contexts and the events of the library they refer to alive.
+ */
+public class DispatchRing implements Closeable {
+
+    private final Partition[] partitions;
+    private final int batchSize;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long maxWaitNanos = 0;
+    private volatile boolean running = true;
+    private Consumer<MessageContext> handler;
+
+    /**
+     * Creates a new ring with batches of 64 messages.
+     *
+     * @param bufferSize The number of messages which can be buffered per consumer. Must be a power of two.
+     * @param consumers The number of consumer threads.
+     */
+    public DispatchRing(int bufferSize, int consumers) {
+        this(bufferSize, consumers, 64);
+    }
+
+    /**
+     * Creates a new ring.
+     *
+     * @param bufferSize The number of messages which can be buffered per consumer. Must be a power of two.
+     * @param consumers The number of consumer threads.
+     * @param batchSize The maximum number of messages a consumer takes from its buffer at once.
+     */
+    public DispatchRing(int bufferSize, int consumers, int batchSize) {
+        if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of two!");
+        }
+        if (consumers < 1) {
+            throw new IllegalArgumentException("Consumers must be at least 1!");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1!");
+        }
+        this.batchSize = Math.min(batchSize, bufferSize);
+        this.partitions = new Partition[consumers];
+        for (int i = 0; i < consumers; i++) {
+            partitions[i] = new Partition(bufferSize);
+        }
+    }
+
+    /**
+     * Sets how long the listener waits for space if the buffer is full, before the message is dropped.
+     * By default, messages are dropped right away, so a slow consumer never blocks the listener thread of the
+     * platform. Dropped messages are reported to {@link CommandHandler#messageIgnored(MessageContext)}.
+     *
+     * @param timeout The maximum time to wait or <code>0</code> to drop messages right away.
+     * @param unit The unit of the timeout.
+     */
+    public void setMaxWait(long timeout, TimeUnit unit) {
+        if (unit == null) {
+            throw new IllegalArgumentException("Unit cannot be null!");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative!");
+        }
+        this.maxWaitNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Gets how long the listener waits for space if the buffer is full.
+     *
+     * @return The maximum time to wait in nanoseconds or <code>0</code> if messages are dropped right away.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Gets the number of messages which were dropped, because the buffer was full.
+     *
+     * @return The number of dropped messages.
+     */
+    public long getDroppedMessages() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of messages which are waiting to be handled.
+     *
+     * @return The number of waiting messages.
+     */
+    public long getBacklog() {
+        long backlog = 0;
+        for (Partition partition : partitions) {
+            backlog += partition.head.get() - partition.tail.get();
+        }
+        return backlog;
+    }
+
+    /**
+     * Starts the consumer threads.
+     *
+     * @param handler Handles a message on a consumer thread.
+     */
+    synchronized void start(Consumer<MessageContext> handler) {
+        if (this.handler != null) {
+            throw new IllegalStateException("The dispatch ring is already used by a handler!");
+        }
+        if (!running) {
+            throw new IllegalStateException("The dispatch ring is closed!");
+        }
+        this.handler = handler;
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = partitions[i];
+            Thread consumer = new Thread(() -> consume(partition), "sdcf4j-dispatch-" + i);
+            consumer.setDaemon(true);
+            partition.consumer = consumer;
+            consumer.start();
+        }
+    }
+
+    /**
+     * Publishes a message to the consumer of its channel.
+     * If the buffer is full, this waits at most for the {@link #setMaxWait(long, TimeUnit) maximum wait}.
+     *
+     * @param context The context of the message.
+     * @return Whether the message was published or dropped.
+     */
+    boolean publish(MessageContext context) {
+        Partition partition = partitions[(int) Math.floorMod(context.getChannelId(), (long) partitions.length)];
+        Slot[] slots = partition.slots;
+        long sequence;
+        long deadline = 0;
+        boolean waiting = false;
+        while (true) {
+            sequence = partition.head.get();
+            if (!running) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (sequence - partition.tail.get() >= slots.length) {
+                long now = System.nanoTime();
+                if (!waiting) {
+                    waiting = true;
+                    deadline = now + maxWaitNanos;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.parkNanos(Math.min(remaining, TimeUnit.MICROSECONDS.toNanos(50)));
+                continue;
+            }
+            if (partition.head.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        Slot slot = slots[(int) (sequence & partition.mask)];
+        slot.context = context;
+        // publishes the slot to the consumer
+        slot.sequence = sequence + 1;
+        if (partition.sleeping) {
+            LockSupport.unpark(partition.consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Handles the published messages of the partition in batches until the ring is closed.
+     *
+     * @param partition The partition of the consumer.
+     */
+    private void consume(Partition partition) {
+        Slot[] slots = partition.slots;
+        // reused for every batch, so draining doesn't allocate
+        MessageContext[] batch = new MessageContext[batchSize];
+        long next = partition.tail.get();
+        while (running || next != partition.head.get()) {
+            int count = 0;
+            while (count < batch.length) {
+                Slot slot = slots[(int) ((next + count) & partition.mask)];
+                if (slot.sequence != next + count + 1) {
+                    break;
+                }
+                batch[count++] = slot.context;
+                slot.context = null;
+            }
+            if (count == 0) {
+                partition.sleeping = true;
+                // a producer either sees the flag or the consumer sees the published slot, so it's woken up by the
+                // producer or by close()
+                if (slots[(int) (next & partition.mask)].sequence != next + 1 && running) {
+                    LockSupport.park(this);
+                }
+                partition.sleeping = false;
+                continue;
+            }
+            // the contexts are copied, so the slots can be reused while the batch is handled
+            next += count;
+            partition.tail.lazySet(next);
+            for (int i = 0; i < count; i++) {
+                try {
+                    handler.accept(batch[i]);
+                } catch (Throwable t) {
+                    // errors are caught, too: without its consumer, the producers of the partition would block forever
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+                batch[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the consumers after all published messages were handled.
+     * Messages which are published afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Partition partition : partitions) {
+            Thread consumer = partition.consumer;
+            if (consumer == null) {
+                continue;
+            }
+            LockSupport.unpark(consumer);
+            if (consumer == Thread.currentThread()) {
+                continue;
+            }
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The buffer of one consumer.
+     */
+    private static final class Partition {
+
+        private final Slot[] slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private volatile boolean sleeping = false;
+        private volatile Thread consumer;
+
+        /**
+         * Creates a new partition.
+         *
+         * @param bufferSize The size of the buffer.
+         */
+        private Partition(int bufferSize) {
+            this.slots = new Slot[bufferSize];
+            for (int i = 0; i < bufferSize; i++) {
+                slots[i] = new Slot();
+            }
+            this.mask = bufferSize - 1;
+        }
+    }
+
+    /**
+     * A slot of a buffer.
+     */
+    private static final class Slot {
+
+        // the sequence of the message plus one, written last to publish the message
+        private volatile long sequence;
+
+        private MessageContext context;
+    }
+
+}
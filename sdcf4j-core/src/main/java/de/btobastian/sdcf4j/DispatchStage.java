@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * The stages of the dispatch of a command, in the order they are passed.
+ */
+public enum DispatchStage {
+
+    /**
+     * Splitting the message into the command and its arguments.
+     */
+    SPLIT,
+
+    /**
+     * Looking up the command and checking the mention, the channel type and duplicates.
+     */
+    LOOKUP,
+
+    /**
+     * Checking the permissions of the author.
+     */
+    PERMISSIONS,
+
+    /**
+     * Converting the arguments and binding the parameters of the method.
+     */
+    PARAMETERS,
+
+    /**
+     * Reserving a slot and starting the cooldown.
+     */
+    ADMISSION,
+
+    /**
+     * Waiting for the executor. Almost zero for commands which are not async.
+     */
+    QUEUE,
+
+    /**
+     * Invoking the interceptors and the method.
+     */
+    INVOKE,
+
+    /**
+     * Sending the reply.
+     */
+    REPLY
+
+}
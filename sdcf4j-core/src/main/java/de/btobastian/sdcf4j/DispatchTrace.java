@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stage timings of a sampled command.
+ * A trace is created by the {@link CommandHandler} when a message is sampled and passed to the {@link TraceSink}
+ * after the command was executed or rejected. Stages which were not reached have a duration of <code>0</code>.
+ */
+public class DispatchTrace {
+
+    /**
+     * The trace of messages which are not traced. It records nothing, so the dispatch engine doesn't need to
+     * check whether a message is traced at every stage. It's shared, so messages which are not traced don't
+     * allocate a trace.
+     */
+    static final DispatchTrace NONE = new DispatchTrace() {
+        @Override
+        void mark(DispatchStage stage) { }
+
+        @Override
+        void finish(boolean failed) { }
+
+        @Override
+        void reject(RejectionReason reason) { }
+    };
+
+    private static final DispatchStage[] STAGES = DispatchStage.values();
+
+    private final TraceSink sink;
+    private final boolean sampled;
+    private final long timestamp;
+    private final long[] durations;
+    private long last;
+    private CommandHandler.SimpleCommand command;
+    private long messageId;
+    private long authorId;
+    private long channelId;
+    private long serverId;
+    private int shard;
+    private boolean failed;
+    private RejectionReason rejectionReason;
+
+    /**
+     * Creates the trace of messages which are not sampled.
+     */
+    private DispatchTrace() {
+        this.sink = null;
+        this.sampled = false;
+        this.timestamp = 0;
+        this.durations = null;
+    }
+
+    /**
+     * Creates a new trace once the command of the message is known.
+     * The split stage already ended, the lookup stage is started. The trace is bound to the context, so it can be
+     * finished by the thread which executes the command.
+     *
+     * @param sink The sink which receives the trace.
+     * @param sampled Whether the message was sampled or the command is always traced.
+     * @param splitStart The value of {@link System#nanoTime()} when the split stage started.
+     * @param splitEnd The value of {@link System#nanoTime()} when the split stage ended.
+     * @param command The command of the message.
+     * @param context The context of the message.
+     */
+    DispatchTrace(TraceSink sink, boolean sampled, long splitStart, long splitEnd,
+                  CommandHandler.SimpleCommand command, MessageContext context) {
+        this.sink = sink;
+        this.sampled = sampled;
+        this.timestamp = System.currentTimeMillis();
+        this.durations = new long[STAGES.length];
+        this.durations[DispatchStage.SPLIT.ordinal()] = splitEnd - splitStart;
+        this.last = splitEnd;
+        this.command = command;
+        messageId = context.getMessageId();
+        authorId = context.getAuthorId();
+        channelId = context.getChannelId();
+        serverId = context.getServerId();
+        shard = context.getShard();
+        context.trace = this;
+    }
+
+    /**
+     * Ends the given stage and starts the next one.
+     *
+     * @param stage The stage which ended.
+     */
+    void mark(DispatchStage stage) {
+        long now = System.nanoTime();
+        durations[stage.ordinal()] = now - last;
+        last = now;
+    }
+
+    /**
+     * Finishes the trace of an executed command and passes it to the sink.
+     *
+     * @param failed Whether the method threw an exception or not.
+     */
+    void finish(boolean failed) {
+        this.failed = failed;
+        sink.trace(this);
+    }
+
+    /**
+     * Finishes the trace of a rejected command and passes it to the sink.
+     *
+     * @param reason The reason why the command was not executed.
+     */
+    void reject(RejectionReason reason) {
+        this.rejectionReason = reason;
+        sink.trace(this);
+    }
+
+    /**
+     * Gets the command of the message.
+     *
+     * @return The command.
+     */
+    public CommandHandler.SimpleCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * Gets the time the trace was started.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the id of the message.
+     *
+     * @return The id of the message.
+     */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Gets the id of the author of the message.
+     *
+     * @return The id of the author.
+     */
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * Gets the id of the channel of the message.
+     *
+     * @return The id of the channel.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the id of the server of the message.
+     *
+     * @return The id of the server or <code>0</code> for private messages.
+     */
+    public long getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Gets the shard which received the message.
+     *
+     * @return The shard.
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Checks if the message was picked by the sample rate. Otherwise it's traced because its command is always
+     * traced.
+     *
+     * @return Whether the message was sampled or not.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Checks if the method of the command threw an exception.
+     *
+     * @return Whether the method threw an exception or not.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the reason why the command was not executed.
+     *
+     * @return The reason or <code>null</code> if the command was executed.
+     */
+    public RejectionReason getRejectionReason() {
+        return rejectionReason;
+    }
+
+    /**
+     * Gets the duration of the given stage.
+     *
+     * @param stage The stage.
+     * @param unit The unit of the duration.
+     * @return The duration of the stage or <code>0</code> if the stage was not reached.
+     */
+    public long getDuration(DispatchStage stage, TimeUnit unit) {
+        return unit.convert(durations[stage.ordinal()], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the duration of all stages.
+     *
+     * @param unit The unit of the duration.
+     * @return The total duration.
+     */
+    public long getTotalDuration(TimeUnit unit) {
+        long total = 0;
+        for (long duration : durations) {
+            total += duration;
+        }
+        return unit.convert(total, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(command == null ? "?" : command.getMainAlias()).append(' ')
+                .append(String.format("%.1f", getTotalDuration(TimeUnit.NANOSECONDS) / 1000.0)).append("us [");
+        for (int i = 0; i < STAGES.length; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(STAGES[i].name().toLowerCase()).append('=')
+                    .append(String.format("%.1f", durations[i] / 1000.0)).append("us");
+        }
+        builder.append(']');
+        if (rejectionReason != null) {
+            builder.append(" rejected=").append(rejectionReason);
+        } else if (failed) {
+            builder.append(" failed");
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.nio.LongBuffer;
+
+/**
+ * A fixed-size hash table which maps composite keys to expiration timestamps.
+ * A key consists of two longs, so e.g. a user and a command can be stored without mixing them into one lossy value.
+ * It uses open addressing with linear probing on a {@link LongBuffer}, so it works on the heap as well as on a
+ * memory-mapped file. Expired entries are reused. The table is not thread-safe.
+ */
+class ExpiryTable {
+
+    /**
+     * The number of longs per slot: key, sub key and expiration.
+     */
+    static final int SLOT_LONGS = 3;
+
+    /**
+     * The maximum number of slots which are probed for a key.
+     */
+    private static final int MAX_PROBES = 64;
+
+    private final LongBuffer slots;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * Creates a new table.
+     *
+     * @param slots The buffer with {@link #SLOT_LONGS} longs per slot. The number of slots must be a power of two.
+     */
+    ExpiryTable(LongBuffer slots) {
+        int capacity = slots.capacity() / SLOT_LONGS;
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two!");
+        }
+        this.slots = slots;
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Gets the expiration of the key.
+     *
+     * @param key The key. Must not be <code>0</code>.
+     * @param subKey The second part of the key.
+     * @param now The current time.
+     * @return The expiration or <code>0</code> if there's no entry which expires after <code>now</code>.
+     */
+    long get(long key, long subKey, long now) {
+        int slot = slotOf(key, subKey);
+        for (int i = 0; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_LONGS;
+            long slotKey = slots.get(offset);
+            if (slotKey == 0) {
+                return 0;
+            }
+            if (slotKey == key && slots.get(offset + 1) == subKey) {
+                long expiry = slots.get(offset + 2);
+                return expiry > now ? expiry : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the expiration of the key if the key has no entry which expires after <code>now</code>.
+     *
+     * @param key The key. Must not be <code>0</code>.
+     * @param subKey The second part of the key.
+     * @param expiry The new expiration.
+     * @param now The current time.
+     * @return <code>0</code> if the expiration was set or the existing expiration.
+     */
+    long putIfAbsent(long key, long subKey, long expiry, long now) {
+        int slot = slotOf(key, subKey);
+        int free = -1;
+        for (int i = 0; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_LONGS;
+            long slotKey = slots.get(offset);
+            if (slotKey == key && slots.get(offset + 1) == subKey) {
+                long existing = slots.get(offset + 2);
+                if (existing > now) {
+                    return existing;
+                }
+                slots.put(offset + 2, expiry);
+                return 0;
+            }
+            if (slotKey == 0 || slots.get(offset + 2) <= now) {
+                if (free < 0) {
+                    free = slot;
+                }
+                if (slotKey == 0) {
+                    // the key can't be stored behind an empty slot
+                    break;
+                }
+            }
+        }
+        if (free >= 0) {
+            int offset = free * SLOT_LONGS;
+            slots.put(offset, key);
+            slots.put(offset + 1, subKey);
+            slots.put(offset + 2, expiry);
+        }
+        // if the table is full, the entry is dropped (fail open)
+        return 0;
+    }
+
+    /**
+     * Sets the expiration of the key, even if the key already has an entry.
+     *
+     * @param key The key. Must not be <code>0</code>.
+     * @param subKey The second part of the key.
+     * @param expiry The new expiration.
+     * @param now The current time.
+     */
+    void put(long key, long subKey, long expiry, long now) {
+        if (putIfAbsent(key, subKey, expiry, now) != 0) {
+            int slot = slotOf(key, subKey);
+            for (int i = 0; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+                int offset = slot * SLOT_LONGS;
+                if (slots.get(offset) == key && slots.get(offset + 1) == subKey) {
+                    slots.put(offset + 2, expiry);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the first slot which is probed for the key.
+     *
+     * @param key The key.
+     * @param subKey The second part of the key.
+     * @return The first slot.
+     */
+    private int slotOf(long key, long subKey) {
+        // only used to pick the slot, the keys themselves are compared in full
+        return (int) (((key * 0x9E3779B97F4A7C15L) ^ subKey) * 0x9E3779B97F4A7C15L >>> shift);
+    }
+
+    /**
+     * Makes sure the key is not <code>0</code>, which marks empty slots.
+     *
+     * @param key The key.
+     * @return The key or <code>1</code> if the key is <code>0</code>.
+     */
+    static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+}
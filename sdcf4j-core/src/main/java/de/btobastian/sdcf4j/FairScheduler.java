@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A scheduler which executes tasks fairly across keys (e.g. servers).
+ * Every key has its own queue and the queues are served round-robin, so a key with many tasks can't starve the
+ * other keys. The number of tasks running at the same time can be limited per key.
+ */
+public class FairScheduler {
+
+    private final Object lock = new Object();
+    private final Executor executor;
+    private final int parallelism;
+
+    // all fields below are guarded by the lock
+    private final HashMap<Long, KeyQueue> queues = new HashMap<>();
+    private final HashMap<Long, Integer> maxConcurrencyOverrides = new HashMap<>();
+    private final ArrayDeque<KeyQueue> readyQueues = new ArrayDeque<>();
+    private int activeWorkers = 0;
+    private int maxConcurrencyPerKey = 1;
+    private int maxQueuedPerKey = Integer.MAX_VALUE;
+
+    /**
+     * Creates a new fair scheduler.
+     *
+     * @param executor The executor which runs the tasks.
+     * @param parallelism The maximum number of tasks which are running at the same time.
+     */
+    public FairScheduler(Executor executor, int parallelism) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null!");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of tasks of one key which are running at the same time.
+     * The default is <code>1</code>. The limit also applies to the keys which already have tasks, unless they have an
+     * override. Running tasks are not interrupted if the limit is lowered.
+     *
+     * @param maxConcurrencyPerKey The maximum number of tasks of one key which are running at the same time.
+     */
+    public void setMaxConcurrencyPerKey(int maxConcurrencyPerKey) {
+        if (maxConcurrencyPerKey < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1!");
+        }
+        int workers;
+        synchronized (lock) {
+            this.maxConcurrencyPerKey = maxConcurrencyPerKey;
+            int runnable = 0;
+            for (KeyQueue queue : queues.values()) {
+                if (!maxConcurrencyOverrides.containsKey(queue.key)) {
+                    queue.maxConcurrency = maxConcurrencyPerKey;
+                    runnable += applyMaxConcurrency(queue);
+                }
+            }
+            workers = reserveWorkers(runnable);
+        }
+        startWorkers(workers);
+    }
+
+    /**
+     * Sets the maximum number of tasks of the given key which are running at the same time.
+     * This overrides the value of {@link #setMaxConcurrencyPerKey(int)} for the key.
+     *
+     * @param key The key, e.g. the id of a server.
+     * @param maxConcurrency The maximum number of tasks or a value &lt; 1 to remove the override.
+     */
+    public void setMaxConcurrency(long key, int maxConcurrency) {
+        int workers = 0;
+        synchronized (lock) {
+            if (maxConcurrency < 1) {
+                maxConcurrencyOverrides.remove(key);
+            } else {
+                maxConcurrencyOverrides.put(key, maxConcurrency);
+            }
+            KeyQueue queue = queues.get(key);
+            if (queue != null) {
+                queue.maxConcurrency = maxConcurrency < 1 ? maxConcurrencyPerKey : maxConcurrency;
+                workers = reserveWorkers(applyMaxConcurrency(queue));
+            }
+        }
+        startWorkers(workers);
+    }
+
+    /**
+     * Marks the queue as ready if its changed limit allows it.
+     * Must be called while holding the lock.
+     *
+     * @param queue The queue whose limit was changed.
+     * @return The number of its tasks which can start right now because of a raised limit.
+     */
+    private int applyMaxConcurrency(KeyQueue queue) {
+        markReady(queue);
+        return Math.max(0, Math.min(queue.tasks.size(), queue.maxConcurrency - queue.running));
+    }
+
+    /**
+     * Counts as many new workers in {@link #activeWorkers} as the parallelism allows.
+     * Must be called while holding the lock.
+     *
+     * @param wanted The number of wanted workers.
+     * @return The number of workers which must be started with {@link #startWorkers(int)}.
+     */
+    private int reserveWorkers(int wanted) {
+        int workers = Math.max(0, Math.min(wanted, parallelism - activeWorkers));
+        activeWorkers += workers;
+        return workers;
+    }
+
+    /**
+     * Starts workers which were reserved with {@link #reserveWorkers(int)}.
+     *
+     * @param workers The number of workers.
+     */
+    private void startWorkers(int workers) {
+        for (int i = 0; i < workers; i++) {
+            try {
+                startWorker();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    // the failed worker was already given back by startWorker()
+                    activeWorkers -= workers - i - 1;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of waiting tasks per key. Tasks which exceed this limit are rejected.
+     * There's no limit by default.
+     *
+     * @param maxQueuedPerKey The maximum number of waiting tasks per key.
+     */
+    public void setMaxQueuedPerKey(int maxQueuedPerKey) {
+        if (maxQueuedPerKey < 1) {
+            throw new IllegalArgumentException("Max queued tasks must be at least 1!");
+        }
+        synchronized (lock) {
+            this.maxQueuedPerKey = maxQueuedPerKey;
+        }
+    }
+
+    /**
+     * Executes the task.
+     *
+     * @param key The key of the task, e.g. the id of a server.
+     * @param task The task to execute.
+     * @return Whether the task was accepted or not.
+     */
+    public boolean execute(long key, Runnable task) {
+        boolean startWorker = false;
+        synchronized (lock) {
+            KeyQueue queue = queues.get(key);
+            if (queue == null) {
+                Integer maxConcurrency = maxConcurrencyOverrides.get(key);
+                queue = new KeyQueue(key, maxConcurrency == null ? maxConcurrencyPerKey : maxConcurrency);
+                queues.put(key, queue);
+            }
+            if (queue.tasks.size() >= maxQueuedPerKey) {
+                return false;
+            }
+            queue.tasks.add(task);
+            markReady(queue);
+            if (activeWorkers < parallelism && !readyQueues.isEmpty()) {
+                activeWorkers++;
+                startWorker = true;
+            }
+        }
+        if (startWorker) {
+            try {
+                startWorker();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    // nobody will run the task, so take it back before the caller sees the rejection
+                    KeyQueue queue = queues.get(key);
+                    if (queue != null && queue.tasks.removeLastOccurrence(task)) {
+                        removeIfIdle(queue);
+                    }
+                }
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new worker. The caller must have already counted it in {@link #activeWorkers}.
+     */
+    private void startWorker() {
+        try {
+            executor.execute(this::work);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                activeWorkers--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the queue if it has neither waiting nor running tasks.
+     * Must be called while holding the lock.
+     *
+     * @param queue The queue.
+     */
+    private void removeIfIdle(KeyQueue queue) {
+        if (queue.running == 0 && queue.tasks.isEmpty()) {
+            if (queue.ready) {
+                queue.ready = false;
+                readyQueues.remove(queue);
+            }
+            queues.remove(queue.key);
+        }
+    }
+
+    /**
+     * Adds the queue to the ready queues if it has waiting tasks and is below its concurrency limit.
+     * Must be called while holding the lock.
+     *
+     * @param queue The queue.
+     */
+    private void markReady(KeyQueue queue) {
+        if (!queue.ready && !queue.tasks.isEmpty() && queue.running < queue.maxConcurrency) {
+            queue.ready = true;
+            readyQueues.add(queue);
+        }
+    }
+
+    /**
+     * Executes tasks until there are no more ready queues.
+     */
+    private void work() {
+        KeyQueue queue = null;
+        boolean replace = false;
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (lock) {
+                    if (queue != null) {
+                        finish(queue);
+                        queue = null;
+                    }
+                    do {
+                        queue = readyQueues.poll();
+                        if (queue == null) {
+                            return;
+                        }
+                        queue.ready = false;
+                        // a lowered limit leaves queues in the ready queues which must wait for running tasks now
+                    } while (queue.running >= queue.maxConcurrency);
+                    task = queue.tasks.poll();
+                    queue.running++;
+                    // put it at the end, so the other keys are served first (round-robin)
+                    markReady(queue);
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // the worker must keep working, other tasks of the key would wait for a new worker otherwise
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        } finally {
+            // also reached if a task threw an error, otherwise its key would never run again
+            synchronized (lock) {
+                if (queue != null) {
+                    finish(queue);
+                    replace = !readyQueues.isEmpty();
+                }
+                if (!replace) {
+                    activeWorkers--;
+                }
+            }
+            if (replace) {
+                // the slot of this worker is handed over to the replacement
+                try {
+                    startWorker();
+                } catch (RuntimeException ignored) {
+                    // the tasks stay queued and are picked up by the next worker
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a task of the queue as finished.
+     * Must be called while holding the lock.
+     *
+     * @param queue The queue of the finished task.
+     */
+    private void finish(KeyQueue queue) {
+        queue.running--;
+        markReady(queue);
+        removeIfIdle(queue);
+    }
+
+    /**
+     * The queue of a single key.
+     */
+    private static class KeyQueue {
+
+        private final long key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private int maxConcurrency;
+        private int running = 0;
+        private boolean ready = false;
+
+        /**
+         * Creates a new queue.
+         *
+         * @param key The key.
+         * @param maxConcurrency The maximum number of tasks of this key which are running at the same time.
+         */
+        private KeyQueue(long key, int maxConcurrency) {
+            this.key = key;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+}
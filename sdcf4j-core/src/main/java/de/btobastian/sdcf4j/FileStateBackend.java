@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A {@link StateBackend} which stores the state in files, so it can be shared by several processes on one host.
+ * The cooldowns, the processed messages and the version of the permissions are stored in a memory-mapped file,
+ * so reading the version doesn't need a system call. The permissions are stored in the text format of
+ * {@link PermissionGrant}. Modifications are guarded by a file lock. The permission log has its own lock, which is
+ * held shared while the log is read, so readers never see a partly written grant and don't block cooldowns.
+ * New grants are appended to the log, while replacing the permissions writes a compacted log without duplicates.
+ * The backend remembers how far it has read the log, so other processes only read the appended grants after a
+ * change. All permissions are only read again after the log was compacted.
+ * The commands of the cooldowns are numbered by a shared table of commands, so their keys never collide.
+ * Cooldowns which are known to be running are also cached in the current process.
+ */
+public class FileStateBackend implements StateBackend {
+
+    private static final int MAGIC = 0x53444346;
+    private static final int HEADER_SIZE = 64;
+    // the tables and the permission log are locked separately, so reading the log doesn't block cooldowns
+    private static final int TABLE_LOCK_SIZE = 32;
+    private static final int PERMISSION_LOCK_POSITION = 32;
+    private static final int PERMISSION_LOCK_SIZE = 32;
+    private static final int VERSION_OFFSET = 8;
+    private static final int FORMAT_OFFSET = 16;
+    // the version of the last compaction, the log can't be read incrementally across it
+    private static final int COMPACTED_VERSION_OFFSET = 24;
+    // the layout of the header and the tables, increased whenever it changes
+    private static final int FORMAT = 3;
+    private static final int SLOT_BYTES = ExpiryTable.SLOT_LONGS * 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ExpiryTable cooldowns;
+    private final ExpiryTable processedMessages;
+    private final ExpiryTable nearCooldowns;
+    private final Path permissionFile;
+    private final Path commandFile;
+    private final ConcurrentHashMap<String, Long> commandIds = new ConcurrentHashMap<>();
+    // a process can only hold one lock per region, so the permission log is also guarded by this monitor
+    private final Object permissionLock = new Object();
+    // the version and the length of the log when it was read or written the last time, guarded by the monitor
+    private long readVersion = -1;
+    private long readOffset = 0;
+
+    /**
+     * Creates a new file state backend with room for 65536 cooldowns and processed messages.
+     *
+     * @param directory The directory of the files.
+     * @throws IOException If the files cannot be opened.
+     */
+    public FileStateBackend(Path directory) throws IOException {
+        this(directory, 1 << 16);
+    }
+
+    /**
+     * Creates a new file state backend.
+     * If the files already exist, the capacity of the existing files is used.
+     *
+     * @param directory The directory of the files.
+     * @param capacity The maximum number of cooldowns and processed messages. Must be a power of two.
+     * @throws IOException If the files cannot be opened.
+     */
+    public FileStateBackend(Path directory, int capacity) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory cannot be null!");
+        }
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two!");
+        }
+        Files.createDirectories(directory);
+        permissionFile = directory.resolve("permissions.log");
+        commandFile = directory.resolve("commands.log");
+        RandomAccessFile file;
+        try {
+            file = new RandomAccessFile(directory.resolve("state.dat").toFile(), "rw");
+        } catch (FileNotFoundException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        channel = file.getChannel();
+        try {
+            FileLock lock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                if (channel.size() == 0) {
+                    file.setLength(HEADER_SIZE + capacity * 2L * SLOT_BYTES);
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    buffer.putInt(4, capacity);
+                    buffer.putInt(FORMAT_OFFSET, FORMAT);
+                    buffer.putInt(0, MAGIC);
+                } else {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    if (buffer.getInt(0) != MAGIC) {
+                        throw new IOException("Not a state file: " + directory.resolve("state.dat"));
+                    }
+                    if (buffer.getInt(FORMAT_OFFSET) != FORMAT) {
+                        throw new IOException("Outdated state file, delete it after stopping all processes: "
+                                + directory.resolve("state.dat"));
+                    }
+                    capacity = buffer.getInt(4);
+                }
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        cooldowns = new ExpiryTable(slice(HEADER_SIZE, capacity));
+        processedMessages = new ExpiryTable(slice(HEADER_SIZE + capacity * SLOT_BYTES, capacity));
+        nearCooldowns = new ExpiryTable(LongBuffer.allocate(Math.min(capacity, 4096) * ExpiryTable.SLOT_LONGS));
+    }
+
+    /**
+     * Gets a part of the mapped file.
+     *
+     * @param offset The offset of the part.
+     * @param slots The number of slots of the part.
+     * @return The part of the file.
+     */
+    private LongBuffer slice(int offset, int slots) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + slots * SLOT_BYTES);
+        return slice.slice().asLongBuffer();
+    }
+
+    @Override
+    public long getPermissionVersion() {
+        return buffer.getLong(VERSION_OFFSET);
+    }
+
+    @Override
+    public void readPermissions(Consumer<? super PermissionGrant> consumer) throws IOException {
+        synchronized (permissionLock) {
+            FileLock lock = channel.lock(PERMISSION_LOCK_POSITION, PERMISSION_LOCK_SIZE, true);
+            try {
+                readVersion = buffer.getLong(VERSION_OFFSET);
+                readOffset = readLog(0, consumer);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    @Override
+    public long readPermissionsSince(long version, Consumer<? super PermissionGrant> consumer) throws IOException {
+        synchronized (permissionLock) {
+            FileLock lock = channel.lock(PERMISSION_LOCK_POSITION, PERMISSION_LOCK_SIZE, true);
+            try {
+                long current = buffer.getLong(VERSION_OFFSET);
+                if (version == current) {
+                    return current;
+                }
+                // the offset is only known for the version which was read last, and compaction rewrites the log
+                if (version != readVersion || buffer.getLong(COMPACTED_VERSION_OFFSET) > version) {
+                    return -1;
+                }
+                readOffset = readLog(readOffset, consumer);
+                readVersion = current;
+                return current;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Reads the grants of the log from the given offset to its end.
+     * Must be called while holding the permission lock.
+     *
+     * @param offset The offset to start at. Must be the start of a line.
+     * @param consumer The consumer which receives the grants.
+     * @return The length of the log.
+     * @throws IOException If the log cannot be read or contains an invalid grant.
+     */
+    private long readLog(long offset, Consumer<? super PermissionGrant> consumer) throws IOException {
+        if (!Files.exists(permissionFile)) {
+            return 0;
+        }
+        try (SeekableByteChannel log = Files.newByteChannel(permissionFile, StandardOpenOption.READ)) {
+            long length = log.size();
+            log.position(offset);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(log), StandardCharsets.UTF_8));
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                PermissionGrant grant;
+                try {
+                    grant = PermissionGrant.parse(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid grant in line " + lineNumber + " after offset " + offset
+                            + " of " + permissionFile, e);
+                }
+                consumer.accept(grant);
+            }
+            // nobody appends while the lock is held, so the log still has this length
+            return length;
+        }
+    }
+
+    @Override
+    public long writePermissions(Iterator<? extends PermissionGrant> grants, boolean replace) throws IOException {
+        synchronized (permissionLock) {
+            FileLock lock = channel.lock(PERMISSION_LOCK_POSITION, PERMISSION_LOCK_SIZE, false);
+            try {
+                long previous = buffer.getLong(VERSION_OFFSET);
+                if (replace) {
+                    writeCompacted(grants);
+                } else {
+                    try (BufferedWriter writer = Files.newBufferedWriter(permissionFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        while (grants.hasNext()) {
+                            writer.write(grants.next().toString());
+                            writer.newLine();
+                        }
+                    }
+                }
+                long version = previous + 1;
+                if (replace) {
+                    buffer.putLong(COMPACTED_VERSION_OFFSET, version);
+                }
+                buffer.putLong(VERSION_OFFSET, version);
+                // the writer already has the grants, so the next read can start after them
+                if (replace || readVersion == previous) {
+                    readVersion = version;
+                    readOffset = Files.size(permissionFile);
+                }
+                return version;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Writes the grants to a new log without duplicates and replaces the current log with it.
+     * The new log is moved into place atomically, so the old log stays intact if writing fails.
+     * Must be called while holding the permission lock.
+     *
+     * @param grants The grants.
+     * @throws IOException If the log cannot be written.
+     */
+    private void writeCompacted(Iterator<? extends PermissionGrant> grants) throws IOException {
+        Path compacted = permissionFile.resolveSibling(permissionFile.getFileName() + ".tmp");
+        try {
+            Set<String> written = new HashSet<>();
+            try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                while (grants.hasNext()) {
+                    String line = grants.next().toString();
+                    if (written.add(line)) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(compacted, permissionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(compacted);
+        }
+    }
+
+    @Override
+    public long tryStartCooldown(long userId, String command, long cooldownMillis) {
+        userId = ExpiryTable.nonZero(userId);
+        long now = System.currentTimeMillis();
+        long commandId;
+        try {
+            commandId = getCommandId(command);
+        } catch (IOException e) {
+            // the cooldown is not worth failing the command
+            return 0;
+        }
+        synchronized (nearCooldowns) {
+            long expiry = nearCooldowns.get(userId, commandId, now);
+            if (expiry != 0) {
+                return expiry - now;
+            }
+        }
+        long expiry;
+        try {
+            expiry = lockAndPut(cooldowns, userId, commandId, now + cooldownMillis, now);
+        } catch (IOException e) {
+            return 0;
+        }
+        synchronized (nearCooldowns) {
+            nearCooldowns.put(userId, commandId, expiry == 0 ? now + cooldownMillis : expiry, now);
+        }
+        return expiry == 0 ? 0 : expiry - now;
+    }
+
+    /**
+     * Gets the id of the command, which is its line in the shared table of commands.
+     * A command which is not in the table yet is appended to it, so every process uses the same id.
+     *
+     * @param command The command.
+     * @return The id of the command.
+     * @throws IOException If the table cannot be read or written.
+     */
+    private long getCommandId(String command) throws IOException {
+        Long id = commandIds.get(command);
+        if (id != null) {
+            return id;
+        }
+        if (command.indexOf('\n') >= 0 || command.indexOf('\r') >= 0) {
+            throw new IOException("Commands with line breaks can't be stored in " + commandFile);
+        }
+        // the table only changes when a command is used for the first time, so it shares the lock of the log
+        synchronized (permissionLock) {
+            FileLock lock = channel.lock(PERMISSION_LOCK_POSITION, PERMISSION_LOCK_SIZE, false);
+            try {
+                List<String> lines = Files.exists(commandFile)
+                        ? Files.readAllLines(commandFile, StandardCharsets.UTF_8)
+                        : Collections.<String>emptyList();
+                for (int i = 0; i < lines.size(); i++) {
+                    commandIds.putIfAbsent(lines.get(i), (long) i + 1);
+                }
+                id = commandIds.get(command);
+                if (id == null) {
+                    try (BufferedWriter writer = Files.newBufferedWriter(commandFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        writer.write(command);
+                        writer.write('\n');
+                    }
+                    id = (long) lines.size() + 1;
+                    commandIds.put(command, id);
+                }
+                return id;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    @Override
+    public boolean markProcessed(long messageId, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            return lockAndPut(processedMessages, ExpiryTable.nonZero(messageId), 0, now + ttlMillis, now) == 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Puts an entry in a shared table while holding the file lock.
+     *
+     * @param table The table.
+     * @param key The key.
+     * @param subKey The second part of the key.
+     * @param expiry The expiration of the entry.
+     * @param now The current time.
+     * @return <code>0</code> if the entry was added or the expiration of the existing entry.
+     * @throws IOException If the file cannot be locked.
+     */
+    private synchronized long lockAndPut(ExpiryTable table, long key, long subKey, long expiry, long now)
+            throws IOException {
+        FileLock lock = channel.lock(0, TABLE_LOCK_SIZE, false);
+        try {
+            return table.putIfAbsent(key, subKey, expiry, now);
+        } finally {
+            lock.release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The default {@link StateBackend} which keeps all state in the current process.
+ * The backend keeps the grants it is given, so handlers which share it (or switch to it) get the same permissions.
+ * The commands of the cooldowns are numbered in the order they are first used, so their keys never collide.
+ */
+public class LocalStateBackend implements StateBackend {
+
+    private final ExpiryTable cooldowns;
+    private final ExpiryTable processedMessages;
+    private final ConcurrentHashMap<String, Long> commandIds = new ConcurrentHashMap<>();
+    // guarded by "this"
+    private final ArrayList<PermissionGrant> grants = new ArrayList<>();
+    private volatile long permissionVersion = 0;
+
+    /**
+     * Creates a new local state backend with room for 65536 cooldowns and processed messages.
+     */
+    public LocalStateBackend() {
+        this(1 << 16);
+    }
+
+    /**
+     * Creates a new local state backend.
+     *
+     * @param capacity The maximum number of cooldowns and processed messages. Must be a power of two.
+     */
+    public LocalStateBackend(int capacity) {
+        cooldowns = new ExpiryTable(LongBuffer.allocate(capacity * ExpiryTable.SLOT_LONGS));
+        processedMessages = new ExpiryTable(LongBuffer.allocate(capacity * ExpiryTable.SLOT_LONGS));
+    }
+
+    @Override
+    public long getPermissionVersion() {
+        return permissionVersion;
+    }
+
+    @Override
+    public synchronized void readPermissions(Consumer<? super PermissionGrant> consumer) {
+        for (PermissionGrant grant : grants) {
+            consumer.accept(grant);
+        }
+    }
+
+    @Override
+    public synchronized long writePermissions(Iterator<? extends PermissionGrant> grants, boolean replace) {
+        if (replace) {
+            this.grants.clear();
+        }
+        while (grants.hasNext()) {
+            this.grants.add(grants.next());
+        }
+        return ++permissionVersion;
+    }
+
+    @Override
+    public long tryStartCooldown(long userId, String command, long cooldownMillis) {
+        long commandId = getCommandId(command);
+        long now = System.currentTimeMillis();
+        long expiry;
+        synchronized (cooldowns) {
+            expiry = cooldowns.putIfAbsent(ExpiryTable.nonZero(userId), commandId, now + cooldownMillis, now);
+        }
+        return expiry == 0 ? 0 : expiry - now;
+    }
+
+    /**
+     * Gets the id of the command, which is assigned the first time the command is used.
+     *
+     * @param command The command.
+     * @return The id of the command.
+     */
+    private long getCommandId(String command) {
+        Long id = commandIds.get(command);
+        if (id == null) {
+            synchronized (commandIds) {
+                id = commandIds.get(command);
+                if (id == null) {
+                    id = (long) commandIds.size() + 1;
+                    commandIds.put(command, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public boolean markProcessed(long messageId, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (processedMessages) {
+            return processedMessages.putIfAbsent(ExpiryTable.nonZero(messageId), 0, now + ttlMillis, now) == 0;
+        }
+    }
+
+    @Override
+    public void close() { }
+
+}
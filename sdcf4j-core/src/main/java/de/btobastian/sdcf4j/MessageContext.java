@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+/**
+ * The context of a received message.
+ * This is the interface between the platform and the dispatch engine of the {@link CommandHandler}: adapters
+ * implement it for the messages of their library and pass it to {@link CommandHandler#dispatch(MessageContext)}.
+ * Platform objects (like the channel or the server) are resolved on demand and at most once per message.
+ * A context is not thread-safe. It's handed over to the thread which executes the command.
+ */
+public abstract class MessageContext {
+
+    private static final long[] NO_ROLES = new long[0];
+
+    static final byte UNCHECKED = 0;
+    static final byte FIRST = 1;
+    static final byte DUPLICATE = 2;
+
+    // the trace of the dispatch, if the message is sampled
+    DispatchTrace trace = DispatchTrace.NONE;
+
+    // whether the message was already handled, checked at most once for the triggers and the command
+    byte duplicate = UNCHECKED;
+
+    private Class<?>[] resolvedTypes;
+    private Object[] resolvedObjects;
+    private int resolvedCount;
+
+    /**
+     * Gets the shard which received the message.
+     *
+     * @return The id of the shard.
+     */
+    public int getShard() {
+        return 0;
+    }
+
+    /**
+     * Gets the content of the message.
+     *
+     * @return The content of the message.
+     */
+    public abstract String getContent();
+
+    /**
+     * Sends a message to the channel of the received message.
+     *
+     * @param message The message to send.
+     */
+    public abstract void sendMessage(String message);
+
+    /**
+     * Gets the id of the message.
+     *
+     * @return The id of the message.
+     */
+    public abstract long getMessageId();
+
+    /**
+     * Gets the id of the author of the message.
+     *
+     * @return The id of the author.
+     */
+    public abstract long getAuthorId();
+
+    /**
+     * Gets the id of the channel the message was sent in.
+     *
+     * @return The id of the channel.
+     */
+    public abstract long getChannelId();
+
+    /**
+     * Gets the id of the server the message was sent in.
+     *
+     * @return The id of the server or <code>0</code> if the message is a private message.
+     */
+    public abstract long getServerId();
+
+    /**
+     * Gets the id of the bot user which received the message.
+     * Messages of this user are ignored and mentions of commands have to mention this user.
+     *
+     * @return The id of the bot user.
+     */
+    public abstract long getSelfId();
+
+    /**
+     * Checks if the message was sent by a bot or a webhook.
+     * Used to {@link CommandHandler#setIgnoreBots(boolean) ignore bots}, so it should not resolve any objects.
+     *
+     * @return Whether the author is a bot or a webhook.
+     */
+    public boolean isFromBot() {
+        return false;
+    }
+
+    /**
+     * Checks if the message is a private message.
+     *
+     * @return Whether the message is a private message or not.
+     */
+    public boolean isPrivate() {
+        return getServerId() == 0;
+    }
+
+    /**
+     * Gets the ids of the roles the author has in the server of the message.
+     * This is only called if roles are bound to permission groups.
+     *
+     * @return The ids of the roles of the author. Empty for private messages.
+     */
+    public long[] getRoleIds() {
+        return NO_ROLES;
+    }
+
+    /**
+     * Gets the platform object of the given type, e.g. the channel of the message.
+     * The object is only resolved the first time it's requested.
+     *
+     * @param type The type of the object.
+     * @param <T> The type of the object.
+     * @return The object or <code>null</code> if there's no object of the given type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<T> type) {
+        if (type == MessageContext.class) {
+            return (T) this;
+        }
+        // there are only a few types per message, so a linear search is faster than a map
+        for (int i = 0; i < resolvedCount; i++) {
+            if (resolvedTypes[i] == type) {
+                return (T) resolvedObjects[i];
+            }
+        }
+        Object object = resolve(type);
+        if (resolvedTypes == null) {
+            resolvedTypes = new Class<?>[4];
+            resolvedObjects = new Object[4];
+        } else if (resolvedCount == resolvedTypes.length) {
+            resolvedTypes = Arrays.copyOf(resolvedTypes, resolvedCount * 2);
+            resolvedObjects = Arrays.copyOf(resolvedObjects, resolvedCount * 2);
+        }
+        resolvedTypes[resolvedCount] = type;
+        resolvedObjects[resolvedCount++] = object;
+        return (T) object;
+    }
+
+    /**
+     * Resolves the platform object of the given type.
+     * This method is called at most once per type.
+     *
+     * @param type The type of the object.
+     * @return The object or <code>null</code> if there's no object of the given type.
+     */
+    protected abstract Object resolve(Class<?> type);
+
+    /**
+     * Tries to get objects (like channel, user, long) from the given strings.
+     *
+     * @param args The string array.
+     * @return An object array.
+     */
+    public Object[] getObjectsFromString(String[] args) {
+        Object[] objects = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            objects[i] = getObjectFromString(args[i]);
+        }
+        return objects;
+    }
+
+    /**
+     * Tries to get an object (like channel, user, long) from the given string.
+     *
+     * @param arg The string.
+     * @return The object.
+     */
+    protected Object getObjectFromString(String arg) {
+        try {
+            // test long
+            return Long.valueOf(arg);
+        } catch (NumberFormatException ignored) {}
+        // test user
+        Matcher matcher = CommandHandler.USER_MENTION.matcher(arg);
+        if (matcher.find()) {
+            Object user = getUserById(matcher.group("id"));
+            if (user != null) {
+                return user;
+            }
+        }
+        // test channel
+        if (arg.matches("<#([0-9]+)>")) {
+            Object channel = getChannelById(arg.substring(2, arg.length() - 1));
+            if (channel != null) {
+                return channel;
+            }
+        }
+        return arg;
+    }
+
+    /**
+     * Gets the user with the given id.
+     *
+     * @param id The id of the user.
+     * @return The user or <code>null</code> if the user is unknown.
+     */
+    protected Object getUserById(String id) {
+        return null;
+    }
+
+    /**
+     * Gets the channel with the given id.
+     *
+     * @param id The id of the channel.
+     * @return The channel or <code>null</code> if the channel is unknown.
+     */
+    protected Object getChannelById(String id) {
+        return null;
+    }
+
+}
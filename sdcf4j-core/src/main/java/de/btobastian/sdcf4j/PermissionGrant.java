@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * A single entry of the permission data, e.g. a permission of a user or the membership of a user in a group.
+ * Grants are used to import and export permissions in bulk.
+ */
+public final class PermissionGrant {
+
+    /**
+     * The kinds of grants.
+     */
+    public enum Kind {
+
+        /**
+         * The subject is a user id, the value is a permission.
+         */
+        USER_PERMISSION("user"),
+
+        /**
+         * The subject is a group, the value is a permission.
+         */
+        GROUP_PERMISSION("group"),
+
+        /**
+         * The subject is a group, the value is a group it inherits from.
+         */
+        GROUP_PARENT("parent"),
+
+        /**
+         * The subject is a user id, the value is a group the user is a member of.
+         */
+        USER_GROUP("member"),
+
+        /**
+         * The subject is a role id, the value is a group all users with the role are members of.
+         */
+        ROLE_GROUP("role");
+
+        private final String key;
+
+        Kind(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Gets the key which is used for this kind in the text format.
+         *
+         * @return The key of this kind.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Gets the kind with the given key.
+         *
+         * @param key The key of the kind.
+         * @return The kind.
+         * @throws IllegalArgumentException If there's no kind with the given key.
+         */
+        public static Kind fromKey(String key) {
+            for (Kind kind : values()) {
+                if (kind.key.equals(key)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown kind " + key);
+        }
+    }
+
+    private final Kind kind;
+    private final String subject;
+    private final String value;
+
+    /**
+     * Creates a new grant.
+     *
+     * @param kind The kind of the grant.
+     * @param subject The subject, e.g. the id of the user.
+     * @param value The value, e.g. the permission.
+     */
+    public PermissionGrant(Kind kind, String subject, String value) {
+        if (kind == null || subject == null || value == null) {
+            throw new IllegalArgumentException("Kind, subject and value cannot be null!");
+        }
+        if (containsSeparator(subject) || containsSeparator(value)) {
+            throw new IllegalArgumentException("Subject and value cannot contain tabs or line breaks!");
+        }
+        this.kind = kind;
+        this.subject = subject;
+        this.value = value;
+    }
+
+    /**
+     * Parses a grant in the text format (<code>kind&lt;TAB&gt;subject&lt;TAB&gt;value</code>).
+     *
+     * @param line The line to parse.
+     * @return The parsed grant.
+     * @throws IllegalArgumentException If the line is not a valid grant.
+     */
+    public static PermissionGrant parse(String line) {
+        int first = line.indexOf('\t');
+        int second = first < 0 ? -1 : line.indexOf('\t', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Invalid grant: " + line);
+        }
+        return new PermissionGrant(
+                Kind.fromKey(line.substring(0, first)), line.substring(first + 1, second), line.substring(second + 1));
+    }
+
+    /**
+     * Checks if the string contains a character which is used as separator in the text format.
+     *
+     * @param string The string.
+     * @return Whether the string contains a separator or not.
+     */
+    private static boolean containsSeparator(String string) {
+        return string.indexOf('\t') >= 0 || string.indexOf('\n') >= 0 || string.indexOf('\r') >= 0;
+    }
+
+    /**
+     * Gets the kind of the grant.
+     *
+     * @return The kind of the grant.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the subject of the grant, e.g. the id of the user.
+     *
+     * @return The subject of the grant.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Gets the value of the grant, e.g. the permission.
+     *
+     * @return The value of the grant.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PermissionGrant)) {
+            return false;
+        }
+        PermissionGrant other = (PermissionGrant) obj;
+        return kind == other.kind && subject.equals(other.subject) && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return (kind.hashCode() * 31 + subject.hashCode()) * 31 + value.hashCode();
+    }
+
+    /**
+     * Gets the grant in the text format (<code>kind&lt;TAB&gt;subject&lt;TAB&gt;value</code>).
+     *
+     * @return The grant in the text format.
+     */
+    @Override
+    public String toString() {
+        return kind.key + '\t' + subject + '\t' + value;
+    }
+
+}
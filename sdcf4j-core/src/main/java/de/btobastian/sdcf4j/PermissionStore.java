@@ -0,0 +1,609 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Stores the permissions of users, groups and roles.
+ * Every permission which is required by a registered command is interned to a bit index. The effective
+ * permissions of a user, group or role are flattened into a bitset once and cached by id, so checking the
+ * permission of a command is a single lookup and bit test which doesn't allocate. Users and roles without grants
+ * are rejected without taking the lock. The caches are invalidated whenever the permissions change.
+ * A new store can share the interned permissions of an existing store, so permissions can be loaded into a fresh
+ * store and swapped in without changing the bit indices of the registered commands.
+ */
+class PermissionStore {
+
+    private static final long[] EMPTY = new long[0];
+
+    // the maps are guarded by "this"
+    private final HashMap<String, List<String>> userPermissions = new HashMap<>();
+    private final HashMap<String, List<String>> groupPermissions = new HashMap<>();
+    private final HashMap<String, List<String>> groupParents = new HashMap<>();
+    private final HashMap<String, List<String>> userGroups = new HashMap<>();
+    private final HashMap<String, List<String>> roleGroups = new HashMap<>();
+    private int grantCount = 0;
+
+    // shared with the stores which were created from this store, modifications are guarded by the map
+    private final ConcurrentHashMap<String, Integer> permissionIndices;
+    private final AtomicReference<String[]> internedPermissions;
+
+    // the caches and ids are read without a lock, but only written while holding the lock
+    private final ConcurrentLongMap<long[]> userCache = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<long[]> roleCache = new ConcurrentLongMap<>();
+    private final HashMap<String, long[]> groupCache = new HashMap<>();
+    private final ConcurrentLongSet usersWithGrants = new ConcurrentLongSet();
+    private final ConcurrentLongSet rolesWithGroups = new ConcurrentLongSet();
+
+    /**
+     * Creates a new empty store.
+     */
+    PermissionStore() {
+        permissionIndices = new ConcurrentHashMap<>();
+        internedPermissions = new AtomicReference<>(new String[0]);
+    }
+
+    /**
+     * Creates a new empty store which shares the interned permissions of the given store.
+     *
+     * @param interned The store whose interned permissions are shared.
+     */
+    PermissionStore(PermissionStore interned) {
+        permissionIndices = interned.permissionIndices;
+        internedPermissions = interned.internedPermissions;
+    }
+
+    /**
+     * Interns the given permission.
+     * If the permission is new, the caches of every store which shares the interned permissions must be
+     * {@link #invalidate() invalidated}.
+     *
+     * @param permission The permission.
+     * @return The bit index of the permission or <code>-1</code> if the permission is not required.
+     */
+    int intern(String permission) {
+        if (isNoPermission(permission)) {
+            return -1;
+        }
+        synchronized (permissionIndices) {
+            Integer index = permissionIndices.get(permission);
+            if (index == null) {
+                String[] interned = internedPermissions.get();
+                index = interned.length;
+                String[] updated = Arrays.copyOf(interned, index + 1);
+                updated[index] = permission;
+                internedPermissions.set(updated);
+                permissionIndices.put(permission, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Gets the live map of user permissions.
+     *
+     * @return The map of user permissions.
+     */
+    HashMap<String, List<String>> getUserPermissions() {
+        return userPermissions;
+    }
+
+    /**
+     * Adds the grants of the batch and invalidates the caches.
+     * Only the merge holds the lock, so permission checks are not blocked while the batch is filled.
+     * The lists of the batch are taken over without copying them, so the batch must not be used afterwards.
+     *
+     * @param batch The batch.
+     */
+    synchronized void merge(Batch batch) {
+        for (Map.Entry<PermissionGrant.Kind, HashMap<String, List<String>>> grants : batch.grants.entrySet()) {
+            PermissionGrant.Kind kind = grants.getKey();
+            HashMap<String, List<String>> map = getMap(kind);
+            for (Map.Entry<String, List<String>> entry : grants.getValue().entrySet()) {
+                List<String> values = map.get(entry.getKey());
+                if (values == null) {
+                    map.put(entry.getKey(), entry.getValue());
+                } else {
+                    values.addAll(entry.getValue());
+                }
+                indexSubject(kind, entry.getKey());
+            }
+        }
+        grantCount += batch.size;
+        invalidate();
+    }
+
+    /**
+     * Collects grants outside of a store, so they can be prepared without holding its lock and then be
+     * {@link #merge(Batch) merged} at once.
+     * Consecutive grants with the same kind and subject (e.g. sorted by user) are added without a map lookup.
+     */
+    static final class Batch implements Consumer<PermissionGrant> {
+
+        private final EnumMap<PermissionGrant.Kind, HashMap<String, List<String>>> grants =
+                new EnumMap<>(PermissionGrant.Kind.class);
+        private final int capacity;
+        private int size = 0;
+        private PermissionGrant.Kind lastKind = null;
+        private String lastSubject = null;
+        private List<String> values = null;
+
+        /**
+         * Creates a new batch.
+         */
+        Batch() {
+            this(0);
+        }
+
+        /**
+         * Creates a new batch whose maps are sized for the expected number of grants, so they are not rehashed
+         * while the grants are collected. The maps of a kind are only created if the batch has grants of the kind.
+         *
+         * @param expectedGrants The expected number of grants or <code>0</code> if it's unknown.
+         */
+        Batch(int expectedGrants) {
+            // every grant may have its own subject, more subjects than grants are not possible
+            capacity = expectedGrants <= 0 ? 16 : (int) Math.min(1 << 30, (long) (expectedGrants / 0.75f) + 1);
+        }
+
+        @Override
+        public void accept(PermissionGrant grant) {
+            if (grant.getKind() != lastKind || !grant.getSubject().equals(lastSubject)) {
+                lastKind = grant.getKind();
+                lastSubject = grant.getSubject();
+                HashMap<String, List<String>> subjects = grants.get(lastKind);
+                if (subjects == null) {
+                    subjects = new HashMap<>(capacity);
+                    grants.put(lastKind, subjects);
+                }
+                values = subjects.get(lastSubject);
+                if (values == null) {
+                    values = new ArrayList<>();
+                    subjects.put(lastSubject, values);
+                }
+            }
+            values.add(grant.getValue());
+            size++;
+        }
+
+    }
+
+    /**
+     * Gets the number of grants, e.g. to size the batch of a reload.
+     *
+     * @return The number of grants.
+     */
+    synchronized int getGrantCount() {
+        return grantCount;
+    }
+
+    /**
+     * Passes all grants to the given consumer.
+     * The permissions can't be modified while they are exported.
+     *
+     * @param consumer The consumer.
+     */
+    synchronized void exportGrants(Consumer<? super PermissionGrant> consumer) {
+        for (PermissionGrant.Kind kind : PermissionGrant.Kind.values()) {
+            for (Map.Entry<String, List<String>> entry : getMap(kind).entrySet()) {
+                for (String value : entry.getValue()) {
+                    consumer.accept(new PermissionGrant(kind, entry.getKey(), value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the ids of the users and roles which have grants again and invalidates the caches.
+     * This is only required after the maps were modified directly.
+     */
+    synchronized void refresh() {
+        usersWithGrants.clear();
+        rolesWithGroups.clear();
+        grantCount = 0;
+        for (PermissionGrant.Kind kind : PermissionGrant.Kind.values()) {
+            for (Map.Entry<String, List<String>> entry : getMap(kind).entrySet()) {
+                indexSubject(kind, entry.getKey());
+                grantCount += entry.getValue().size();
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Remembers the id of a user or role which has grants.
+     * Must be called while holding the lock.
+     *
+     * @param kind The kind of the grants.
+     * @param subject The subject of the grants.
+     */
+    private void indexSubject(PermissionGrant.Kind kind, String subject) {
+        ConcurrentLongSet ids;
+        switch (kind) {
+            case USER_PERMISSION:
+            case USER_GROUP:
+                ids = usersWithGrants;
+                break;
+            case ROLE_GROUP:
+                ids = rolesWithGroups;
+                break;
+            default:
+                return;
+        }
+        long id = parseId(subject);
+        if (id != 0) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Gets the map which stores the grants of the given kind.
+     *
+     * @param kind The kind of the grants.
+     * @return The map which stores the grants.
+     */
+    private HashMap<String, List<String>> getMap(PermissionGrant.Kind kind) {
+        switch (kind) {
+            case USER_PERMISSION:
+                return userPermissions;
+            case GROUP_PERMISSION:
+                return groupPermissions;
+            case GROUP_PARENT:
+                return groupParents;
+            case USER_GROUP:
+                return userGroups;
+            case ROLE_GROUP:
+                return roleGroups;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    /**
+     * Clears all cached bitsets.
+     */
+    synchronized void invalidate() {
+        userCache.clear();
+        roleCache.clear();
+        groupCache.clear();
+    }
+
+    /**
+     * Checks if there are roles which are bound to a group.
+     *
+     * @return Whether there are roles which are bound to a group or not.
+     */
+    boolean hasRoleGroups() {
+        return !rolesWithGroups.isEmpty();
+    }
+
+    /**
+     * Checks if the user has the permission with the given bit index.
+     *
+     * @param userId The id of the user.
+     * @param index The bit index of the permission.
+     * @return Whether the user has the permission or not.
+     */
+    boolean userHas(long userId, int index) {
+        long[] bits = userCache.get(userId);
+        if (bits == null) {
+            if (!usersWithGrants.contains(userId)) {
+                return false;
+            }
+            bits = computeUserBits(userId);
+        }
+        return test(bits, index);
+    }
+
+    /**
+     * Checks if the role has the permission with the given bit index.
+     *
+     * @param roleId The id of the role.
+     * @param index The bit index of the permission.
+     * @return Whether the role has the permission or not.
+     */
+    boolean roleHas(long roleId, int index) {
+        long[] bits = roleCache.get(roleId);
+        if (bits == null) {
+            if (!rolesWithGroups.contains(roleId)) {
+                return false;
+            }
+            bits = computeRoleBits(roleId);
+        }
+        return test(bits, index);
+    }
+
+    /**
+     * Checks if the user has the given permission.
+     *
+     * @param userId The id of the user.
+     * @param permission The permission.
+     * @return Whether the user has the permission or not.
+     */
+    boolean userHas(String userId, String permission) {
+        if (isNoPermission(permission)) {
+            return true;
+        }
+        Integer index = permissionIndices.get(permission);
+        long id = parseId(userId);
+        if (index != null && id != 0) {
+            return userHas(id, index);
+        }
+        // the permission is not used by a command, so it's not worth to intern it
+        synchronized (this) {
+            if (matchesAny(userPermissions.get(userId), permission)) {
+                return true;
+            }
+            List<String> groups = userGroups.get(userId);
+            if (groups != null) {
+                Set<String> visited = new HashSet<>();
+                for (String group : groups) {
+                    if (groupHas(group, permission, visited)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the group or one of its parents has the given permission.
+     * Must be called while holding the lock.
+     *
+     * @param group The name of the group.
+     * @param permission The permission.
+     * @param visited The already visited groups.
+     * @return Whether the group has the permission or not.
+     */
+    private boolean groupHas(String group, String permission, Set<String> visited) {
+        if (!visited.add(group)) {
+            return false;
+        }
+        if (matchesAny(groupPermissions.get(group), permission)) {
+            return true;
+        }
+        List<String> parents = groupParents.get(group);
+        if (parents != null) {
+            for (String parent : parents) {
+                if (groupHas(parent, permission, visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes and caches the bitset of the user.
+     *
+     * @param userId The id of the user.
+     * @return The bitset of the user.
+     */
+    private synchronized long[] computeUserBits(long userId) {
+        long[] bits = userCache.get(userId);
+        if (bits != null) {
+            return bits;
+        }
+        String key = Long.toString(userId);
+        List<String> permissions = userPermissions.get(key);
+        List<String> groups = userGroups.get(key);
+        if (permissions == null && groups == null) {
+            // don't cache users without any permissions, there may be millions of them
+            return EMPTY;
+        }
+        String[] interned = internedPermissions.get();
+        bits = new long[words(interned)];
+        addBits(bits, permissions, interned);
+        addGroupBits(bits, groups, interned);
+        userCache.put(userId, bits);
+        return bits;
+    }
+
+    /**
+     * Computes and caches the bitset of the role.
+     *
+     * @param roleId The id of the role.
+     * @return The bitset of the role.
+     */
+    private synchronized long[] computeRoleBits(long roleId) {
+        long[] bits = roleCache.get(roleId);
+        if (bits != null) {
+            return bits;
+        }
+        List<String> groups = roleGroups.get(Long.toString(roleId));
+        if (groups == null) {
+            return EMPTY;
+        }
+        String[] interned = internedPermissions.get();
+        bits = new long[words(interned)];
+        addGroupBits(bits, groups, interned);
+        roleCache.put(roleId, bits);
+        return bits;
+    }
+
+    /**
+     * Adds the bitsets of the groups to the given bitset.
+     * Must be called while holding the lock.
+     *
+     * @param bits The bitset.
+     * @param groups The names of the groups. May be <code>null</code>.
+     * @param interned The interned permissions the bitset is computed for.
+     */
+    private void addGroupBits(long[] bits, List<String> groups, String[] interned) {
+        if (groups == null) {
+            return;
+        }
+        for (String group : groups) {
+            long[] groupBits = computeGroupBits(group, interned);
+            // a group may have been cached before a permission was interned, the caches are invalidated right after
+            for (int i = 0; i < Math.min(bits.length, groupBits.length); i++) {
+                bits[i] |= groupBits[i];
+            }
+        }
+    }
+
+    /**
+     * Computes and caches the bitset of the group including the permissions of its parents.
+     * Must be called while holding the lock.
+     *
+     * @param group The name of the group.
+     * @param interned The interned permissions the bitset is computed for.
+     * @return The bitset of the group.
+     */
+    private long[] computeGroupBits(String group, String[] interned) {
+        long[] bits = groupCache.get(group);
+        if (bits != null) {
+            return bits;
+        }
+        bits = new long[words(interned)];
+        // collect the group and all of its (transitive) parents, cycles are ignored
+        Set<String> inherited = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        pending.add(group);
+        while (!pending.isEmpty()) {
+            String current = pending.remove(pending.size() - 1);
+            if (!inherited.add(current)) {
+                continue;
+            }
+            addBits(bits, groupPermissions.get(current), interned);
+            List<String> parents = groupParents.get(current);
+            if (parents != null) {
+                pending.addAll(parents);
+            }
+        }
+        groupCache.put(group, bits);
+        return bits;
+    }
+
+    /**
+     * Sets the bits of all interned permissions which are matched by one of the given permissions.
+     * Must be called while holding the lock.
+     *
+     * @param bits The bitset.
+     * @param permissions The permissions. May be <code>null</code>.
+     * @param interned The interned permissions the bitset is computed for.
+     */
+    private static void addBits(long[] bits, List<String> permissions, String[] interned) {
+        if (permissions == null) {
+            return;
+        }
+        for (int i = 0; i < interned.length; i++) {
+            if (matchesAny(permissions, interned[i])) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of words of a bitset.
+     *
+     * @param interned The interned permissions.
+     * @return The number of words of a bitset.
+     */
+    private static int words(String[] interned) {
+        return (interned.length + 63) >>> 6;
+    }
+
+    /**
+     * Tests the bit with the given index.
+     *
+     * @param bits The bitset.
+     * @param index The bit index.
+     * @return Whether the bit is set or not.
+     */
+    private static boolean test(long[] bits, int index) {
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Checks if one of the given permissions matches the required permission.
+     *
+     * @param permissions The permissions. May be <code>null</code>.
+     * @param required The permission which is required.
+     * @return Whether one of the given permissions matches or not.
+     */
+    private static boolean matchesAny(List<String> permissions, String required) {
+        if (permissions == null) {
+            return false;
+        }
+        for (String permission : permissions) {
+            if (checkPermission(permission, required)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the id of a user or role.
+     *
+     * @param id The id.
+     * @return The parsed id or <code>0</code> if it's not a valid id.
+     */
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Checks if the given permission means that no permission is required.
+     *
+     * @param permission The permission.
+     * @return Whether no permission is required or not.
+     */
+    static boolean isNoPermission(String permission) {
+        return permission.equals("none") || permission.equals("");
+    }
+
+    /**
+     * Checks if you are allowed to do something with the given permission.
+     *
+     * @param has The permission the user has.
+     * @param required The permission which is required.
+     * @return If you can use the command with the given permission.
+     */
+    static boolean checkPermission(String has, String required) {
+        String[] splitHas = has.split("\\.");
+        String[] splitRequired = required.split("\\.");
+        int lower = splitHas.length > splitRequired.length ? splitRequired.length : splitHas.length;
+        for (int i = 0; i < lower; i++) {
+            if (!splitHas[i].equalsIgnoreCase(splitRequired[i])) {
+                return splitHas[i].equals("*");
+            }
+        }
+        return splitRequired.length == splitHas.length;
+    }
+
+}
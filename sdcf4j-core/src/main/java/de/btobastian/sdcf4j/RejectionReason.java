@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * The reasons why a command was not executed.
+ */
+public enum RejectionReason {
+
+    /**
+     * The user doesn't have the required permissions.
+     */
+    MISSING_PERMISSIONS,
+
+    /**
+     * The arguments could not be converted.
+     */
+    INVALID_ARGUMENTS,
+
+    /**
+     * There are too many waiting commands for the server (or the user in private messages) or the executor
+     * rejected the command.
+     */
+    OVERLOADED,
+
+    /**
+     * The user has to wait until the cooldown of the command is over.
+     */
+    COOLDOWN,
+
+    /**
+     * The command already runs as often as it's allowed to.
+     */
+    BUSY,
+
+    /**
+     * The command is disabled in the server.
+     */
+    DISABLED
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * A message which was awaited with {@link CommandHandler#awaitReply(long, long, long, java.util.concurrent.TimeUnit)}.
+ * The reply is a snapshot of the message: unlike the {@link MessageContext} it doesn't refer to the event of the
+ * library, so it can be kept after the message was handled.
+ */
+public final class Reply {
+
+    private final String content;
+    private final long messageId;
+    private final long authorId;
+    private final long channelId;
+    private final long serverId;
+
+    /**
+     * Creates a new reply.
+     *
+     * @param content The content of the message.
+     * @param messageId The id of the message.
+     * @param authorId The id of the author.
+     * @param channelId The id of the channel.
+     * @param serverId The id of the server or <code>0</code> for private messages.
+     */
+    public Reply(String content, long messageId, long authorId, long channelId, long serverId) {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null!");
+        }
+        this.content = content;
+        this.messageId = messageId;
+        this.authorId = authorId;
+        this.channelId = channelId;
+        this.serverId = serverId;
+    }
+
+    /**
+     * Creates a snapshot of the message of a context.
+     *
+     * @param context The context of the message.
+     * @return The reply.
+     */
+    static Reply of(MessageContext context) {
+        return new Reply(context.getContent(), context.getMessageId(), context.getAuthorId(), context.getChannelId(),
+                context.getServerId());
+    }
+
+    /**
+     * Gets the content of the message.
+     *
+     * @return The content of the message.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the id of the message.
+     *
+     * @return The id of the message.
+     */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Gets the id of the author.
+     *
+     * @return The id of the author.
+     */
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * Gets the id of the channel.
+     *
+     * @return The id of the channel.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the id of the server.
+     *
+     * @return The id of the server or <code>0</code> for private messages.
+     */
+    public long getServerId() {
+        return serverId;
+    }
+
+    @Override
+    public String toString() {
+        return "Reply (message: " + messageId + ", author: " + authorId + ", channel: " + channelId + ")";
+    }
+
+}
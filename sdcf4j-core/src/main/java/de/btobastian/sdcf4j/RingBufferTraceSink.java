@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A trace sink which keeps the latest traces in memory.
+ * Old traces are overwritten, so the sink never blocks and never grows.
+ */
+public class RingBufferTraceSink implements TraceSink {
+
+    private final AtomicReferenceArray<DispatchTrace> traces;
+    private final int mask;
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * Creates a new sink.
+     *
+     * @param capacity The number of traces to keep. Rounded up to the next power of two.
+     */
+    public RingBufferTraceSink(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30!");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.traces = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void trace(DispatchTrace trace) {
+        traces.lazySet((int) written.getAndIncrement() & mask, trace);
+    }
+
+    /**
+     * Gets the number of traces which were passed to this sink, including the overwritten ones.
+     *
+     * @return The number of traces.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Gets the traces which are kept, from the oldest to the latest.
+     *
+     * @return The traces.
+     */
+    public List<DispatchTrace> getTraces() {
+        long end = written.get();
+        long start = Math.max(0, end - traces.length());
+        List<DispatchTrace> result = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            DispatchTrace trace = traces.get((int) i & mask);
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all traces.
+     */
+    public void clear() {
+        for (int i = 0; i < traces.length(); i++) {
+            traces.set(i, null);
+        }
+    }
+
+}
@@ -23,7 +23,29 @@ package de.btobastian.sdcf4j;
  */
 public enum Sdcf4jMessage {
 
-    MISSING_PERMISSIONS("You are not allowed to use this command!");
+    MISSING_PERMISSIONS("You are not allowed to use this command!"),
+
+    /**
+     * Sent if an argument cannot be converted to the type of the method's parameter.
+     * <code>%s</code> is replaced with the usage of the command.
+     */
+    INVALID_ARGUMENTS("Invalid arguments! Usage: %s"),
+
+    /**
+     * Sent if the user has to wait until the cooldown of the command is over.
+     * <code>%d</code> is replaced with the remaining seconds.
+     */
+    COOLDOWN("Please wait %d seconds before using this command again!"),
+
+    /**
+     * Sent if the command already runs as often as it's allowed to.
+     */
+    COMMAND_BUSY("This command is busy right now, please try again later!"),
+
+    /**
+     * Sent if the command is disabled in the server. Not sent by default.
+     */
+    COMMAND_DISABLED(null);
 
     private String message;
 
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * The keys by which the executions of a command can be serialized.
+ *
+ * @see Command#serialBy()
+ */
+public enum SerialKey {
+
+    /**
+     * The executions are not serialized.
+     */
+    NONE,
+
+    /**
+     * Commands in the same channel are executed one after another.
+     */
+    CHANNEL,
+
+    /**
+     * Commands in the same server (or from the same user in private messages) are executed one after another.
+     */
+    SERVER,
+
+    /**
+     * Commands of the same user are executed one after another.
+     */
+    USER
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Stores the state which is shared between handlers: permissions, cooldowns and processed messages.
+ * By default every handler uses a {@link LocalStateBackend}. A shared backend (like the {@link FileStateBackend})
+ * lets several bot processes use the same state.
+ * The handler keeps a local copy of the permissions and only reloads it if the
+ * {@link #getPermissionVersion() version} changed, so reading the version must be cheap.
+ */
+public interface StateBackend extends Closeable {
+
+    /**
+     * Gets the version of the permissions. The version changes whenever the permissions are modified.
+     * A backend whose permissions were never written has the version <code>0</code>.
+     *
+     * @return The version of the permissions.
+     */
+    long getPermissionVersion();
+
+    /**
+     * Reads all permissions.
+     *
+     * @param consumer The consumer which receives the grants.
+     * @throws IOException If the permissions cannot be read.
+     */
+    void readPermissions(Consumer<? super PermissionGrant> consumer) throws IOException;
+
+    /**
+     * Reads the grants which were added after the given version, so a handler doesn't have to read all
+     * permissions again if only a few grants were added.
+     * The default implementation doesn't know the changes, so the handler always reads all permissions.
+     *
+     * @param version The version of the permissions the caller already has.
+     * @param consumer The consumer which receives the added grants.
+     * @return The version of the permissions after the added grants or <code>-1</code> if the changes are not
+     *         known (e.g. because the permissions were replaced) and all permissions must be read.
+     * @throws IOException If the permissions cannot be read.
+     */
+    default long readPermissionsSince(long version, Consumer<? super PermissionGrant> consumer) throws IOException {
+        return -1;
+    }
+
+    /**
+     * Writes the given grants. The grants must be consumed in order.
+     *
+     * @param grants The grants to add.
+     * @param replace Whether the grants replace all existing permissions or are added to them.
+     * @return The new version of the permissions.
+     * @throws IOException If the permissions cannot be written.
+     */
+    long writePermissions(Iterator<? extends PermissionGrant> grants, boolean replace) throws IOException;
+
+    /**
+     * Tries to start the cooldown of a user for a command.
+     * Both parts of the key must be compared in full, so cooldowns of different users or commands never collide.
+     *
+     * @param userId The id of the user.
+     * @param command The key of the command (its lower case main alias), which is the same in every process.
+     * @param cooldownMillis The duration of the cooldown in milliseconds.
+     * @return <code>0</code> if the cooldown was started or the remaining milliseconds of the running cooldown.
+     */
+    long tryStartCooldown(long userId, String command, long cooldownMillis);
+
+    /**
+     * Marks the message as processed.
+     *
+     * @param messageId The id of the message.
+     * @param ttlMillis How long the message should be remembered in milliseconds.
+     * @return <code>true</code> if the message was not processed before.
+     */
+    boolean markProcessed(long messageId, long ttlMillis);
+
+}
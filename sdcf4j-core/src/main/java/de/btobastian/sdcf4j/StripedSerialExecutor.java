@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An executor which executes tasks with the same key one after another in the order they were submitted,
+ * while tasks with different keys are executed in parallel.
+ * The keys are mapped to a fixed number of stripes. Every stripe works like an actor: it has a lock-free queue
+ * and is scheduled on the underlying executor whenever it has tasks. Keys which share a stripe are serialized, too,
+ * so the number of stripes should be much larger than the number of threads.
+ */
+public class StripedSerialExecutor {
+
+    /**
+     * The maximum number of tasks a stripe executes before it gives the thread back to the executor.
+     */
+    private static final int MAX_TASKS_PER_RUN = 64;
+
+    private final Executor executor;
+    private final Stripe[] stripes;
+    private final int shift;
+
+    /**
+     * Creates a new striped serial executor.
+     *
+     * @param executor The executor which runs the stripes.
+     * @param stripes The number of stripes. It's rounded up to the next power of two.
+     */
+    public StripedSerialExecutor(Executor executor, int stripes) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null!");
+        }
+        if (stripes < 1 || stripes > 1 << 30) {
+            throw new IllegalArgumentException("Stripes must be between 1 and 2^30!");
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+        this.executor = executor;
+        this.stripes = new Stripe[1 << bits];
+        this.shift = 64 - bits;
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Executes the task after all previously submitted tasks with the same key.
+     *
+     * @param key The key, e.g. the id of a channel.
+     * @param task The task.
+     */
+    public void execute(long key, Runnable task) {
+        // fibonacci hashing spreads the snowflake ids evenly over the stripes
+        Stripe stripe = shift == 64 ? stripes[0] : stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> shift)];
+        stripe.tasks.offer(task);
+        try {
+            stripe.schedule();
+        } catch (RuntimeException e) {
+            // the caller sees the rejection, so the task must not run later
+            stripe.tasks.remove(task);
+            throw e;
+        }
+    }
+
+    /**
+     * A stripe which executes its tasks one after another.
+     */
+    private class Stripe implements Runnable {
+
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Schedules the stripe on the executor if it's not already scheduled.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int executed = 0; executed < MAX_TASKS_PER_RUN; executed++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // the stripe must keep working, the other keys of the stripe would stall otherwise
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                }
+            } finally {
+                // also reached if a task threw an error, otherwise the stripe would never run again.
+                // the flag is only reset after the last task finished, so the order is kept
+                scheduled.set(false);
+                // a task may have been added after the last poll, or this run gives other stripes a chance
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel which executes tasks after a delay.
+ * Scheduling and cancelling a task is O(1) and a pending task only needs a single node, so it's suited for
+ * many timeouts which are usually cancelled. The tasks are executed by a single daemon thread with a precision
+ * of one tick, so they must be short.
+ */
+final class TimingWheel {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger started = new AtomicInteger();
+    private final String threadName;
+    private volatile long startTime;
+
+    /**
+     * Creates a new timing wheel.
+     *
+     * @param tickDuration The duration of a tick.
+     * @param unit The unit of the tick duration.
+     * @param ticksPerWheel The number of buckets. Must be a power of two.
+     * @param threadName The name of the thread which executes the tasks.
+     */
+    TimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, String threadName) {
+        if (tickDuration <= 0 || Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("Invalid tick duration or wheel size!");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = ticksPerWheel - 1;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Schedules the task. The thread of the wheel is started with the first task.
+     *
+     * @param task The task.
+     * @param delay The delay.
+     * @param unit The unit of the delay.
+     * @return The timeout which can be used to cancel the task.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (started.get() == 0 && started.compareAndSet(0, 1)) {
+            startTime = System.nanoTime();
+            Thread thread = new Thread(this::run, threadName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(delay, 0)));
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Ticks the wheel until the JVM shuts down.
+     */
+    private void run() {
+        long tick = 0;
+        while (true) {
+            long sleepNanos = startTime + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ignored) { }
+                continue;
+            }
+            removeCancelled();
+            transferNewTimeouts(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Moves the new timeouts into their buckets.
+     *
+     * @param tick The current tick.
+     */
+    private void transferNewTimeouts(long tick) {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            long ticks = Math.max((timeout.deadline - startTime) / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Unlinks the cancelled timeouts from their buckets.
+     */
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // only accessed by the thread of the wheel
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        /**
+         * Creates a new timeout.
+         *
+         * @param task The task.
+         * @param deadline The deadline in nanoseconds.
+         */
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task.
+         *
+         * @return Whether the task was cancelled or not. A task which was already executed can't be cancelled.
+         */
+        boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+    }
+
+    /**
+     * A bucket of the wheel, a doubly linked list of timeouts.
+     * Only accessed by the thread of the wheel.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        /**
+         * Adds the timeout to the bucket.
+         *
+         * @param timeout The timeout.
+         */
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Removes the timeout from the bucket.
+         *
+         * @param timeout The timeout.
+         */
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Executes all timeouts of the bucket which are due in this round.
+         */
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                        try {
+                            timeout.task.run();
+                        } catch (Throwable t) {
+                            Thread thread = Thread.currentThread();
+                            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                        }
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+}
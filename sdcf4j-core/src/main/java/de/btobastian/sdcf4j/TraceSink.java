@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+/**
+ * Receives the traces of sampled commands.
+ * Traces are passed from the thread which finishes the command, so implementations must be thread-safe and fast.
+ */
+@FunctionalInterface
+public interface TraceSink {
+
+    /**
+     * Called after a sampled command was executed or rejected.
+     *
+     * @param trace The trace of the command.
+     */
+    void trace(DispatchTrace trace);
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A trigger annotation.
+ * Unlike a {@link Command}, a trigger reacts to keywords or patterns anywhere in a message. Every trigger that
+ * matches fires once. The keywords of all triggers are found in one pass over the message and a message which
+ * matches no pattern costs one scan of the combined patterns. A message which matches a pattern is searched once
+ * more for every pattern, so overlapping patterns all fire.
+ * The first <code>String</code> parameter of the method receives the matched text, the second one the whole
+ * message. Other parameters work like the parameters of a command.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Trigger {
+
+    /**
+     * Gets the keywords the executor should listen to. Keywords are matched case-insensitive and only as whole
+     * words, e.g. "he" doesn't match "the".
+     *
+     * @return The keywords the executor should listen to.
+     */
+    String[] keywords() default {};
+
+    /**
+     * Gets the regular expressions the executor should listen to.
+     * Numbered back references and named groups are not supported, because all patterns are combined into one
+     * to reject messages that match none of them.
+     *
+     * @return The regular expressions the executor should listen to.
+     */
+    String[] patterns() default {};
+
+    /**
+     * Gets whether the executor should listen to private messages or not.
+     *
+     * @return Whether the executor should listen to private messages or not.
+     */
+    boolean privateMessages() default true;
+
+    /**
+     * Gets whether the executor should listen to channel messages or not.
+     *
+     * @return Whether the executor should listen to channel messages or not.
+     */
+    boolean channelMessages() default true;
+
+    /**
+     * Gets the permissions required for a user to fire the trigger.
+     *
+     * @return The permissions required for a user to fire the trigger.
+     */
+    String requiredPermissions() default "none";
+
+    /**
+     * Gets whether the trigger should be executed async or not. If not the thread of the message listener is used.
+     * The parameters of an async trigger (including the values of a <code>Supplier</code>) are resolved before
+     * the trigger is handed over, because the context of the message is not thread-safe.
+     *
+     * @return Whether the trigger should be executed async or not.
+     */
+    boolean async() default false;
+
+    /**
+     * Gets the key by which the executions of the trigger are serialized.
+     * Works like {@link Command#serialBy()}. If set, the trigger is executed async.
+     *
+     * @return The key by which the executions of the trigger are serialized.
+     */
+    SerialKey serialBy() default SerialKey.NONE;
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches the keywords and patterns of many triggers against a message.
+ * The keywords are compiled into an Aho-Corasick automaton, so all of them are found in one pass over the message.
+ * Keywords only match whole words. The patterns are combined into one alternation, so a message which matches no
+ * pattern costs one scan. If the alternation matches, every pattern is searched on its own from there, so patterns
+ * which overlap all fire. A message which matches a pattern therefore costs one more scan per pattern.
+ * The matcher is immutable and thread-safe.
+ */
+final class TriggerMatcher {
+
+    private static final int[] NONE = new int[0];
+
+    private final int triggerCount;
+
+    // the keyword automaton, node 0 is the root
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failures;
+    private final int[][] outputTriggers;
+    private final int[][] outputLengths;
+
+    // the combined patterns or null if there are no patterns
+    private final Pattern combinedPattern;
+    private final Pattern[] patterns;
+    private final int[] patternTriggers;
+
+    /**
+     * Compiles the keywords and patterns of the triggers.
+     *
+     * @param keywords The keywords of every trigger.
+     * @param patterns The patterns of every trigger.
+     * @throws IllegalArgumentException If a pattern is invalid.
+     */
+    TriggerMatcher(List<String[]> keywords, List<String[]> patterns) {
+        triggerCount = keywords.size();
+
+        // build the trie
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<int[]>> outputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(new ArrayList<>());
+        for (int trigger = 0; trigger < triggerCount; trigger++) {
+            for (String keyword : keywords.get(trigger)) {
+                if (keyword.isEmpty()) {
+                    throw new IllegalArgumentException("Keywords cannot be empty!");
+                }
+                int node = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Integer child = children.get(node).get(c);
+                    if (child == null) {
+                        child = children.size();
+                        children.add(new TreeMap<>());
+                        outputs.add(new ArrayList<>());
+                        children.get(node).put(c, child);
+                    }
+                    node = child;
+                }
+                outputs.get(node).add(new int[] {trigger, keyword.length()});
+            }
+        }
+
+        int nodes = children.size();
+        edgeChars = new char[nodes][];
+        edgeTargets = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            TreeMap<Character, Integer> edges = children.get(node);
+            edgeChars[node] = new char[edges.size()];
+            edgeTargets[node] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[node][i] = edge.getKey();
+                edgeTargets[node][i++] = edge.getValue();
+            }
+        }
+
+        // compute the failure links breadth-first and merge the outputs of the failure nodes
+        failures = new int[nodes];
+        outputTriggers = new int[nodes][];
+        outputLengths = new int[nodes][];
+        outputTriggers[0] = NONE;
+        outputLengths[0] = NONE;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            List<int[]> output = outputs.get(node);
+            int failure = failures[node];
+            for (int i = 0; i < outputTriggers[failure].length; i++) {
+                output.add(new int[] {outputTriggers[failure][i], outputLengths[failure][i]});
+            }
+            outputTriggers[node] = new int[output.size()];
+            outputLengths[node] = new int[output.size()];
+            for (int i = 0; i < output.size(); i++) {
+                outputTriggers[node][i] = output.get(i)[0];
+                outputLengths[node][i] = output.get(i)[1];
+            }
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                int child = edgeTargets[node][i];
+                failures[child] = next(failure, edgeChars[node][i]);
+                queue.add(child);
+            }
+        }
+
+        // combine the patterns, every pattern is wrapped in a non-capturing group
+        StringBuilder combined = new StringBuilder();
+        List<Pattern> compiled = new ArrayList<>();
+        List<Integer> triggers = new ArrayList<>();
+        for (int trigger = 0; trigger < triggerCount; trigger++) {
+            for (String pattern : patterns.get(trigger)) {
+                try {
+                    compiled.add(Pattern.compile(pattern));
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid pattern " + pattern, e);
+                }
+                triggers.add(trigger);
+                if (combined.length() > 0) {
+                    combined.append('|');
+                }
+                combined.append("(?:").append(pattern).append(')');
+            }
+        }
+        this.patterns = compiled.toArray(new Pattern[0]);
+        patternTriggers = new int[triggers.size()];
+        for (int i = 0; i < patternTriggers.length; i++) {
+            patternTriggers[i] = triggers.get(i);
+        }
+        combinedPattern = compiled.isEmpty() ? null : Pattern.compile(combined.toString());
+    }
+
+    /**
+     * Follows the edge with the given char, falling back to the failure links.
+     *
+     * @param node The current node.
+     * @param c The char.
+     * @return The next node.
+     */
+    private int next(int node, char c) {
+        while (true) {
+            int index = Arrays.binarySearch(edgeChars[node], c);
+            if (index >= 0) {
+                return edgeTargets[node][index];
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = failures[node];
+        }
+    }
+
+    /**
+     * Matches all triggers against the given content.
+     * Every trigger fires at most once per message, with the first text that one of its keywords or patterns
+     * matched. A trigger whose keyword matched receives the keyword, even if one of its patterns matched earlier.
+     *
+     * @param content The content of the message.
+     * @return The first matched text of every trigger (<code>null</code> if the trigger didn't match) or
+     *         <code>null</code> if no trigger matched.
+     */
+    String[] match(String content) {
+        String[] matches = null;
+        if (edgeChars[0].length > 0) {
+            int node = 0;
+            for (int i = 0; i < content.length(); i++) {
+                node = next(node, Character.toLowerCase(content.charAt(i)));
+                int[] triggers = outputTriggers[node];
+                for (int j = 0; j < triggers.length; j++) {
+                    int start = i + 1 - outputLengths[node][j];
+                    if (!isWholeWord(content, start, i + 1)) {
+                        continue;
+                    }
+                    if (matches == null) {
+                        matches = new String[triggerCount];
+                    }
+                    if (matches[triggers[j]] == null) {
+                        matches[triggers[j]] = content.substring(start, i + 1);
+                    }
+                }
+            }
+        }
+        if (combinedPattern != null) {
+            Matcher combined = combinedPattern.matcher(content);
+            if (!combined.find()) {
+                return matches;
+            }
+            // no pattern can match before the first match of the alternation
+            int start = combined.start();
+            for (int i = 0; i < patterns.length; i++) {
+                int trigger = patternTriggers[i];
+                if (matches != null && matches[trigger] != null) {
+                    continue;
+                }
+                Matcher matcher = patterns[i].matcher(content);
+                if (matcher.find(start)) {
+                    if (matches == null) {
+                        matches = new String[triggerCount];
+                    }
+                    matches[trigger] = matcher.group();
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Checks if the matched keyword is a whole word, e.g. "he" in "he said" but not in "the".
+     * Like <code>\b</code> in a regular expression, a keyword which starts or ends with a non-word character
+     * (e.g. "c++") doesn't need a boundary on that side.
+     *
+     * @param content The content of the message.
+     * @param start The start of the keyword (inclusive).
+     * @param end The end of the keyword (exclusive).
+     * @return Whether the keyword is a whole word or not.
+     */
+    private static boolean isWholeWord(String content, int start, int end) {
+        boolean startsWord = start == 0 || !isWordChar(content.charAt(start - 1))
+                || !isWordChar(content.charAt(start));
+        boolean endsWord = end == content.length() || !isWordChar(content.charAt(end))
+                || !isWordChar(content.charAt(end - 1));
+        return startsWord && endsWord;
+    }
+
+    /**
+     * Checks if the character is part of a word.
+     *
+     * @param c The character.
+     * @return Whether the character is part of a word or not.
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.audit;
+
+import de.btobastian.sdcf4j.RejectionReason;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An append-only log of all command executions.
+ * Recording an execution only claims and fills a slot of a lock-free ring buffer. A background thread drains the
+ * buffer into memory-mapped segment files, every record is prefixed with its length. If the buffer is full, records
+ * are dropped instead of blocking the command. The segments can be read with {@link AuditLogReader}.
+ * If a segment cannot be written, the writer stops, the log is {@link #isFailed() failed} and drops all further
+ * records, and the exception is passed to {@link #writeFailed(IOException)}.
+ */
+public class AuditLog implements Closeable {
+
+    /**
+     * The maximum number of bytes of the content which are stored per record.
+     */
+    private static final int MAX_CONTENT_BYTES = 8192;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean writerWaiting = false;
+    private volatile IOException failure;
+
+    // only accessed by the writer thread
+    private int segmentIndex;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+
+    /**
+     * Creates a new audit log with a buffer of 8192 records and segments of 64 MiB.
+     *
+     * @param directory The directory of the segments.
+     * @throws IOException If the first segment cannot be created.
+     */
+    public AuditLog(Path directory) throws IOException {
+        this(directory, 8192, 64 * 1024 * 1024);
+    }
+
+    /**
+     * Creates a new audit log.
+     *
+     * @param directory The directory of the segments.
+     * @param bufferSize The number of records which can be buffered. Must be a power of two.
+     * @param segmentSize The size of a segment file in bytes. Must be at least 64 KiB.
+     * @throws IOException If the first segment cannot be created.
+     */
+    public AuditLog(Path directory, int bufferSize, int segmentSize) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null!");
+        }
+        if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of two!");
+        }
+        if (segmentSize < 64 * 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 64 KiB!");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = bufferSize - 1;
+        Files.createDirectories(directory);
+        // never append to existing segments, a new log starts with a new segment
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "audit-*.seg")) {
+            for (Path path : segments) {
+                segmentIndex = Math.max(segmentIndex, AuditLogReader.getSegmentIndex(path));
+            }
+        }
+        openNextSegment();
+        writer = new Thread(this::drain, "sdcf4j-audit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records an execution or rejection of a command.
+     * This method never blocks. If the buffer is full, the record is dropped.
+     *
+     * @param userId The id of the user.
+     * @param serverId The id of the server or <code>0</code> for private messages.
+     * @param channelId The id of the channel.
+     * @param command The main alias of the command.
+     * @param content The content of the message.
+     * @param latencyNanos How long the execution took in nanoseconds.
+     * @param failed Whether the command threw an exception or not.
+     * @param rejection The reason why the command was rejected or <code>null</code> if it was executed.
+     * @return Whether the record was added or dropped.
+     */
+    public boolean record(long userId, long serverId, long channelId, String command, String content,
+                          long latencyNanos, boolean failed, RejectionReason rejection) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length || !running) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.timestamp = System.currentTimeMillis();
+        slot.userId = userId;
+        slot.serverId = serverId;
+        slot.channelId = channelId;
+        slot.command = command;
+        slot.content = content;
+        slot.latencyNanos = latencyNanos;
+        slot.outcome = AuditRecord.encodeOutcome(failed, rejection);
+        // publishes the slot to the writer
+        slot.sequence = sequence + 1;
+        // both fields are volatile, so either the writer sees the slot or this thread sees the waiting writer
+        if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of records which were dropped, because the buffer was full.
+     *
+     * @return The number of dropped records.
+     */
+    public long getDroppedRecords() {
+        return dropped.get();
+    }
+
+    /**
+     * Checks if the writer stopped, because a segment could not be written.
+     * A failed log drops all records.
+     *
+     * @return Whether the log failed or not.
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Stops the writer after all buffered records were written.
+     *
+     * @throws IOException If the last segment cannot be closed or the writer failed before.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Called by the writer thread if a segment cannot be written. The log is already failed when this is called.
+     * By default, the exception is passed to the uncaught exception handler of the writer thread.
+     *
+     * @param e The exception.
+     */
+    protected void writeFailed(IOException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Writes the published records to the segments until the log is closed.
+     * If there's no published record, the writer parks until a record is published or the log is closed.
+     */
+    private void drain() {
+        long next = tail.get();
+        try {
+            while (running || next != head.get()) {
+                Slot slot = slots[(int) (next & mask)];
+                if (slot.sequence != next + 1) {
+                    // the slot is not published yet, the thread which publishes it unparks the writer
+                    writerWaiting = true;
+                    if (slot.sequence != next + 1 && running) {
+                        LockSupport.park(this);
+                    }
+                    writerWaiting = false;
+                    continue;
+                }
+                write(slot);
+                slot.command = null;
+                slot.content = null;
+                tail.lazySet(++next);
+            }
+            segment.force();
+            segmentChannel.close();
+        } catch (IOException e) {
+            failure = e;
+            running = false;
+            try {
+                segmentChannel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            writeFailed(e);
+        }
+    }
+
+    /**
+     * Writes a record to the current segment and opens the next segment if it's full.
+     *
+     * @param slot The slot of the record.
+     * @throws IOException If the next segment cannot be created.
+     */
+    private void write(Slot slot) throws IOException {
+        byte[] command = slot.command.getBytes(StandardCharsets.UTF_8);
+        byte[] content = slot.content == null ? new byte[0] : slot.content.getBytes(StandardCharsets.UTF_8);
+        int contentLength = truncate(content, MAX_CONTENT_BYTES);
+        int commandLength = truncate(command, Short.MAX_VALUE);
+        int length = 8 * 5 + 1 + 2 + commandLength + 4 + contentLength;
+        // the length prefix of an empty record marks the end of the segment
+        if (segment.remaining() < 4 + length + 4) {
+            segment.force();
+            segmentChannel.close();
+            openNextSegment();
+        }
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.putLong(slot.timestamp);
+        segment.putLong(slot.userId);
+        segment.putLong(slot.serverId);
+        segment.putLong(slot.channelId);
+        segment.putLong(slot.latencyNanos);
+        segment.put(slot.outcome);
+        segment.putShort((short) commandLength);
+        segment.put(command, 0, commandLength);
+        segment.putInt(contentLength);
+        segment.put(content, 0, contentLength);
+        // the length is written last, so readers never see a partial record
+        segment.putInt(start, length);
+    }
+
+    /**
+     * Gets the length the UTF-8 encoded text is cut to, so the cut doesn't split a character.
+     *
+     * @param utf8 The UTF-8 encoded text.
+     * @param maxLength The maximum length.
+     * @return The length of the cut text.
+     */
+    private static int truncate(byte[] utf8, int maxLength) {
+        if (utf8.length <= maxLength) {
+            return utf8.length;
+        }
+        int length = maxLength;
+        // continuation bytes (10xxxxxx) belong to the character which starts before them
+        while (length > 0 && (utf8[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Creates and maps the next segment.
+     *
+     * @throws IOException If the segment cannot be created.
+     */
+    private void openNextSegment() throws IOException {
+        Path path = directory.resolve(AuditLogReader.getSegmentName(++segmentIndex));
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    /**
+     * A slot of the ring buffer.
+     */
+    private static final class Slot {
+
+        // the sequence of the record plus one, written last to publish the record
+        private volatile long sequence;
+
+        private long timestamp;
+        private long userId;
+        private long serverId;
+        private long channelId;
+        private String command;
+        private String content;
+        private long latencyNanos;
+        private byte outcome;
+    }
+
+}
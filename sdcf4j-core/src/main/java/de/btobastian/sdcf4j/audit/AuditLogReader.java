@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the segments which were written by an {@link AuditLog}.
+ * The reader can be used while the log is written, it reads all records which were written so far.
+ */
+public final class AuditLogReader {
+
+    private AuditLogReader() { }
+
+    /**
+     * Reads all records of the segments in the given directory in the order they were written.
+     *
+     * @param directory The directory of the segments.
+     * @param consumer The consumer which receives the records.
+     * @throws IOException If a segment cannot be read.
+     */
+    public static void read(Path directory, Consumer<? super AuditRecord> consumer) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "audit-*.seg")) {
+            for (Path path : segments) {
+                paths.add(path);
+            }
+        }
+        paths.sort(Comparator.comparingInt(AuditLogReader::getSegmentIndex));
+        for (Path path : paths) {
+            readSegment(path, consumer);
+        }
+    }
+
+    /**
+     * Reads all records of a segment.
+     *
+     * @param path The path of the segment.
+     * @param consumer The consumer which receives the records.
+     * @throws IOException If the segment cannot be read.
+     */
+    public static void readSegment(Path path, Consumer<? super AuditRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (segment.remaining() >= 4) {
+                int length = segment.getInt();
+                if (length <= 0 || length > segment.remaining()) {
+                    // the rest of the segment was not written (yet)
+                    break;
+                }
+                long timestamp = segment.getLong();
+                long userId = segment.getLong();
+                long serverId = segment.getLong();
+                long channelId = segment.getLong();
+                long latencyNanos = segment.getLong();
+                byte outcome = segment.get();
+                byte[] command = new byte[segment.getShort()];
+                segment.get(command);
+                byte[] content = new byte[segment.getInt()];
+                segment.get(content);
+                consumer.accept(new AuditRecord(timestamp, userId, serverId, channelId,
+                        new String(command, StandardCharsets.UTF_8), new String(content, StandardCharsets.UTF_8),
+                        latencyNanos, outcome));
+            }
+        }
+    }
+
+    /**
+     * Gets the file name of the segment with the given index.
+     *
+     * @param index The index of the segment.
+     * @return The file name of the segment.
+     */
+    static String getSegmentName(int index) {
+        return String.format("audit-%010d.seg", index);
+    }
+
+    /**
+     * Gets the index of the segment with the given path.
+     *
+     * @param path The path of the segment.
+     * @return The index of the segment or <code>0</code> if the path is not a segment.
+     */
+    static int getSegmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring("audit-".length(), name.length() - ".seg".length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Prints all records of the segments in the given directory.
+     *
+     * @param args The directory of the segments.
+     * @throws IOException If a segment cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AuditLogReader <directory>");
+            return;
+        }
+        read(Paths.get(args[0]), System.out::println);
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.audit;
+
+import de.btobastian.sdcf4j.RejectionReason;
+
+/**
+ * A record of the audit log: one execution or rejection of a command.
+ */
+public final class AuditRecord {
+
+    static final byte SUCCESS = 0;
+    static final byte FAILED = 1;
+    static final byte REJECTED = 2;
+
+    private final long timestamp;
+    private final long userId;
+    private final long serverId;
+    private final long channelId;
+    private final String command;
+    private final String content;
+    private final long latencyNanos;
+    private final byte outcome;
+
+    /**
+     * Creates a new record.
+     *
+     * @param timestamp The time of the record in milliseconds since the epoch.
+     * @param userId The id of the user.
+     * @param serverId The id of the server or <code>0</code> for private messages.
+     * @param channelId The id of the channel.
+     * @param command The main alias of the command.
+     * @param content The content of the message.
+     * @param latencyNanos How long the execution took in nanoseconds.
+     * @param outcome The encoded outcome.
+     */
+    AuditRecord(long timestamp, long userId, long serverId, long channelId, String command, String content,
+                long latencyNanos, byte outcome) {
+        this.timestamp = timestamp;
+        this.userId = userId;
+        this.serverId = serverId;
+        this.channelId = channelId;
+        this.command = command;
+        this.content = content;
+        this.latencyNanos = latencyNanos;
+        this.outcome = outcome;
+    }
+
+    /**
+     * Encodes the outcome of a command.
+     *
+     * @param failed Whether the command threw an exception or not.
+     * @param rejection The reason why the command was rejected or <code>null</code> if it was executed.
+     * @return The encoded outcome.
+     */
+    static byte encodeOutcome(boolean failed, RejectionReason rejection) {
+        if (rejection != null) {
+            return (byte) (REJECTED + rejection.ordinal());
+        }
+        return failed ? FAILED : SUCCESS;
+    }
+
+    /**
+     * Gets the time of the record.
+     *
+     * @return The time of the record in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the id of the user who used the command.
+     *
+     * @return The id of the user.
+     */
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the id of the server the command was used in.
+     *
+     * @return The id of the server or <code>0</code> for private messages.
+     */
+    public long getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Gets the id of the channel the command was used in.
+     *
+     * @return The id of the channel.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the main alias of the command.
+     *
+     * @return The main alias of the command.
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Gets the content of the message, including the arguments.
+     *
+     * @return The content of the message.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Gets how long the execution took.
+     *
+     * @return The latency in nanoseconds or <code>0</code> if the command was rejected.
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * Checks if the command threw an exception.
+     *
+     * @return Whether the command threw an exception or not.
+     */
+    public boolean isFailed() {
+        return outcome == FAILED;
+    }
+
+    /**
+     * Gets the reason why the command was rejected.
+     *
+     * @return The reason or <code>null</code> if the command was executed.
+     */
+    public RejectionReason getRejectionReason() {
+        int ordinal = outcome - REJECTED;
+        RejectionReason[] reasons = RejectionReason.values();
+        return ordinal >= 0 && ordinal < reasons.length ? reasons[ordinal] : null;
+    }
+
+    @Override
+    public String toString() {
+        RejectionReason rejection = getRejectionReason();
+        String result = rejection != null ? rejection.name() : isFailed() ? "FAILED" : "SUCCESS";
+        return timestamp + " " + userId + " " + serverId + " " + channelId + " " + command + " " + result + " "
+                + latencyNanos + "ns " + content;
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the bytes an adapter allocates per message against a budget.
+ * Subclasses deliver stub events to the adapter on the test thread, so the allocations of synchronous commands are
+ * measured completely, including the stub event itself if it's created per message.
+ */
+public abstract class AbstractAllocationTest {
+
+    protected static final long SELF_ID = 1;
+    protected static final long SERVER_ID = 2;
+    protected static final long CHANNEL_ID = 3;
+    protected static final long AUTHOR_ID = 4;
+
+    private static final int WARMUP = 20_000;
+    private static final int RUNS = 20_000;
+
+    private final long ignoredBudget;
+    private final long rejectedBudget;
+    private final long executedBudget;
+    private final AtomicInteger executed = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param ignoredBudget The budget in bytes for a message which contains no command.
+     * @param rejectedBudget The budget in bytes for a message whose author is not allowed to use the command.
+     * @param executedBudget The budget in bytes for a message which executes a command and sends its reply.
+     */
+    protected AbstractAllocationTest(long ignoredBudget, long rejectedBudget, long executedBudget) {
+        this.ignoredBudget = ignoredBudget;
+        this.rejectedBudget = rejectedBudget;
+        this.executedBudget = executedBudget;
+    }
+
+    /**
+     * Skips the tests if the JVM can't measure allocations.
+     */
+    @BeforeClass
+    public static void checkSupported() {
+        assumeTrue("The JVM can't measure allocations", AllocationMeter.isSupported());
+    }
+
+    /**
+     * Prepares a message of {@link #AUTHOR_ID} in the channel {@link #CHANNEL_ID} of the server {@link #SERVER_ID}.
+     * The handler must have registered the {@link Commands} and pass its replies to {@link #replied(Object)}.
+     *
+     * @param content The content of the message.
+     * @return A task which delivers the message to the handler.
+     */
+    protected abstract Runnable message(String content);
+
+    /**
+     * Gets the handler which receives the messages.
+     *
+     * @return The handler.
+     */
+    protected abstract CommandHandler getHandler();
+
+    /**
+     * Called by the stubs if the handler sends a message.
+     *
+     * @param reply The sent message.
+     */
+    protected void replied(Object reply) {
+        if (Commands.PONG.equals(reply)) {
+            executed.incrementAndGet();
+        } else if (Sdcf4jMessage.MISSING_PERMISSIONS.getMessage().equals(reply)) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks a message which contains no command.
+     */
+    @Test
+    public void ignoredMessage() {
+        long allocated = AllocationMeter.measure(message("just chatting"), WARMUP, RUNS);
+        assertEquals(0, executed.get() + rejected.get());
+        assertBudget("An ignored message", allocated, ignoredBudget);
+    }
+
+    /**
+     * Checks that a command of an ignored author is dropped before its context is created, so it doesn't allocate.
+     */
+    @Test
+    public void ignoredAuthor() {
+        getHandler().addIgnoredUser(AUTHOR_ID);
+        long allocated = AllocationMeter.measure(message("!ping"), WARMUP, RUNS);
+        assertEquals(0, executed.get() + rejected.get());
+        assertBudget("A message of an ignored author", allocated, 0);
+    }
+
+    /**
+     * Checks a message whose author doesn't have the permission for the command.
+     */
+    @Test
+    public void rejectedMessage() {
+        long allocated = AllocationMeter.measure(message("!admin"), WARMUP, RUNS);
+        assertEquals(WARMUP + RUNS, rejected.get());
+        assertBudget("A rejected message", allocated, rejectedBudget);
+    }
+
+    /**
+     * Checks a message which executes a synchronous command and sends its reply.
+     */
+    @Test
+    public void executedMessage() {
+        long allocated = AllocationMeter.measure(message("!ping"), WARMUP, RUNS);
+        assertEquals(WARMUP + RUNS, executed.get());
+        assertBudget("An executed message", allocated, executedBudget);
+    }
+
+    /**
+     * Fails if the allocated bytes exceed the budget.
+     *
+     * @param name The name of the message which is used in the error message.
+     * @param allocated The allocated bytes per message.
+     * @param budget The budget in bytes per message.
+     */
+    private static void assertBudget(String name, long allocated, long budget) {
+        assertTrue(name + " allocates " + allocated + " bytes, but the budget is " + budget + " bytes",
+                allocated <= budget);
+    }
+
+    /**
+     * The commands of the tests.
+     */
+    public static class Commands implements CommandExecutor {
+
+        static final String PONG = "pong";
+
+        /**
+         * A command everyone can use.
+         *
+         * @return The reply.
+         */
+        @Command(aliases = "!ping")
+        public String ping() {
+            return PONG;
+        }
+
+        /**
+         * A command nobody in the tests has the permission for.
+         *
+         * @return The reply.
+         */
+        @Command(aliases = "!admin", requiredPermissions = "admin")
+        public String admin() {
+            return "done";
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated by the current thread.
+ * It requires a JVM which supports <code>com.sun.management.ThreadMXBean</code> (like HotSpot and OpenJ9).
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+
+    private AllocationMeter() { }
+
+    /**
+     * Gets the thread mx bean if it supports measuring allocations.
+     *
+     * @return The thread mx bean or <code>null</code> if measuring allocations is not supported.
+     */
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (!sunBean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return sunBean;
+        } catch (LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if measuring allocations is supported by the JVM.
+     *
+     * @return Whether measuring allocations is supported or not.
+     */
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null;
+    }
+
+    /**
+     * Gets the total number of bytes the current thread allocated so far.
+     *
+     * @return The allocated bytes or <code>-1</code> if measuring allocations is not supported.
+     */
+    public static long getAllocatedBytes() {
+        return THREAD_MX_BEAN == null ? -1 : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the average number of bytes the task allocates in the current thread.
+     * The task is run <code>warmup</code> times before the measurement to let the JIT compiler optimize it.
+     *
+     * @param task The task.
+     * @param warmup The number of runs before the measurement.
+     * @param runs The number of measured runs.
+     * @return The average allocated bytes per run or <code>-1</code> if measuring allocations is not supported.
+     */
+    public static long measure(Runnable task, int warmup, int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("Runs must be at least 1!");
+        }
+        if (!isSupported()) {
+            return -1;
+        }
+        for (int i = 0; i < warmup; i++) {
+            task.run();
+        }
+        // the measurement itself allocates nothing, so there's no need to subtract an offset
+        long start = getAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            task.run();
+        }
+        return (getAllocatedBytes() - start) / runs;
+    }
+
+}
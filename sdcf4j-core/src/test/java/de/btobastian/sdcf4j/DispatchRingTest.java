@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link DispatchRing}.
+ */
+public class DispatchRingTest {
+
+    private DispatchRing ring;
+
+    /**
+     * Closes the ring.
+     */
+    @After
+    public void tearDown() {
+        if (ring != null) {
+            ring.close();
+        }
+    }
+
+    /**
+     * Checks that the messages of a channel are handled in the order they were published.
+     *
+     * @throws InterruptedException If the test was interrupted.
+     */
+    @Test
+    public void keepsOrderPerChannel() throws InterruptedException {
+        final int channels = 16;
+        final int messages = 2000;
+        final Map<Long, List<Long>> handled = new HashMap<>();
+        final CountDownLatch done = new CountDownLatch(channels * messages);
+        ring = new DispatchRing(64, 4, 8);
+        ring.setMaxWait(10, TimeUnit.SECONDS);
+        ring.start(context -> {
+            synchronized (handled) {
+                handled.computeIfAbsent(context.getChannelId(), id -> new ArrayList<>()).add(context.getMessageId());
+            }
+            done.countDown();
+        });
+        for (long id = 0; id < messages; id++) {
+            for (long channel = 1; channel <= channels; channel++) {
+                assertTrue(ring.publish(new TestContext(id, channel)));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Long> ids : handled.values()) {
+            assertEquals(messages, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i, (long) ids.get(i));
+            }
+        }
+        assertEquals(0, ring.getDroppedMessages());
+    }
+
+    /**
+     * Checks that a full buffer drops messages right away or after the maximum wait.
+     *
+     * @throws InterruptedException If the test was interrupted.
+     */
+    @Test
+    public void fullBufferDropsMessages() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        ring = new DispatchRing(2, 1);
+        ring.start(context -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        assertTrue(ring.publish(new TestContext(1, 1)));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        // the consumer is blocked by the first message, so the buffer takes two more
+        assertTrue(ring.publish(new TestContext(2, 1)));
+        assertTrue(ring.publish(new TestContext(3, 1)));
+        assertEquals(2, ring.getBacklog());
+        assertFalse(ring.publish(new TestContext(4, 1)));
+        assertEquals(1, ring.getDroppedMessages());
+
+        ring.setMaxWait(20, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        assertFalse(ring.publish(new TestContext(5, 1)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(2, ring.getDroppedMessages());
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Checks that a closed ring handles the published messages and drops new ones.
+     *
+     * @throws InterruptedException If the test was interrupted.
+     */
+    @Test
+    public void closedRingDropsMessages() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        ring = new DispatchRing(4, 1);
+        ring.start(context -> done.countDown());
+        assertTrue(ring.publish(new TestContext(1, 1)));
+        ring.close();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse(ring.publish(new TestContext(2, 1)));
+        assertEquals(1, ring.getDroppedMessages());
+    }
+
+    /**
+     * Checks that a consumer keeps handling messages after the handler threw an exception.
+     *
+     * @throws InterruptedException If the test was interrupted.
+     */
+    @Test
+    public void consumerSurvivesErrors() throws InterruptedException {
+        final List<Throwable> reported = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            synchronized (reported) {
+                reported.add(e);
+            }
+        });
+        try {
+            ring = new DispatchRing(4, 1);
+            ring.start(context -> {
+                if (context.getMessageId() == 1) {
+                    throw new AssertionError("Failed");
+                }
+                done.countDown();
+            });
+            assertTrue(ring.publish(new TestContext(1, 1)));
+            assertTrue(ring.publish(new TestContext(2, 1)));
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        synchronized (reported) {
+            assertEquals(1, reported.size());
+            assertEquals("Failed", reported.get(0).getMessage());
+        }
+    }
+
+    /**
+     * The context of a message without a platform.
+     */
+    private static class TestContext extends MessageContext {
+
+        private final long messageId;
+        private final long channelId;
+
+        /**
+         * Creates a new context.
+         *
+         * @param messageId The id of the message.
+         * @param channelId The id of the channel.
+         */
+        private TestContext(long messageId, long channelId) {
+            this.messageId = messageId;
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getContent() {
+            return "";
+        }
+
+        @Override
+        public void sendMessage(String message) { }
+
+        @Override
+        public long getMessageId() {
+            return messageId;
+        }
+
+        @Override
+        public long getAuthorId() {
+            return 10;
+        }
+
+        @Override
+        public long getChannelId() {
+            return channelId;
+        }
+
+        @Override
+        public long getServerId() {
+            return 20;
+        }
+
+        @Override
+        public long getSelfId() {
+            return 1;
+        }
+
+        @Override
+        protected Object resolve(Class<?> type) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the {@link FairScheduler}.
+ */
+public class FairSchedulerTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    /**
+     * Stops the threads of the tests.
+     */
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Checks that the keys are served round-robin.
+     */
+    @Test
+    public void keysAreServedRoundRobin() {
+        List<Runnable> workers = new ArrayList<>();
+        FairScheduler scheduler = new FairScheduler(workers::add, 1);
+        List<String> order = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String name = "a" + i;
+            scheduler.execute(1, () -> order.add(name));
+        }
+        for (int i = 1; i <= 2; i++) {
+            String name = "b" + i;
+            scheduler.execute(2, () -> order.add(name));
+        }
+        assertEquals(1, workers.size());
+        workers.get(0).run();
+        assertEquals(Arrays.asList("a1", "b1", "a2", "b2", "a3"), order);
+    }
+
+    /**
+     * Checks that no more tasks of a key than allowed run at the same time, while other keys still run.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void concurrencyIsLimitedPerKey() throws InterruptedException {
+        FairScheduler scheduler = new FairScheduler(pool, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherKey = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            scheduler.execute(1, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await(release);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        scheduler.execute(2, otherKey::countDown);
+        assertTrue(otherKey.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    /**
+     * Checks that a raised limit lets the waiting tasks of an existing key start.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void raisedLimitAppliesToExistingKeys() throws InterruptedException {
+        FairScheduler scheduler = new FairScheduler(pool, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.execute(1, () -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertFalse(started.await(100, TimeUnit.MILLISECONDS));
+        scheduler.setMaxConcurrencyPerKey(2);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    /**
+     * Checks that tasks which exceed the queue limit of their key are rejected.
+     */
+    @Test
+    public void queueIsLimitedPerKey() {
+        FairScheduler scheduler = new FairScheduler(task -> { }, 1);
+        scheduler.setMaxQueuedPerKey(2);
+        assertTrue(scheduler.execute(1, () -> { }));
+        assertTrue(scheduler.execute(1, () -> { }));
+        assertFalse(scheduler.execute(1, () -> { }));
+        assertTrue(scheduler.execute(2, () -> { }));
+    }
+
+    /**
+     * Checks that a task whose worker can't be started is taken back and the key keeps working.
+     */
+    @Test
+    public void rejectedWorkerTakesTaskBack() {
+        AtomicBoolean reject = new AtomicBoolean(true);
+        List<Runnable> workers = new ArrayList<>();
+        FairScheduler scheduler = new FairScheduler(task -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            workers.add(task);
+        }, 1);
+        List<String> order = new ArrayList<>();
+        try {
+            scheduler.execute(1, () -> order.add("rejected"));
+            fail("The rejection was not passed to the caller");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        reject.set(false);
+        scheduler.execute(1, () -> order.add("accepted"));
+        assertEquals(1, workers.size());
+        workers.get(0).run();
+        assertEquals(Collections.singletonList("accepted"), order);
+    }
+
+    /**
+     * Checks that a throwing task is reported to the uncaught exception handler and doesn't stop its key.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void throwingTaskIsReported() throws InterruptedException {
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        FairScheduler scheduler = new FairScheduler(task -> {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> reported.set(e));
+            thread.start();
+        }, 1);
+        RuntimeException error = new IllegalStateException("test");
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(1, () -> {
+            throw error;
+        });
+        scheduler.execute(1, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(error, reported.get());
+    }
+
+    /**
+     * Waits for the latch without throwing a checked exception.
+     *
+     * @param latch The latch.
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link FileStateBackend}. Two backends on the same directory play the roles of two processes.
+ */
+public class FileStateBackendTest {
+
+    private static final PermissionGrant KICK = new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "10", "kick");
+    private static final PermissionGrant BAN = new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "10", "ban");
+    private static final PermissionGrant MUTE = new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "11", "mute");
+
+    private Path directory;
+    private FileStateBackend first;
+    private FileStateBackend second;
+
+    /**
+     * Opens both backends.
+     *
+     * @throws IOException If the files cannot be opened.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sdcf4j");
+        first = new FileStateBackend(directory, 64);
+        second = new FileStateBackend(directory, 64);
+    }
+
+    /**
+     * Closes both backends and deletes the files.
+     *
+     * @throws IOException If the files cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        first.close();
+        second.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Checks that only the grants which were appended since the last read are read again.
+     *
+     * @throws IOException If the permissions cannot be read or written.
+     */
+    @Test
+    public void readsAppendedTail() throws IOException {
+        first.writePermissions(Collections.singletonList(KICK).iterator(), false);
+        List<PermissionGrant> grants = new ArrayList<>();
+        second.readPermissions(grants::add);
+        assertEquals(Collections.singletonList(KICK), grants);
+
+        long version = first.writePermissions(Arrays.asList(BAN, MUTE).iterator(), false);
+        grants.clear();
+        assertEquals(version, second.readPermissionsSince(version - 1, grants::add));
+        assertEquals(Arrays.asList(BAN, MUTE), grants);
+
+        // the backend which wrote the grants continues after them, too
+        long next = second.writePermissions(Collections.singletonList(KICK).iterator(), false);
+        grants.clear();
+        assertEquals(next, second.readPermissionsSince(next, grants::add));
+        assertTrue(grants.isEmpty());
+    }
+
+    /**
+     * Checks that all permissions must be read again after they were replaced.
+     *
+     * @throws IOException If the permissions cannot be read or written.
+     */
+    @Test
+    public void readsAllAfterCompaction() throws IOException {
+        first.writePermissions(Collections.singletonList(KICK).iterator(), false);
+        second.readPermissions(grant -> { });
+        long version = first.writePermissions(Arrays.asList(BAN, BAN).iterator(), true);
+        assertEquals(-1, second.readPermissionsSince(version - 1, grant -> { }));
+        List<PermissionGrant> grants = new ArrayList<>();
+        second.readPermissions(grants::add);
+        assertEquals(Collections.singletonList(BAN), grants);
+    }
+
+    /**
+     * Checks that all permissions must be read if the version is not the one which was read last.
+     *
+     * @throws IOException If the permissions cannot be read or written.
+     */
+    @Test
+    public void readsAllForUnknownVersion() throws IOException {
+        first.writePermissions(Collections.singletonList(KICK).iterator(), false);
+        assertEquals(-1, second.readPermissionsSince(0, grant -> { }));
+    }
+
+    /**
+     * Checks that both processes use the same cooldowns and keep different commands apart.
+     */
+    @Test
+    public void sharesCooldowns() {
+        assertEquals(0, first.tryStartCooldown(10, "!ping", 60_000));
+        assertTrue(second.tryStartCooldown(10, "!ping", 60_000) > 0);
+        assertEquals(0, second.tryStartCooldown(10, "!pong", 60_000));
+        assertTrue(first.tryStartCooldown(10, "!pong", 60_000) > 0);
+        assertEquals(0, first.tryStartCooldown(11, "!ping", 60_000));
+    }
+
+    /**
+     * Checks that a handler sees the grants which another process added.
+     *
+     * @throws IOException If the permissions cannot be read or written.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void handlerReloadsAddedGrants() throws IOException, InterruptedException {
+        CommandHandler handler = new CommandHandler() { };
+        handler.addPermission("10", "kick");
+        handler.setStateBackend(first);
+        second.writePermissions(Collections.singletonList(MUTE).iterator(), false);
+        assertTrue(LocalStateBackendTest.awaitPermission(handler, "11", "mute"));
+        assertTrue(handler.hasPermission("10", "kick"));
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link LocalStateBackend} and how handlers use it.
+ */
+public class LocalStateBackendTest {
+
+    /**
+     * Checks that the backend keeps the grants it is given.
+     */
+    @Test
+    public void keepsGrants() {
+        LocalStateBackend backend = new LocalStateBackend();
+        PermissionGrant kick = new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "10", "kick");
+        PermissionGrant ban = new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "10", "ban");
+        assertEquals(0, backend.getPermissionVersion());
+        assertEquals(1, backend.writePermissions(Collections.singletonList(kick).iterator(), false));
+        assertEquals(2, backend.writePermissions(Collections.singletonList(ban).iterator(), false));
+        List<PermissionGrant> grants = new ArrayList<>();
+        backend.readPermissions(grants::add);
+        assertEquals(2, grants.size());
+        backend.writePermissions(Collections.singletonList(ban).iterator(), true);
+        grants.clear();
+        backend.readPermissions(grants::add);
+        assertEquals(Collections.singletonList(ban), grants);
+    }
+
+    /**
+     * Checks that the grants of a handler survive switching to a new backend.
+     *
+     * @throws IOException If the permissions cannot be read.
+     */
+    @Test
+    public void grantsSurviveSetStateBackend() throws IOException {
+        CommandHandler handler = new CommandHandler() { };
+        handler.addPermission("10", "kick");
+        handler.setStateBackend(new LocalStateBackend());
+        assertTrue(handler.hasPermission("10", "kick"));
+        handler.addPermission("10", "ban");
+        handler.setStateBackend(new LocalStateBackend());
+        assertTrue(handler.hasPermission("10", "kick"));
+        assertTrue(handler.hasPermission("10", "ban"));
+    }
+
+    /**
+     * Checks that handlers which share a backend see the grants of each other after a reload.
+     *
+     * @throws IOException If the permissions cannot be read.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void sharedBackendKeepsGrantsOnReload() throws IOException, InterruptedException {
+        LocalStateBackend backend = new LocalStateBackend();
+        CommandHandler first = new CommandHandler() { };
+        CommandHandler second = new CommandHandler() { };
+        first.addPermission("10", "kick");
+        first.setStateBackend(backend);
+        second.setStateBackend(backend);
+        assertTrue(second.hasPermission("10", "kick"));
+        second.addPermission("11", "ban");
+        // the first handler reloads the permissions in the background
+        assertTrue(awaitPermission(first, "11", "ban"));
+        assertTrue(first.hasPermission("10", "kick"));
+        assertTrue(awaitPermission(second, "10", "kick"));
+    }
+
+    /**
+     * Checks that cooldowns of different commands and users are kept apart.
+     */
+    @Test
+    public void cooldownsAreKeptApart() {
+        LocalStateBackend backend = new LocalStateBackend();
+        assertEquals(0, backend.tryStartCooldown(10, "!ping", 60_000));
+        assertTrue(backend.tryStartCooldown(10, "!ping", 60_000) > 0);
+        assertEquals(0, backend.tryStartCooldown(10, "!pong", 60_000));
+        assertEquals(0, backend.tryStartCooldown(11, "!ping", 60_000));
+    }
+
+    /**
+     * Waits until the handler has the permission.
+     *
+     * @param handler The handler.
+     * @param userId The id of the user.
+     * @param permission The permission.
+     * @return Whether the handler has the permission or not.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    static boolean awaitPermission(CommandHandler handler, String userId, String permission)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!handler.hasPermission(userId, permission)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the import and export of permissions of the {@link CommandHandler}.
+ */
+public class PermissionImportTest {
+
+    private static final String[] GRANTS = {
+            "user\t10\tkick",
+            "user\t10\tban",
+            "group\tmods\tadmin.*",
+            "parent\tmods\thelpers",
+            "member\t11\tmods",
+            "role\t20\thelpers"
+    };
+
+    private final CommandHandler handler = new CommandHandler() { };
+
+    /**
+     * Checks that written permissions are read back unchanged.
+     *
+     * @throws IOException If the permissions cannot be read or written.
+     */
+    @Test
+    public void readThenWrite() throws IOException {
+        handler.readPermissions(stream("# comment", "", String.join("\n", GRANTS)), GRANTS.length);
+        assertEquals(lines(GRANTS), lines(write(handler)));
+
+        CommandHandler copy = new CommandHandler() { };
+        copy.readPermissions(new ByteArrayInputStream(write(handler).getBytes(UTF_8)));
+        assertEquals(lines(GRANTS), lines(write(copy)));
+        assertTrue(copy.hasPermission("10", "ban"));
+        assertTrue(copy.hasPermission("11", "admin.ban"));
+    }
+
+    /**
+     * Checks that a malformed line is rejected and the grants before it are kept.
+     *
+     * @throws IOException If the permissions cannot be read.
+     */
+    @Test
+    public void malformedLine() throws IOException {
+        try {
+            handler.readPermissions(stream("user\t10\tkick", "not a grant", "user\t10\tban"));
+            fail("The malformed line was not rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertTrue(handler.hasPermission("10", "kick"));
+        assertFalse(handler.hasPermission("10", "ban"));
+    }
+
+    /**
+     * Checks that cleared permissions don't come back with an import.
+     */
+    @Test
+    public void clearThenImport() {
+        handler.addPermission("10", "kick");
+        handler.addUserToGroup("10", "mods");
+        handler.clearPermissions();
+        assertFalse(handler.hasPermission("10", "kick"));
+        handler.importPermissions(Arrays.asList(
+                new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "10", "ban"),
+                new PermissionGrant(PermissionGrant.Kind.USER_PERMISSION, "11", "kick")).iterator(), 2);
+        assertFalse(handler.hasPermission("10", "kick"));
+        assertTrue(handler.hasPermission("10", "ban"));
+        assertTrue(handler.hasPermission("11", "kick"));
+        assertEquals(2, lines(write(handler)).size());
+    }
+
+    /**
+     * Creates a stream of the given lines.
+     *
+     * @param lines The lines.
+     * @return The stream.
+     */
+    private static ByteArrayInputStream stream(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(UTF_8));
+    }
+
+    /**
+     * Writes the permissions of the handler.
+     *
+     * @param handler The handler.
+     * @return The written permissions.
+     */
+    private static String write(CommandHandler handler) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            handler.writePermissions(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Collects the non-empty lines, because the order of the written grants is not defined.
+     *
+     * @param text The lines.
+     * @return The set of lines.
+     */
+    private static Set<String> lines(String... text) {
+        Set<String> lines = new HashSet<>();
+        for (String part : text) {
+            for (String line : part.split("\n")) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+}
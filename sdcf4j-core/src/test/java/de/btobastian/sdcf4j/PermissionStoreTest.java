@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.Test;
+
+import static de.btobastian.sdcf4j.PermissionGrant.Kind.GROUP_PARENT;
+import static de.btobastian.sdcf4j.PermissionGrant.Kind.GROUP_PERMISSION;
+import static de.btobastian.sdcf4j.PermissionGrant.Kind.ROLE_GROUP;
+import static de.btobastian.sdcf4j.PermissionGrant.Kind.USER_GROUP;
+import static de.btobastian.sdcf4j.PermissionGrant.Kind.USER_PERMISSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link PermissionStore}.
+ */
+public class PermissionStoreTest {
+
+    private static final long USER = 10;
+    private static final long ROLE = 20;
+
+    private final PermissionStore store = new PermissionStore();
+
+    /**
+     * Checks that a wildcard matches every permission below it, but not the permission itself.
+     */
+    @Test
+    public void wildcardGrants() {
+        grant(USER_PERMISSION, USER, "admin.*");
+        assertUserHas(true, "admin.ban");
+        assertUserHas(true, "admin.ban.temporary");
+        assertUserHas(false, "admin");
+        assertUserHas(false, "mod.ban");
+        grant(USER_PERMISSION, USER, "*");
+        assertUserHas(true, "mod.ban");
+    }
+
+    /**
+     * Checks that a role gets the permissions of its group and the parents of the group.
+     */
+    @Test
+    public void roleGroupPermissions() {
+        assertFalse(store.hasRoleGroups());
+        grant(ROLE_GROUP, ROLE, "mods");
+        grant(GROUP_PARENT, "mods", "helpers");
+        grant(GROUP_PERMISSION, "helpers", "kick");
+        grant(GROUP_PERMISSION, "mods", "ban");
+        assertTrue(store.hasRoleGroups());
+        int kick = store.intern("kick");
+        int ban = store.intern("ban");
+        int manage = store.intern("manage");
+        assertTrue(store.roleHas(ROLE, kick));
+        assertTrue(store.roleHas(ROLE, ban));
+        assertFalse(store.roleHas(ROLE, manage));
+        assertFalse(store.roleHas(ROLE + 1, kick));
+        // roles don't grant anything to users on their own
+        assertUserHas(false, "kick");
+    }
+
+    /**
+     * Checks that groups which inherit from each other get the permissions of the whole cycle.
+     */
+    @Test
+    public void inheritanceCycles() {
+        grant(USER_GROUP, USER, "a");
+        grant(GROUP_PARENT, "a", "b");
+        grant(GROUP_PARENT, "b", "c");
+        grant(GROUP_PARENT, "c", "a");
+        grant(GROUP_PERMISSION, "b", "x");
+        grant(GROUP_PERMISSION, "c", "y");
+        assertUserHas(true, "x");
+        assertUserHas(true, "y");
+        assertUserHas(false, "z");
+    }
+
+    /**
+     * Checks that cached permissions are recomputed after grants were added.
+     */
+    @Test
+    public void invalidationAfterAdd() {
+        int kick = store.intern("kick");
+        grant(USER_PERMISSION, USER, "other");
+        grant(USER_GROUP, USER, "mods");
+        assertFalse(store.userHas(USER, kick));
+        grant(GROUP_PERMISSION, "mods", "kick");
+        assertTrue(store.userHas(USER, kick));
+    }
+
+    /**
+     * Checks that cached permissions are recomputed after grants were removed.
+     */
+    @Test
+    public void invalidationAfterRemove() {
+        int kick = store.intern("kick");
+        grant(USER_PERMISSION, USER, "kick");
+        assertTrue(store.userHas(USER, kick));
+        store.getUserPermissions().get(String.valueOf(USER)).remove("kick");
+        store.refresh();
+        assertFalse(store.userHas(USER, kick));
+        assertFalse(store.userHas(String.valueOf(USER), "kick"));
+    }
+
+    /**
+     * Checks that a permission which is interned after the bitsets were cached is checked correctly.
+     */
+    @Test
+    public void invalidationAfterIntern() {
+        grant(USER_PERMISSION, USER, "*");
+        assertTrue(store.userHas(USER, store.intern("kick")));
+        int ban = store.intern("ban");
+        store.invalidate();
+        assertTrue(store.userHas(USER, ban));
+        assertEquals(ban, store.intern("ban"));
+    }
+
+    /**
+     * Adds a grant to the store.
+     *
+     * @param kind The kind of the grant.
+     * @param subject The subject of the grant.
+     * @param value The value of the grant.
+     */
+    private void grant(PermissionGrant.Kind kind, Object subject, String value) {
+        PermissionStore.Batch batch = new PermissionStore.Batch();
+        batch.accept(new PermissionGrant(kind, String.valueOf(subject), value));
+        store.merge(batch);
+    }
+
+    /**
+     * Checks the permission of {@link #USER} without and with interning the permission, because the store only
+     * uses bitsets for the permissions which are required by commands.
+     *
+     * @param expected Whether the user should have the permission or not.
+     * @param permission The permission.
+     */
+    private void assertUserHas(boolean expected, String permission) {
+        // the first check of a permission uses the maps, because it's not interned yet
+        assertEquals(permission, expected, store.userHas(String.valueOf(USER), permission));
+        int index = store.intern(permission);
+        store.invalidate();
+        assertEquals(permission, expected, store.userHas(USER, index));
+        assertEquals(permission, expected, store.userHas(String.valueOf(USER), permission));
+    }
+
+}
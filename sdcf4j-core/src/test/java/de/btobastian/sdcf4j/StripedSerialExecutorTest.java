@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link StripedSerialExecutor}.
+ */
+public class StripedSerialExecutorTest {
+
+    /**
+     * Checks that two keys which share a stripe keep the order in which their tasks were submitted.
+     */
+    @Test
+    public void keysOfOneStripeKeepOrder() {
+        List<Runnable> scheduled = new ArrayList<>();
+        // a single stripe, so every key shares it
+        StripedSerialExecutor executor = new StripedSerialExecutor(scheduled::add, 1);
+        List<String> order = new ArrayList<>();
+        executor.execute(1, () -> order.add("a1"));
+        executor.execute(2, () -> order.add("b1"));
+        executor.execute(1, () -> order.add("a2"));
+        executor.execute(2, () -> order.add("b2"));
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+        assertEquals(Arrays.asList("a1", "b1", "a2", "b2"), order);
+    }
+
+    /**
+     * Checks that a throwing task is reported to the uncaught exception handler and doesn't stall its stripe.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void throwingTaskDoesNotStallStripe() throws InterruptedException {
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        StripedSerialExecutor executor = new StripedSerialExecutor(task -> {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> reported.set(e));
+            thread.start();
+        }, 1);
+        RuntimeException error = new IllegalStateException("test");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        // holds the stripe, so the throwing task and the next task run in the same run of the stripe
+        executor.execute(1, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(1, () -> {
+            throw error;
+        });
+        executor.execute(2, done::countDown);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(error, reported.get());
+    }
+
+}
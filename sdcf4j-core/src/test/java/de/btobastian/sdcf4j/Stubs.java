@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates stubs of the interfaces of the chat libraries, so the adapters can be tested with stub events.
+ * A stub answers a method with the value which was registered for the name of the method, or with an empty value
+ * (<code>0</code>, <code>false</code>, an empty optional or list, otherwise <code>null</code>).
+ * The values are returned as they are, so answering a method doesn't allocate.
+ */
+public final class Stubs {
+
+    private Stubs() { }
+
+    /**
+     * Computes the answer of a method from its arguments.
+     */
+    public interface Answer {
+
+        /**
+         * Computes the answer.
+         *
+         * @param args The arguments of the call or <code>null</code> if the method has no parameters.
+         * @return The answer.
+         */
+        Object answer(Object[] args);
+
+    }
+
+    /**
+     * Creates a stub.
+     *
+     * @param type The interface to stub.
+     * @param answers Pairs of method names and their values or {@link Answer answers}.
+     * @param <T> The type of the stub.
+     * @return The stub.
+     */
+    public static <T> T stub(Class<T> type, Object... answers) {
+        StubHandler handler = new StubHandler(type);
+        T stub = type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+        handler.hashCode = System.identityHashCode(stub);
+        answer(stub, answers);
+        return stub;
+    }
+
+    /**
+     * Registers further answers of a stub, e.g. ones which refer to the stub itself.
+     *
+     * @param stub The stub.
+     * @param answers Pairs of method names and their values or {@link Answer answers}.
+     */
+    public static void answer(Object stub, Object... answers) {
+        if (answers.length % 2 != 0) {
+            throw new IllegalArgumentException("Answers must be pairs of names and values!");
+        }
+        StubHandler handler = (StubHandler) Proxy.getInvocationHandler(stub);
+        for (int i = 0; i < answers.length; i += 2) {
+            handler.answers.put((String) answers[i], answers[i + 1]);
+        }
+    }
+
+    /**
+     * Sets the first field of the given type, e.g. a field which the library sets when it dispatches an event.
+     *
+     * @param target The object whose field is set.
+     * @param fieldType The type of the field.
+     * @param value The new value.
+     */
+    public static void setField(Object target, Class<?> fieldType, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.getType() == fieldType) {
+                    field.setAccessible(true);
+                    try {
+                        field.set(target, value);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No field of type " + fieldType.getName());
+    }
+
+    /**
+     * Answers the calls of a stub.
+     */
+    private static class StubHandler implements InvocationHandler {
+
+        private static final Map<Class<?>, Object> EMPTY_VALUES = new HashMap<>();
+
+        static {
+            EMPTY_VALUES.put(boolean.class, false);
+            EMPTY_VALUES.put(byte.class, (byte) 0);
+            EMPTY_VALUES.put(short.class, (short) 0);
+            EMPTY_VALUES.put(char.class, (char) 0);
+            EMPTY_VALUES.put(int.class, 0);
+            EMPTY_VALUES.put(long.class, 0L);
+            EMPTY_VALUES.put(float.class, 0F);
+            EMPTY_VALUES.put(double.class, 0D);
+            EMPTY_VALUES.put(Optional.class, Optional.empty());
+            EMPTY_VALUES.put(List.class, Collections.emptyList());
+        }
+
+        private final Class<?> type;
+        private final Map<String, Object> answers = new HashMap<>();
+        private Integer hashCode;
+
+        /**
+         * Creates a new instance of this class.
+         *
+         * @param type The stubbed interface.
+         */
+        private StubHandler(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                switch (name) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return hashCode;
+                    default:
+                        return "Stub of " + type.getSimpleName();
+                }
+            }
+            Object answer = answers.get(name);
+            if (answer instanceof Answer) {
+                return ((Answer) answer).answer(args);
+            }
+            return answer != null ? answer : EMPTY_VALUES.get(method.getReturnType());
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.audit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the {@link AuditLog}.
+ */
+public class AuditLogTest {
+
+    private Path directory;
+
+    /**
+     * Creates the directory of the segments.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sdcf4j-audit");
+    }
+
+    /**
+     * Deletes the segments.
+     *
+     * @throws IOException If the segments cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Checks that a parked writer is woken up by a new record.
+     *
+     * @throws Exception If the segments cannot be read or the test was interrupted.
+     */
+    @Test
+    public void idleWriterWritesNewRecords() throws Exception {
+        try (AuditLog log = new AuditLog(directory, 16, 64 * 1024)) {
+            assertTrue(log.record(1, 2, 3, "ping", "!ping", 100, false, null));
+            awaitRecords(1);
+            // the writer is idle now
+            Thread.sleep(50);
+            assertTrue(log.record(1, 2, 3, "ping", "!ping again", 100, false, null));
+            List<AuditRecord> records = awaitRecords(2);
+            assertEquals("!ping again", records.get(1).getContent());
+            assertFalse(log.isFailed());
+        }
+    }
+
+    /**
+     * Checks that a failed write is reported and the log drops all further records.
+     *
+     * @throws Exception If the test was interrupted.
+     */
+    @Test
+    public void failedWriteIsReported() throws Exception {
+        final CountDownLatch reported = new CountDownLatch(1);
+        final IOException[] failure = new IOException[1];
+        AuditLog log = new AuditLog(directory, 16, 64 * 1024) {
+            @Override
+            protected void writeFailed(IOException e) {
+                failure[0] = e;
+                reported.countDown();
+            }
+        };
+        // the writer creates segments with CREATE_NEW, so it can't open the next segment
+        Files.createFile(directory.resolve(AuditLogReader.getSegmentName(2)));
+        char[] content = new char[8000];
+        Arrays.fill(content, 'a');
+        String longContent = new String(content);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!log.isFailed()) {
+            assertTrue("The write didn't fail", System.nanoTime() < deadline);
+            log.record(1, 2, 3, "say", longContent, 100, false, null);
+            Thread.sleep(1);
+        }
+        assertTrue(reported.await(10, TimeUnit.SECONDS));
+        assertFalse(log.record(1, 2, 3, "say", "dropped", 100, false, null));
+        try {
+            log.close();
+            fail("The failure was not thrown");
+        } catch (IOException e) {
+            assertSame(failure[0], e);
+        }
+    }
+
+    /**
+     * Waits until the segments contain the given number of records.
+     *
+     * @param count The number of records.
+     * @return The records.
+     * @throws Exception If the segments cannot be read or the test was interrupted.
+     */
+    private List<AuditRecord> awaitRecords(int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            List<AuditRecord> records = new ArrayList<>();
+            AuditLogReader.read(directory, records::add);
+            if (records.size() >= count) {
+                return records;
+            }
+            assertTrue("Only " + records.size() + " records were written", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+}
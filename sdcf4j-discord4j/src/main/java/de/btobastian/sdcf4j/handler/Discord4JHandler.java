@@ -18,25 +18,24 @@
  */
 package de.btobastian.sdcf4j.handler;
 
-import de.btobastian.sdcf4j.Command;
 import de.btobastian.sdcf4j.CommandHandler;
-import de.btobastian.sdcf4j.Sdcf4jMessage;
+import de.btobastian.sdcf4j.MessageContext;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.events.IListener;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
-import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IGuild;
 import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IRole;
 import sx.blah.discord.handle.obj.IUser;
-import sx.blah.discord.util.DiscordException;
-import sx.blah.discord.util.MissingPermissionsException;
-import sx.blah.discord.util.RateLimitException;
+import sx.blah.discord.handle.obj.IVoiceChannel;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A command handler for the Discord4J library.
@@ -45,11 +44,45 @@ public class Discord4JHandler extends CommandHandler {
 
     /**
      * Creates a new instance of this class.
+     * The client already handles all of its shards.
      *
      * @param client The discord client.
      */
     public Discord4JHandler(IDiscordClient client) {
-        client.getDispatcher().registerListener((IListener<MessageReceivedEvent>) this::handleMessageCreate);
+        this(Collections.singletonList(client));
+    }
+
+    /**
+     * Creates a new instance of this class which handles the messages of all given clients.
+     * All clients share the same commands, permissions and executor.
+     *
+     * @param clients The discord clients.
+     */
+    public Discord4JHandler(Collection<IDiscordClient> clients) {
+        final List<IDiscordClient> clientList = new ArrayList<>(clients);
+        registerArgumentConverter(IRole.class, arg -> {
+            long id = parseMentionId(arg, "<@&");
+            for (IDiscordClient client : clientList) {
+                IRole role = client.getRoleByID(id);
+                if (role != null) {
+                    return role;
+                }
+            }
+            throw new IllegalArgumentException("Unknown role " + arg);
+        });
+        registerArgumentConverter(IVoiceChannel.class, arg -> {
+            long id = parseMentionId(arg, "<#");
+            for (IDiscordClient client : clientList) {
+                IVoiceChannel channel = client.getVoiceChannelByID(id);
+                if (channel != null) {
+                    return channel;
+                }
+            }
+            throw new IllegalArgumentException("Unknown voice channel " + arg);
+        });
+        for (IDiscordClient client : clientList) {
+            client.getDispatcher().registerListener((IListener<MessageReceivedEvent>) this::handleMessageCreate);
+        }
     }
 
     /**
@@ -74,177 +107,55 @@ public class Discord4JHandler extends CommandHandler {
     }
 
     /**
-     * Handles a received message.
+     * Adds all users with the role to the permission group.
      *
-     * @param event The MessageReceivedEvent.
+     * @param role The role.
+     * @param group The name of the group.
      */
-    private void handleMessageCreate(final MessageReceivedEvent event) {
-        String[] splitMessage = event.getMessage().getContent().split("[\\s&&[^\\n]]++");
-        String commandString = splitMessage[0];
-        SimpleCommand command = commands.get(commandString.toLowerCase());
-        if (command == null) {
-            // maybe it requires a mention
-            if (splitMessage.length > 1) {
-                command = commands.get(splitMessage[1].toLowerCase());
-                if (command == null || !command.getCommandAnnotation().requiresMention()) {
-                    return;
-                }
-                // remove the first which is the mention
-                splitMessage = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
-            } else {
-                return;
-            }
-        }
-        Command commandAnnotation = command.getCommandAnnotation();
-        if (commandAnnotation.requiresMention()) {
-            Matcher matcher = USER_MENTION.matcher(commandString);
-            if (!matcher.find() || !matcher.group("id").equals(event.getClient().getOurUser().getStringID())) {
-                return;
-            }
-        }
-        if (event.getMessage().getChannel().isPrivate() && !commandAnnotation.privateMessages()) {
-            return;
-        }
-        if (!event.getMessage().getChannel().isPrivate() && !commandAnnotation.channelMessages()) {
-            return;
-        }
-        if (!hasPermission(event.getMessage().getAuthor(), commandAnnotation.requiredPermissions())) {
-            if (Sdcf4jMessage.MISSING_PERMISSIONS.getMessage() != null) {
-                try {
-                    event.getMessage().getChannel().sendMessage(Sdcf4jMessage.MISSING_PERMISSIONS.getMessage());
-                } catch (MissingPermissionsException | RateLimitException | DiscordException ignored) { }
-            }
-            return;
-        }
-        final Object[] parameters = getParameters(splitMessage, command, event);
-        if (commandAnnotation.async()) {
-            final SimpleCommand commandFinal = command;
-            Thread t = new Thread(() -> {
-                invokeMethod(commandFinal, event, parameters);
-            });
-            t.setDaemon(true);
-            t.start();
-        } else {
-            invokeMethod(command, event, parameters);
-        }
+    public void addRoleToGroup(IRole role, String group) {
+        addRoleToGroup(role.getStringID(), group);
     }
 
     /**
-     * Invokes the method of the command.
+     * Handles a received message.
      *
-     * @param command The command.
-     * @param event The event.
-     * @param parameters The parameters for the method.
+     * @param event The MessageReceivedEvent.
      */
-    private void invokeMethod(SimpleCommand command, MessageReceivedEvent event, Object[] parameters) {
-        Method method = command.getMethod();
-        Object reply = null;
-        try {
-            method.setAccessible(true);
-            reply = method.invoke(command.getExecutor(), parameters);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            Discord4J.LOGGER.warn("Cannot invoke method {}!", method.getName(), e);
-        }
-        if (reply != null) {
-            try {
-                event.getMessage().getChannel().sendMessage(String.valueOf(reply));
-            } catch (MissingPermissionsException | RateLimitException | DiscordException ignored) { }
+    void handleMessageCreate(MessageReceivedEvent event) {
+        if (!isIgnored(event.getMessage())) {
+            dispatch(new Discord4JMessageContext(event));
         }
     }
 
     /**
-     * Gets the parameters which are used to invoke the executor's method.
+     * Checks if the message is ignored, before a context is created for it.
      *
-     * @param splitMessage The spit message (index 0: command, index > 0: arguments)
-     * @param command The command.
-     * @param event The event.
-     * @return The parameters which are used to invoke the executor's method.
+     * @param message The message.
+     * @return Whether the message is ignored or not.
      */
-    private Object[] getParameters(String[] splitMessage, SimpleCommand command, MessageReceivedEvent event) {
-        String[] args = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
-        Class<?>[] parameterTypes = command.getMethod().getParameterTypes();
-        final Object[] parameters = new Object[parameterTypes.length];
-        int stringCounter = 0;
-        for (int i = 0; i < parameterTypes.length; i++) { // check all parameters
-            Class<?> type = parameterTypes[i];
-            if (type == String.class) {
-                if (stringCounter++ == 0) {
-                    parameters[i] = splitMessage[0]; // the first split is the command
-                } else {
-                    if (args.length + 2 > stringCounter) {
-                        // the first string parameter is the command, the other ones are the arguments
-                        parameters[i] = args[stringCounter - 2];
-                    }
-                }
-            } else if (type == String[].class) {
-                parameters[i] = args;
-            } else if (type == MessageReceivedEvent.class) {
-                parameters[i] = event;
-            }  else if (type == IMessage.class) {
-                parameters[i] = event.getMessage();
-            } else if (type == IDiscordClient.class) {
-                parameters[i] = event.getClient();
-            } else if (type == IChannel.class) {
-                parameters[i] = event.getMessage().getChannel();
-            } else if (type == IUser.class) {
-                parameters[i] = event.getMessage().getAuthor();
-            } else if (type == IGuild.class) {
-                parameters[i] = event.getMessage().getChannel().getGuild();
-            } else if (type == Object[].class) {
-                parameters[i] = getObjectsFromString(event.getClient(), args);
-            } else {
-                // unknown type
-                parameters[i] = null;
-            }
+    private boolean isIgnored(IMessage message) {
+        IUser author = message.getAuthor();
+        boolean fromBot = author.isBot() || message.getWebhookLongID() != 0;
+        if (isIgnored(author.getLongID(), message.getChannel().getLongID(), fromBot)) {
+            return true;
+        }
+        if (!hasIgnoredServers()) {
+            return false;
         }
-        return parameters;
+        IGuild guild = message.getGuild();
+        return guild != null && isIgnoredServer(guild.getLongID());
     }
 
-    /**
-     * Tries to get objects (like channel, user, long) from the given strings.
-     *
-     * @param client The client.
-     * @param args The string array.
-     * @return An object array.
-     */
-    private Object[] getObjectsFromString(IDiscordClient client, String[] args) {
-        Object[] objects = new Object[args.length];
-        for (int i = 0; i < args.length; i++) {
-            objects[i] = getObjectFromString(client, args[i]);
-        }
-        return objects;
+    @Override
+    protected void commandPromoted(SimpleCommand command, MessageContext context, long durationNanos) {
+        super.commandPromoted(command, context, durationNanos);
+        Discord4J.LOGGER.warn("Command {} took {} ms and is executed async from now on!",
+                command.getMainAlias(), TimeUnit.NANOSECONDS.toMillis(durationNanos));
     }
 
-    /**
-     * Tries to get an object (like channel, user, long) from the given string.
-     *
-     * @param client The client.
-     * @param arg The string.
-     * @return The object.
-     */
-    private Object getObjectFromString(IDiscordClient client, String arg) {
-        try {
-            // test long
-            return Long.valueOf(arg);
-        } catch (NumberFormatException ignored) {}
-        // test user
-        Matcher matcher = USER_MENTION.matcher(arg);
-        if (matcher.find()) {
-            String id = matcher.group("id");
-            IUser user = client.getUserByID(Long.valueOf(id));
-            if (user != null) {
-                return user;
-            }
-        }
-        // test channel
-        if (arg.matches("<#([0-9]*)>")) {
-            String id = arg.substring(2, arg.length() - 1);
-            IChannel channel = client.getChannelByID(Long.valueOf(id));
-            if (channel != null) {
-                return channel;
-            }
-        }
-        return arg;
+    @Override
+    protected void handleInvocationError(Method method, Exception e) {
+        Discord4J.LOGGER.warn("Cannot invoke method {}!", method.getName(), e);
     }
 
 }
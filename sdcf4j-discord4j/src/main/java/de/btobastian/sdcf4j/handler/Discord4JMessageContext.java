@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ * 
+ * This file is part of SDCF4J.
+ * 
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ * 
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.MessageContext;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.IUser;
+import sx.blah.discord.util.DiscordException;
+import sx.blah.discord.util.MissingPermissionsException;
+import sx.blah.discord.util.RateLimitException;
+
+import java.util.List;
+
+/**
+ * The context of a message received by the {@link Discord4JHandler}.
+ */
+class Discord4JMessageContext extends MessageContext {
+
+    private final MessageReceivedEvent event;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param event The received event.
+     */
+    Discord4JMessageContext(MessageReceivedEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * Gets the received event.
+     *
+     * @return The received event.
+     */
+    MessageReceivedEvent getEvent() {
+        return event;
+    }
+
+    @Override
+    public int getShard() {
+        return event.getMessage().getShard().getInfo()[0];
+    }
+
+    @Override
+    public String getContent() {
+        return event.getMessage().getContent();
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        try {
+            event.getMessage().getChannel().sendMessage(message);
+        } catch (MissingPermissionsException | RateLimitException | DiscordException ignored) { }
+    }
+
+    @Override
+    public long getMessageId() {
+        return event.getMessage().getLongID();
+    }
+
+    @Override
+    public long getAuthorId() {
+        return event.getMessage().getAuthor().getLongID();
+    }
+
+    @Override
+    public long getChannelId() {
+        return event.getMessage().getChannel().getLongID();
+    }
+
+    @Override
+    public long getServerId() {
+        IGuild guild = get(IGuild.class);
+        return guild == null ? 0 : guild.getLongID();
+    }
+
+    @Override
+    public boolean isFromBot() {
+        IMessage message = event.getMessage();
+        return message.getAuthor().isBot() || message.getWebhookLongID() != 0;
+    }
+
+    @Override
+    public long getSelfId() {
+        return event.getClient().getOurUser().getLongID();
+    }
+
+    @Override
+    public boolean isPrivate() {
+        return event.getMessage().getChannel().isPrivate();
+    }
+
+    @Override
+    public long[] getRoleIds() {
+        IGuild guild = get(IGuild.class);
+        if (guild == null) {
+            return super.getRoleIds();
+        }
+        List<IRole> roles = event.getMessage().getAuthor().getRolesForGuild(guild);
+        long[] roleIds = new long[roles.size()];
+        for (int i = 0; i < roleIds.length; i++) {
+            roleIds[i] = roles.get(i).getLongID();
+        }
+        return roleIds;
+    }
+
+    @Override
+    protected Object resolve(Class<?> type) {
+        if (type == MessageReceivedEvent.class) {
+            return event;
+        } else if (type == IMessage.class) {
+            return event.getMessage();
+        } else if (type == IDiscordClient.class) {
+            return event.getClient();
+        } else if (type == IChannel.class) {
+            return event.getMessage().getChannel();
+        } else if (type == IUser.class) {
+            return event.getMessage().getAuthor();
+        } else if (type == IGuild.class) {
+            return event.getMessage().getChannel().getGuild();
+        }
+        // unknown type
+        return null;
+    }
+
+    @Override
+    protected Object getUserById(String id) {
+        long userId = parseId(id);
+        return userId == 0 ? null : event.getClient().getUserByID(userId);
+    }
+
+    @Override
+    protected Object getChannelById(String id) {
+        long channelId = parseId(id);
+        return channelId == 0 ? null : event.getClient().getChannelByID(channelId);
+    }
+
+    /**
+     * Parses the id of a mention.
+     *
+     * @param id The id.
+     * @return The parsed id or <code>0</code> if the id is too long to be a valid id.
+     */
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.AbstractAllocationTest;
+import de.btobastian.sdcf4j.CommandHandler;
+import de.btobastian.sdcf4j.Stubs;
+import org.junit.Before;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.IShard;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.Collections;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+
+/**
+ * Checks the allocations of the {@link Discord4JHandler} per message.
+ * The event dispatcher of Discord4J can't be created without a connected client, so the events are passed to the
+ * handler directly.
+ */
+public class Discord4JAllocationTest extends AbstractAllocationTest {
+
+    private Discord4JHandler handler;
+    private IDiscordClient client;
+    private IShard shard;
+    private IGuild guild;
+    private IChannel channel;
+    private IUser author;
+
+    /**
+     * Creates a new instance of this class.
+     */
+    public Discord4JAllocationTest() {
+        super(224, 160, 288);
+    }
+
+    /**
+     * Creates the handler and the stubs of the client.
+     */
+    @Before
+    public void setUp() {
+        IUser self = stub(IUser.class, "getLongID", SELF_ID, "getStringID", String.valueOf(SELF_ID));
+        client = stub(IDiscordClient.class, "getOurUser", self);
+        shard = stub(IShard.class, "getInfo", new int[] {0, 1});
+        guild = stub(IGuild.class, "getLongID", SERVER_ID);
+        channel = stub(IChannel.class, "getLongID", CHANNEL_ID, "getGuild", guild, "getShard", shard,
+                "sendMessage", (Stubs.Answer) args -> {
+                    replied(args[0]);
+                    return null;
+                });
+        author = stub(IUser.class, "getLongID", AUTHOR_ID, "getStringID", String.valueOf(AUTHOR_ID));
+        handler = new Discord4JHandler(Collections.emptyList());
+        handler.registerCommand(new Commands());
+    }
+
+    @Override
+    protected Runnable message(String content) {
+        IMessage message = stub(IMessage.class, "getLongID", 10L, "getContent", content, "getChannel", channel,
+                "getAuthor", author, "getGuild", guild, "getShard", shard, "getClient", client);
+        MessageReceivedEvent event = new MessageReceivedEvent(message);
+        Stubs.setField(event, IDiscordClient.class, client);
+        return () -> handler.handleMessageCreate(event);
+    }
+
+    @Override
+    protected CommandHandler getHandler() {
+        return handler;
+    }
+
+}
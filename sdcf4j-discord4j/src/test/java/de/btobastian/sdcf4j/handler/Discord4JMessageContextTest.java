@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.Stubs;
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link Discord4JMessageContext}.
+ */
+public class Discord4JMessageContextTest {
+
+    private IDiscordClient client;
+    private IGuild guild;
+    private IChannel channel;
+    private IUser author;
+    private IMessage message;
+
+    /**
+     * Creates the stubs of a message in a guild channel.
+     */
+    @Before
+    public void setUp() {
+        client = stub(IDiscordClient.class, "getOurUser", stub(IUser.class, "getLongID", 1L));
+        guild = stub(IGuild.class, "getLongID", 2L);
+        channel = stub(IChannel.class, "getLongID", 3L, "getGuild", guild);
+        IRole first = stub(IRole.class, "getLongID", 7L);
+        IRole second = stub(IRole.class, "getLongID", 8L);
+        author = stub(IUser.class, "getLongID", 4L, "getRolesForGuild", (Stubs.Answer) args ->
+                args[0] == guild ? Arrays.asList(first, second) : Collections.emptyList());
+        message = stub(IMessage.class, "getLongID", 10L, "getContent", "!ping", "getChannel", channel,
+                "getAuthor", author, "getGuild", guild, "getClient", client);
+    }
+
+    /**
+     * Creates an event of the message.
+     *
+     * @return The event.
+     */
+    private MessageReceivedEvent event() {
+        MessageReceivedEvent event = new MessageReceivedEvent(message);
+        // set by the event dispatcher of Discord4J
+        Stubs.setField(event, IDiscordClient.class, client);
+        return event;
+    }
+
+    /**
+     * Checks the objects which can be passed to command methods.
+     */
+    @Test
+    public void resolvesPlatformObjects() {
+        MessageReceivedEvent event = event();
+        Discord4JMessageContext context = new Discord4JMessageContext(event);
+        assertSame(event, context.get(MessageReceivedEvent.class));
+        assertSame(message, context.get(IMessage.class));
+        assertSame(client, context.get(IDiscordClient.class));
+        assertSame(channel, context.get(IChannel.class));
+        assertSame(author, context.get(IUser.class));
+        assertSame(guild, context.get(IGuild.class));
+        assertNull(context.get(String.class));
+        assertFalse(context.isPrivate());
+        assertEquals(2, context.getServerId());
+        assertEquals(1, context.getSelfId());
+    }
+
+    /**
+     * Checks the roles of the author in the guild of the message.
+     */
+    @Test
+    public void roleIds() {
+        assertArrayEquals(new long[] {7, 8}, new Discord4JMessageContext(event()).getRoleIds());
+    }
+
+    /**
+     * Checks that a private message has neither a guild nor roles.
+     */
+    @Test
+    public void privateMessage() {
+        Stubs.answer(channel, "isPrivate", true, "getGuild", null);
+        Discord4JMessageContext context = new Discord4JMessageContext(event());
+        assertTrue(context.isPrivate());
+        assertNull(context.get(IGuild.class));
+        assertEquals(0, context.getServerId());
+        assertArrayEquals(new long[0], context.getRoleIds());
+    }
+
+    /**
+     * Checks that bots and webhooks are detected.
+     */
+    @Test
+    public void isFromBot() {
+        assertFalse(new Discord4JMessageContext(event()).isFromBot());
+        Stubs.answer(author, "isBot", true);
+        assertTrue(new Discord4JMessageContext(event()).isFromBot());
+        Stubs.answer(author, "isBot", false);
+        Stubs.answer(message, "getWebhookLongID", 11L);
+        assertTrue(new Discord4JMessageContext(event()).isFromBot());
+    }
+
+}
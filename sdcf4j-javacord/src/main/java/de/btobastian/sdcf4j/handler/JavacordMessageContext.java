@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ * 
+ * This file is part of SDCF4J.
+ * 
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ * 
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.MessageContext;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.Channel;
+import org.javacord.api.entity.channel.GroupChannel;
+import org.javacord.api.entity.channel.PrivateChannel;
+import org.javacord.api.entity.channel.ServerChannel;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.MessageCreateEvent;
+
+import java.util.List;
+
+/**
+ * The context of a message received by the {@link JavacordHandler}.
+ */
+class JavacordMessageContext extends MessageContext {
+
+    private final DiscordApi api;
+    private final MessageCreateEvent event;
+    private final Message message;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param api The api.
+     * @param event The received event.
+     */
+    JavacordMessageContext(DiscordApi api, MessageCreateEvent event) {
+        this.api = api;
+        this.event = event;
+        this.message = event.getMessage();
+    }
+
+    /**
+     * Gets the received message.
+     *
+     * @return The received message.
+     */
+    Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public int getShard() {
+        return api.getCurrentShard();
+    }
+
+    @Override
+    public String getContent() {
+        return message.getContent();
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        this.message.getChannel().sendMessage(message);
+    }
+
+    @Override
+    public long getMessageId() {
+        return message.getId();
+    }
+
+    @Override
+    public long getAuthorId() {
+        return message.getAuthor().getId();
+    }
+
+    @Override
+    public long getChannelId() {
+        return message.getChannel().getId();
+    }
+
+    @Override
+    public long getServerId() {
+        Server server = get(Server.class);
+        return server == null ? 0 : server.getId();
+    }
+
+    @Override
+    public boolean isFromBot() {
+        MessageAuthor author = message.getAuthor();
+        return author.isBotUser() || author.isWebhook();
+    }
+
+    @Override
+    public long getSelfId() {
+        return api.getYourself().getId();
+    }
+
+    @Override
+    public boolean isPrivate() {
+        return get(PrivateChannel.class) != null;
+    }
+
+    @Override
+    public long[] getRoleIds() {
+        User user = get(User.class);
+        Server server = get(Server.class);
+        if (user == null || server == null) {
+            return super.getRoleIds();
+        }
+        List<Role> roles = user.getRoles(server);
+        long[] roleIds = new long[roles.size()];
+        for (int i = 0; i < roleIds.length; i++) {
+            roleIds[i] = roles.get(i).getId();
+        }
+        return roleIds;
+    }
+
+    @Override
+    protected Object resolve(Class<?> type) {
+        if (type == MessageCreateEvent.class) {
+            return event;
+        } else if (type == Message.class) {
+            return message;
+        } else if (type == DiscordApi.class) {
+            return api;
+        } else if (type == Channel.class) {
+            return message.getChannel();
+        } else if (type == GroupChannel.class) {
+            return message.getChannel().asGroupChannel().orElse(null);
+        } else if (type == PrivateChannel.class) {
+            return message.getChannel().asPrivateChannel().orElse(null);
+        } else if (type == ServerChannel.class) {
+            return message.getChannel().asServerChannel().orElse(null);
+        } else if (type == ServerTextChannel.class) {
+            return message.getChannel().asServerTextChannel().orElse(null);
+        } else if (type == TextChannel.class) {
+            return message.getChannel().asTextChannel().orElse(null);
+        } else if (type == User.class) {
+            return message.getUserAuthor().orElse(null);
+        } else if (type == MessageAuthor.class) {
+            return message.getAuthor();
+        } else if (type == Server.class) {
+            ServerTextChannel channel = get(ServerTextChannel.class);
+            return channel == null ? null : channel.getServer();
+        }
+        // unknown type
+        return null;
+    }
+
+    @Override
+    protected Object getUserById(String id) {
+        return api.getCachedUserById(id).orElse(null);
+    }
+
+    @Override
+    protected Object getChannelById(String id) {
+        return api.getChannelById(id).orElse(null);
+    }
+
+}
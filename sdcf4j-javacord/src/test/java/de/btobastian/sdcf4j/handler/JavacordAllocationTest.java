@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.AbstractAllocationTest;
+import de.btobastian.sdcf4j.CommandHandler;
+import de.btobastian.sdcf4j.Stubs;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.javacord.api.listener.message.MessageCreateListener;
+import org.junit.Before;
+
+import java.util.Optional;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+
+/**
+ * Checks the allocations of the {@link JavacordHandler} per message.
+ */
+public class JavacordAllocationTest extends AbstractAllocationTest {
+
+    private JavacordHandler handler;
+    private MessageCreateListener listener;
+    private ServerTextChannel channel;
+    private User author;
+    private MessageAuthor messageAuthor;
+
+    /**
+     * Creates a new instance of this class.
+     */
+    public JavacordAllocationTest() {
+        super(256, 256, 352);
+    }
+
+    /**
+     * Creates the handler and the stubs of the api.
+     */
+    @Before
+    public void setUp() {
+        User self = stub(User.class, "getId", SELF_ID, "isYourself", true);
+        DiscordApi api = stub(DiscordApi.class, "getYourself", self,
+                "addMessageCreateListener", (Stubs.Answer) args -> {
+                    listener = (MessageCreateListener) args[0];
+                    return null;
+                });
+        Server server = stub(Server.class, "getId", SERVER_ID);
+        channel = stub(ServerTextChannel.class, "getId", CHANNEL_ID, "getServer", server,
+                "sendMessage", (Stubs.Answer) args -> {
+                    replied(args[0]);
+                    return null;
+                });
+        Stubs.answer(channel, "asServerTextChannel", Optional.of(channel), "asServerChannel", Optional.of(channel),
+                "asTextChannel", Optional.of(channel));
+        author = stub(User.class, "getId", AUTHOR_ID);
+        messageAuthor = stub(MessageAuthor.class, "getId", AUTHOR_ID, "isUser", true,
+                "asUser", Optional.of(author));
+        handler = new JavacordHandler(api);
+        handler.registerCommand(new Commands());
+    }
+
+    @Override
+    protected Runnable message(String content) {
+        Message message = stub(Message.class, "getId", 10L, "getContent", content, "getChannel", channel,
+                "getAuthor", messageAuthor, "getUserAuthor", Optional.of(author),
+                "getServerTextChannel", Optional.of(channel), "getServer", Optional.of(channel.getServer()));
+        MessageCreateEvent event = stub(MessageCreateEvent.class, "getMessage", message);
+        return () -> listener.onMessageCreate(event);
+    }
+
+    @Override
+    protected CommandHandler getHandler() {
+        return handler;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.Stubs;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.Channel;
+import org.javacord.api.entity.channel.PrivateChannel;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link JavacordMessageContext}.
+ */
+public class JavacordMessageContextTest {
+
+    private final AtomicInteger serverChannelLookups = new AtomicInteger();
+    private DiscordApi api;
+    private Server server;
+    private ServerTextChannel channel;
+    private User user;
+    private MessageAuthor author;
+    private Message message;
+    private MessageCreateEvent event;
+
+    /**
+     * Creates the stubs of a message in a server channel.
+     */
+    @Before
+    public void setUp() {
+        api = stub(DiscordApi.class, "getYourself", stub(User.class, "getId", 1L));
+        server = stub(Server.class, "getId", 2L);
+        channel = stub(ServerTextChannel.class, "getId", 3L, "getServer", server);
+        Stubs.answer(channel, "asServerTextChannel", (Stubs.Answer) args -> {
+            serverChannelLookups.incrementAndGet();
+            return Optional.of(channel);
+        }, "asTextChannel", Optional.of(channel));
+        Role first = stub(Role.class, "getId", 7L);
+        Role second = stub(Role.class, "getId", 8L);
+        user = stub(User.class, "getId", 4L, "getRoles", (Stubs.Answer) args ->
+                args[0] == server ? Arrays.asList(first, second) : Collections.emptyList());
+        author = stub(MessageAuthor.class, "getId", 4L, "asUser", Optional.of(user));
+        message = stub(Message.class, "getId", 10L, "getContent", "!ping", "getChannel", channel,
+                "getAuthor", author, "getUserAuthor", Optional.of(user));
+        event = stub(MessageCreateEvent.class, "getMessage", message);
+    }
+
+    /**
+     * Checks the objects which can be passed to command methods.
+     */
+    @Test
+    public void resolvesPlatformObjects() {
+        JavacordMessageContext context = new JavacordMessageContext(api, event);
+        assertSame(event, context.get(MessageCreateEvent.class));
+        assertSame(message, context.get(Message.class));
+        assertSame(api, context.get(DiscordApi.class));
+        assertSame(channel, context.get(Channel.class));
+        assertSame(channel, context.get(TextChannel.class));
+        assertSame(user, context.get(User.class));
+        assertSame(author, context.get(MessageAuthor.class));
+        assertSame(server, context.get(Server.class));
+        assertNull(context.get(PrivateChannel.class));
+        assertNull(context.get(String.class));
+        assertFalse(context.isPrivate());
+        assertEquals(2, context.getServerId());
+        assertEquals(1, context.getSelfId());
+    }
+
+    /**
+     * Checks that every object is only resolved once per message.
+     */
+    @Test
+    public void resolvesObjectsOnce() {
+        JavacordMessageContext context = new JavacordMessageContext(api, event);
+        context.get(ServerTextChannel.class);
+        context.get(ServerTextChannel.class);
+        context.get(Server.class);
+        context.getServerId();
+        assertEquals(1, serverChannelLookups.get());
+    }
+
+    /**
+     * Checks the roles of the author in the server of the message.
+     */
+    @Test
+    public void roleIds() {
+        assertArrayEquals(new long[] {7, 8}, new JavacordMessageContext(api, event).getRoleIds());
+    }
+
+    /**
+     * Checks that a private message has neither a server nor roles.
+     */
+    @Test
+    public void privateMessage() {
+        PrivateChannel privateChannel = stub(PrivateChannel.class, "getId", 3L);
+        Stubs.answer(privateChannel, "asPrivateChannel", Optional.of(privateChannel));
+        Stubs.answer(message, "getChannel", privateChannel);
+        JavacordMessageContext context = new JavacordMessageContext(api, event);
+        assertTrue(context.isPrivate());
+        assertNull(context.get(Server.class));
+        assertEquals(0, context.getServerId());
+        assertArrayEquals(new long[0], context.getRoleIds());
+    }
+
+    /**
+     * Checks that bots and webhooks are detected.
+     */
+    @Test
+    public void isFromBot() {
+        assertFalse(new JavacordMessageContext(api, event).isFromBot());
+        Stubs.answer(author, "isBotUser", true);
+        assertTrue(new JavacordMessageContext(api, event).isFromBot());
+        Stubs.answer(author, "isBotUser", false, "isWebhook", true);
+        assertTrue(new JavacordMessageContext(api, event).isFromBot());
+    }
+
+}
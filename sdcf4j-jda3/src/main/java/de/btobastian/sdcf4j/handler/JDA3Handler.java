@@ -18,10 +18,9 @@
  */
 package de.btobastian.sdcf4j.handler;
 
-import de.btobastian.sdcf4j.Command;
 import de.btobastian.sdcf4j.CommandHandler;
-import de.btobastian.sdcf4j.Sdcf4jMessage;
-import net.dv8tion.jda.client.entities.Group;
+import de.btobastian.sdcf4j.MessageContext;
+import net.dv8tion.jda.bot.sharding.ShardManager;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
@@ -29,14 +28,15 @@ import net.dv8tion.jda.core.hooks.ListenerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.regex.Matcher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 /**
  * A command handler for the JDA library.
+ * Command methods get the response number of the event with a {@link ResponseNumber} parameter.
  */
 public class JDA3Handler extends CommandHandler {
 
@@ -45,223 +45,153 @@ public class JDA3Handler extends CommandHandler {
      */
     private static final Logger logger = LoggerFactory.getLogger(JDA3Handler.class);
 
+    /**
+     * The listener which is added to all shards.
+     */
+    private final ListenerAdapter listener = new ListenerAdapter() {
+        @Override
+        public void onMessageReceived(MessageReceivedEvent event) {
+            if (!isIgnored(event)) {
+                dispatch(new JDA3MessageContext(event));
+            }
+        }
+    };
+
     /**
      * Creates a new instance of this class.
      *
      * @param jda A JDA instance.
      */
     public JDA3Handler(JDA jda) {
-        jda.addEventListener(new ListenerAdapter() {
-            @Override
-            public void onMessageReceived(MessageReceivedEvent event) {
-                handleMessageCreate(event);
-            }
-        });
+        this(jda::getRoleById, jda::getVoiceChannelById);
+        jda.addEventListener(listener);
     }
 
     /**
-     * Adds a permission for the user.
+     * Creates a new instance of this class which handles the messages of all shards of the shard manager.
+     * All shards share the same commands, permissions and executor.
      *
-     * @param user The user.
-     * @param permission The permission to add.
+     * @param shardManager The shard manager.
      */
-    public void addPermission(User user, String permission) {
-        addPermission(user.getId(), permission);
+    public JDA3Handler(ShardManager shardManager) {
+        this(shardManager::getRoleById, shardManager::getVoiceChannelById);
+        shardManager.addEventListener(listener);
     }
 
     /**
-     * Checks if the user has the required permission.
+     * Creates a new instance of this class which handles the messages of all given shards.
+     * All shards share the same commands, permissions and executor.
      *
-     * @param user The user.
-     * @param permission The permission to check.
-     * @return If the user has the given permission.
+     * @param shards The JDA instances of the shards.
      */
-    public boolean hasPermission(User user, String permission) {
-        return hasPermission(user.getId(), permission);
+    public JDA3Handler(Collection<JDA> shards) {
+        this(id -> findInShards(shards, jda -> jda.getRoleById(id)),
+                id -> findInShards(shards, jda -> jda.getVoiceChannelById(id)));
+        for (JDA jda : shards) {
+            jda.addEventListener(listener);
+        }
     }
 
     /**
-     * Handles a received message.
+     * Creates a new instance of this class and registers the converters for JDA entities.
      *
-     * @param event The MessageReceivedEvent.
+     * @param roles A function to get a role by its id.
+     * @param voiceChannels A function to get a voice channel by its id.
      */
-    private void handleMessageCreate(final MessageReceivedEvent event) {
-        JDA jda = event.getJDA();
-        if (event.getAuthor() == jda.getSelfUser()) {
-            return;
-        }
-        String[] splitMessage = event.getMessage().getContentRaw().split("[\\s&&[^\\n]]++");
-        String commandString = splitMessage[0];
-        SimpleCommand command = commands.get(commandString.toLowerCase());
-        if (command == null) {
-            // maybe it requires a mention
-            if (splitMessage.length > 1) {
-                command = commands.get(splitMessage[1].toLowerCase());
-                if (command == null || !command.getCommandAnnotation().requiresMention()) {
-                    return;
-                }
-                // remove the first which is the mention
-                splitMessage = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
-            } else {
-                return;
+    private JDA3Handler(LongFunction<Role> roles, LongFunction<VoiceChannel> voiceChannels) {
+        registerArgumentConverter(Role.class, arg -> {
+            Role role = roles.apply(parseMentionId(arg, "<@&"));
+            if (role == null) {
+                throw new IllegalArgumentException("Unknown role " + arg);
             }
-        }
-        Command commandAnnotation = command.getCommandAnnotation();
-        if (commandAnnotation.requiresMention()) {
-            Matcher matcher = USER_MENTION.matcher(commandString);
-            if (!matcher.find() || !matcher.group("id").equals(jda.getSelfUser().getId())) {
-                return;
-            }
-        }
-        if (event.isFromType(ChannelType.PRIVATE) && !commandAnnotation.privateMessages()) {
-            return;
-        }
-        if (!event.isFromType(ChannelType.PRIVATE) && !commandAnnotation.channelMessages()) {
-            return;
-        }
-        if (!hasPermission(event.getAuthor(), commandAnnotation.requiredPermissions())) {
-            if (Sdcf4jMessage.MISSING_PERMISSIONS.getMessage() != null) {
-                event.getChannel().sendMessage(Sdcf4jMessage.MISSING_PERMISSIONS.getMessage()).queue();
+            return role;
+        });
+        registerArgumentConverter(VoiceChannel.class, arg -> {
+            VoiceChannel channel = voiceChannels.apply(parseMentionId(arg, "<#"));
+            if (channel == null) {
+                throw new IllegalArgumentException("Unknown voice channel " + arg);
             }
-            return;
-        }
-        final Object[] parameters = getParameters(splitMessage, command, event);
-        if (commandAnnotation.async()) {
-            final SimpleCommand commandFinal = command;
-            Thread t = new Thread(() -> invokeMethod(commandFinal, event, parameters));
-            t.setDaemon(true);
-            t.start();
-        } else {
-            invokeMethod(command, event, parameters);
-        }
+            return channel;
+        });
     }
 
     /**
-     * Invokes the method of the command.
+     * Checks if the message of the event is ignored, before a context is created for it.
      *
-     * @param command The command.
-     * @param event The event.
-     * @param parameters The parameters for the method.
+     * @param event The MessageReceivedEvent.
+     * @return Whether the message is ignored or not.
      */
-    private void invokeMethod(SimpleCommand command, MessageReceivedEvent event, Object[] parameters) {
-        Method method = command.getMethod();
-        Object reply = null;
-        try {
-            method.setAccessible(true);
-            reply = method.invoke(command.getExecutor(), parameters);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            logger.warn("An error occurred while invoking method {}!", method.getName(), e);
+    private boolean isIgnored(MessageReceivedEvent event) {
+        User author = event.getAuthor();
+        if (isIgnored(author.getIdLong(), event.getChannel().getIdLong(), author.isBot() || event.isWebhookMessage())) {
+            return true;
         }
-        if (reply != null) {
-            event.getChannel().sendMessage(String.valueOf(reply)).queue();
+        if (!hasIgnoredServers()) {
+            return false;
         }
+        Guild guild = event.getGuild();
+        return guild != null && isIgnoredServer(guild.getIdLong());
     }
 
     /**
-     * Gets the parameters which are used to invoke the executor's method.
+     * Gets the first entity which is found in one of the shards.
      *
-     * @param splitMessage The spit message (index 0: command, index > 0: arguments)
-     * @param command The command.
-     * @param event The event.
-     * @return The parameters which are used to invoke the executor's method.
+     * @param shards The JDA instances of the shards.
+     * @param getter A function to get the entity from a shard.
+     * @param <T> The type of the entity.
+     * @return The entity or <code>null</code> if no shard knows the entity.
      */
-    private Object[] getParameters(String[] splitMessage, SimpleCommand command, MessageReceivedEvent event) {
-        String[] args = Arrays.copyOfRange(splitMessage, 1, splitMessage.length);
-        Class<?>[] parameterTypes = command.getMethod().getParameterTypes();
-        final Object[] parameters = new Object[parameterTypes.length];
-        int stringCounter = 0;
-        for (int i = 0; i < parameterTypes.length; i++) { // check all parameters
-            Class<?> type = parameterTypes[i];
-            if (type == String.class) {
-                if (stringCounter++ == 0) {
-                    parameters[i] = splitMessage[0]; // the first split is the command
-                } else {
-                    if (args.length + 2 > stringCounter) {
-                        // the first string parameter is the command, the other ones are the arguments
-                        parameters[i] = args[stringCounter - 2];
-                    }
-                }
-            } else if (type == String[].class) {
-                parameters[i] = args;
-            } else if (type == MessageReceivedEvent.class) {
-                parameters[i] = event;
-            } else if (type == JDA.class) {
-                parameters[i] = event.getJDA();
-            } else if (type == MessageChannel.class) {
-                parameters[i] = event.getChannel();
-            } else if (type == Message.class) {
-                parameters[i] = event.getMessage();
-            } else if (type == User.class) {
-                parameters[i] = event.getAuthor();
-            } else if (type == Member.class) {
-                parameters[i] = event.getMember();
-            } else if (type == TextChannel.class) {
-                parameters[i] = event.getTextChannel();
-            } else if (type == PrivateChannel.class) {
-                parameters[i] = event.getPrivateChannel();
-            } else if (type == Channel.class) {
-                parameters[i] = event.getTextChannel();
-            } else if (type == Group.class) {
-                parameters[i] = event.getGroup();
-            } else if (type == Guild.class) {
-                parameters[i] = event.getGuild();
-            } else if (type == Integer.class || type == int.class) {
-                parameters[i] = event.getResponseNumber();
-            } else if (type == Object[].class) {
-                parameters[i] = getObjectsFromString(event.getJDA(), args);
-            } else {
-                // unknown type
-                parameters[i] = null;
+    private static <T> T findInShards(Collection<JDA> shards, Function<JDA, T> getter) {
+        for (JDA jda : shards) {
+            T entity = getter.apply(jda);
+            if (entity != null) {
+                return entity;
             }
         }
-        return parameters;
+        return null;
     }
 
     /**
-     * Tries to get objects (like channel, user, long) from the given strings.
+     * Adds a permission for the user.
      *
-     * @param jda The jda object.
-     * @param args The string array.
-     * @return An object array.
+     * @param user The user.
+     * @param permission The permission to add.
      */
-    private Object[] getObjectsFromString(JDA jda, String[] args) {
-        Object[] objects = new Object[args.length];
-        for (int i = 0; i < args.length; i++) {
-            objects[i] = getObjectFromString(jda, args[i]);
-        }
-        return objects;
+    public void addPermission(User user, String permission) {
+        addPermission(user.getId(), permission);
     }
 
     /**
-     * Tries to get an object (like channel, user, long) from the given string.
+     * Checks if the user has the required permission.
      *
-     * @param jda The jda object.
-     * @param arg The string.
-     * @return The object.
+     * @param user The user.
+     * @param permission The permission to check.
+     * @return If the user has the given permission.
      */
-    private Object getObjectFromString(JDA jda, String arg) {
-        try {
-            // test long
-            return Long.valueOf(arg);
-        } catch (NumberFormatException ignored) {}
-        // test user
-        Matcher matcher = USER_MENTION.matcher(arg);
-        if (matcher.find()) {
-            String id = matcher.group("id");
-            User user = jda.getUserById(id);
-            if (user != null) {
-                return user;
-            }
-        }
-        // test channel
-        if (arg.matches("<#([0-9]*)>")) {
-            String id = arg.substring(2, arg.length() - 1);
-            Channel channel = jda.getTextChannelById(id);
-            if (channel != null) {
-                return channel;
-            }
-        }
-        return arg;
+    public boolean hasPermission(User user, String permission) {
+        return hasPermission(user.getId(), permission);
+    }
+
+    /**
+     * Adds all users with the role to the permission group.
+     *
+     * @param role The role.
+     * @param group The name of the group.
+     */
+    public void addRoleToGroup(Role role, String group) {
+        addRoleToGroup(role.getId(), group);
+    }
+
+    @Override
+    protected void commandPromoted(SimpleCommand command, MessageContext context, long durationNanos) {
+        super.commandPromoted(command, context, durationNanos);
+        logger.warn("Command {} took {} ms and is executed async from now on!",
+                command.getMainAlias(), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    @Override
+    protected void handleInvocationError(Method method, Exception e) {
+        logger.warn("An error occurred while invoking method {}!", method.getName(), e);
     }
 
 }
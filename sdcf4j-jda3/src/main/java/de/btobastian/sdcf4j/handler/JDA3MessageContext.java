@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ * 
+ * This file is part of SDCF4J.
+ * 
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ * 
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.MessageContext;
+import net.dv8tion.jda.client.entities.Group;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.*;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+
+import java.util.List;
+
+/**
+ * The context of a message received by the {@link JDA3Handler}.
+ */
+class JDA3MessageContext extends MessageContext {
+
+    private final MessageReceivedEvent event;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param event The received event.
+     */
+    JDA3MessageContext(MessageReceivedEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * Gets the received event.
+     *
+     * @return The received event.
+     */
+    MessageReceivedEvent getEvent() {
+        return event;
+    }
+
+    @Override
+    public int getShard() {
+        JDA.ShardInfo shardInfo = event.getJDA().getShardInfo();
+        return shardInfo == null ? 0 : shardInfo.getShardId();
+    }
+
+    @Override
+    public String getContent() {
+        return event.getMessage().getContentRaw();
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        event.getChannel().sendMessage(message).queue();
+    }
+
+    @Override
+    public long getMessageId() {
+        return event.getMessageIdLong();
+    }
+
+    @Override
+    public long getAuthorId() {
+        return event.getAuthor().getIdLong();
+    }
+
+    @Override
+    public long getChannelId() {
+        return event.getChannel().getIdLong();
+    }
+
+    @Override
+    public long getServerId() {
+        Guild guild = get(Guild.class);
+        return guild == null ? 0 : guild.getIdLong();
+    }
+
+    @Override
+    public boolean isFromBot() {
+        return event.getAuthor().isBot() || event.isWebhookMessage();
+    }
+
+    @Override
+    public long getSelfId() {
+        return event.getJDA().getSelfUser().getIdLong();
+    }
+
+    @Override
+    public boolean isPrivate() {
+        return event.isFromType(ChannelType.PRIVATE);
+    }
+
+    @Override
+    public long[] getRoleIds() {
+        Member member = get(Member.class);
+        if (member == null) {
+            return super.getRoleIds();
+        }
+        List<Role> roles = member.getRoles();
+        long[] roleIds = new long[roles.size()];
+        for (int i = 0; i < roleIds.length; i++) {
+            roleIds[i] = roles.get(i).getIdLong();
+        }
+        return roleIds;
+    }
+
+    @Override
+    protected Object resolve(Class<?> type) {
+        if (type == MessageReceivedEvent.class) {
+            return event;
+        } else if (type == JDA.class) {
+            return event.getJDA();
+        } else if (type == MessageChannel.class) {
+            return event.getChannel();
+        } else if (type == Message.class) {
+            return event.getMessage();
+        } else if (type == User.class) {
+            return event.getAuthor();
+        } else if (type == Member.class) {
+            return event.getMember();
+        } else if (type == TextChannel.class || type == Channel.class) {
+            return event.getTextChannel();
+        } else if (type == PrivateChannel.class) {
+            return event.getPrivateChannel();
+        } else if (type == Group.class) {
+            return event.getGroup();
+        } else if (type == Guild.class) {
+            return event.getGuild();
+        } else if (type == ResponseNumber.class) {
+            return new ResponseNumber(event.getResponseNumber());
+        }
+        // unknown type
+        return null;
+    }
+
+    @Override
+    protected Object getUserById(String id) {
+        return event.getJDA().getUserById(id);
+    }
+
+    @Override
+    protected Object getChannelById(String id) {
+        return event.getJDA().getTextChannelById(id);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ * 
+ * This file is part of SDCF4J.
+ * 
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ * 
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+/**
+ * The response number of the event which contained a command.
+ * Add a parameter of this type to a command method of the {@link JDA3Handler} to get the response number, because
+ * <code>int</code> parameters are arguments like on every other platform.
+ */
+public final class ResponseNumber {
+
+    private final long value;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param value The response number.
+     */
+    ResponseNumber(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets the response number.
+     *
+     * @return The response number.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ResponseNumber && ((ResponseNumber) obj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+
+}
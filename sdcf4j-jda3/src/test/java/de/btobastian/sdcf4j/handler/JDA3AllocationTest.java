@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.AbstractAllocationTest;
+import de.btobastian.sdcf4j.CommandHandler;
+import de.btobastian.sdcf4j.Stubs;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.ChannelType;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.SelfUser;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+import net.dv8tion.jda.core.requests.RestAction;
+import org.junit.Before;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+
+/**
+ * Checks the allocations of the {@link JDA3Handler} per message.
+ */
+public class JDA3AllocationTest extends AbstractAllocationTest {
+
+    private JDA3Handler handler;
+    private JDA jda;
+    private ListenerAdapter listener;
+    private TextChannel channel;
+    private User author;
+
+    /**
+     * Creates a new instance of this class.
+     */
+    public JDA3AllocationTest() {
+        super(224, 160, 288);
+    }
+
+    /**
+     * Creates the handler and the stubs of the api.
+     */
+    @Before
+    public void setUp() {
+        SelfUser self = stub(SelfUser.class, "getIdLong", SELF_ID, "getId", String.valueOf(SELF_ID));
+        jda = stub(JDA.class, "getSelfUser", self,
+                "addEventListener", (Stubs.Answer) args -> {
+                    listener = (ListenerAdapter) ((Object[]) args[0])[0];
+                    return null;
+                });
+        Member member = stub(Member.class);
+        Guild guild = stub(Guild.class, "getIdLong", SERVER_ID, "getMember", member);
+        RestAction<?> action = stub(RestAction.class);
+        channel = stub(TextChannel.class, "getIdLong", CHANNEL_ID, "getType", ChannelType.TEXT, "getGuild", guild,
+                "sendMessage", (Stubs.Answer) args -> {
+                    replied(args[0]);
+                    return action;
+                });
+        author = stub(User.class, "getIdLong", AUTHOR_ID, "getId", String.valueOf(AUTHOR_ID));
+        handler = new JDA3Handler(jda);
+        handler.registerCommand(new Commands());
+    }
+
+    @Override
+    protected Runnable message(String content) {
+        Message message = stub(Message.class, "getIdLong", 10L, "getContentRaw", content, "getChannel", channel,
+                "getAuthor", author);
+        MessageReceivedEvent event = new MessageReceivedEvent(jda, 1, message);
+        return () -> listener.onMessageReceived(event);
+    }
+
+    @Override
+    protected CommandHandler getHandler() {
+        return handler;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.Command;
+import de.btobastian.sdcf4j.CommandExecutor;
+import de.btobastian.sdcf4j.Stubs;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.ChannelType;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.SelfUser;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+import net.dv8tion.jda.core.requests.RestAction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the parameters the {@link JDA3Handler} passes to command methods.
+ */
+public class JDA3HandlerTest {
+
+    private final List<Object> replies = new ArrayList<>();
+    private JDA jda;
+    private ListenerAdapter listener;
+    private TextChannel channel;
+    private User author;
+
+    /**
+     * Creates the handler and the stubs of the api.
+     */
+    @Before
+    public void setUp() {
+        SelfUser self = stub(SelfUser.class, "getIdLong", 1L);
+        jda = stub(JDA.class, "getSelfUser", self,
+                "addEventListener", (Stubs.Answer) args -> {
+                    listener = (ListenerAdapter) ((Object[]) args[0])[0];
+                    return null;
+                });
+        Guild guild = stub(Guild.class, "getIdLong", 2L);
+        RestAction<?> action = stub(RestAction.class);
+        channel = stub(TextChannel.class, "getIdLong", 3L, "getType", ChannelType.TEXT, "getGuild", guild,
+                "sendMessage", (Stubs.Answer) args -> {
+                    replies.add(args[0]);
+                    return action;
+                });
+        author = stub(User.class, "getIdLong", 4L);
+        JDA3Handler handler = new JDA3Handler(jda);
+        handler.registerCommand(new Commands());
+    }
+
+    /**
+     * Checks that <code>int</code> parameters get the argument like on the other platforms.
+     */
+    @Test
+    public void intParameterIsArgument() {
+        receive("!repeat 3", 42);
+        assertEquals(1, replies.size());
+        assertEquals("3", replies.get(0));
+    }
+
+    /**
+     * Checks that a {@link ResponseNumber} parameter gets the response number of the event.
+     */
+    @Test
+    public void responseNumberParameter() {
+        receive("!response", 42);
+        assertEquals(1, replies.size());
+        assertEquals("42", replies.get(0));
+    }
+
+    /**
+     * Delivers a message to the handler.
+     *
+     * @param content The content of the message.
+     * @param responseNumber The response number of the event.
+     */
+    private void receive(String content, long responseNumber) {
+        Message message = stub(Message.class, "getIdLong", 10L, "getContentRaw", content, "getChannel", channel,
+                "getAuthor", author);
+        listener.onMessageReceived(new MessageReceivedEvent(jda, responseNumber, message));
+    }
+
+    /**
+     * The commands of the tests.
+     */
+    public static class Commands implements CommandExecutor {
+
+        /**
+         * Replies with the argument.
+         *
+         * @param times The argument.
+         * @return The reply.
+         */
+        @Command(aliases = "!repeat")
+        public String repeat(int times) {
+            return String.valueOf(times);
+        }
+
+        /**
+         * Replies with the response number.
+         *
+         * @param responseNumber The response number of the event.
+         * @return The reply.
+         */
+        @Command(aliases = "!response")
+        public String response(ResponseNumber responseNumber) {
+            return String.valueOf(responseNumber.getValue());
+        }
+
+    }
+
+}
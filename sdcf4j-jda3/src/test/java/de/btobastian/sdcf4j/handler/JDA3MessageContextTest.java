@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.Stubs;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Channel;
+import net.dv8tion.jda.core.entities.ChannelType;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageChannel;
+import net.dv8tion.jda.core.entities.PrivateChannel;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.SelfUser;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import net.dv8tion.jda.core.events.message.MessageReceivedEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static de.btobastian.sdcf4j.Stubs.stub;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link JDA3MessageContext}.
+ */
+public class JDA3MessageContextTest {
+
+    private JDA jda;
+    private Guild guild;
+    private Member member;
+    private TextChannel channel;
+    private User author;
+    private Message message;
+
+    /**
+     * Creates the stubs of a message in a text channel.
+     */
+    @Before
+    public void setUp() {
+        jda = stub(JDA.class, "getSelfUser", stub(SelfUser.class, "getIdLong", 1L));
+        Role first = stub(Role.class, "getIdLong", 7L);
+        Role second = stub(Role.class, "getIdLong", 8L);
+        member = stub(Member.class, "getRoles", Arrays.asList(first, second));
+        guild = stub(Guild.class, "getIdLong", 2L, "getMember", member);
+        channel = stub(TextChannel.class, "getIdLong", 3L, "getType", ChannelType.TEXT, "getGuild", guild);
+        author = stub(User.class, "getIdLong", 4L);
+        message = stub(Message.class, "getIdLong", 10L, "getContentRaw", "!ping", "getChannel", channel,
+                "getAuthor", author);
+    }
+
+    /**
+     * Checks the objects which can be passed to command methods.
+     */
+    @Test
+    public void resolvesPlatformObjects() {
+        MessageReceivedEvent event = new MessageReceivedEvent(jda, 5, message);
+        JDA3MessageContext context = new JDA3MessageContext(event);
+        assertSame(event, context.get(MessageReceivedEvent.class));
+        assertSame(jda, context.get(JDA.class));
+        assertSame(message, context.get(Message.class));
+        assertSame(channel, context.get(MessageChannel.class));
+        assertSame(channel, context.get(TextChannel.class));
+        assertSame(channel, context.get(Channel.class));
+        assertSame(author, context.get(User.class));
+        assertSame(member, context.get(Member.class));
+        assertSame(guild, context.get(Guild.class));
+        assertNull(context.get(PrivateChannel.class));
+        assertNull(context.get(String.class));
+        assertEquals(new ResponseNumber(5), context.get(ResponseNumber.class));
+        assertFalse(context.isPrivate());
+        assertEquals(2, context.getServerId());
+        assertEquals(1, context.getSelfId());
+    }
+
+    /**
+     * Checks the roles of the author in the guild of the message.
+     */
+    @Test
+    public void roleIds() {
+        JDA3MessageContext context = new JDA3MessageContext(new MessageReceivedEvent(jda, 5, message));
+        assertArrayEquals(new long[] {7, 8}, context.getRoleIds());
+    }
+
+    /**
+     * Checks that a private message has neither a guild nor roles.
+     */
+    @Test
+    public void privateMessage() {
+        PrivateChannel privateChannel = stub(PrivateChannel.class, "getIdLong", 3L, "getType", ChannelType.PRIVATE);
+        Stubs.answer(message, "getChannel", privateChannel);
+        JDA3MessageContext context = new JDA3MessageContext(new MessageReceivedEvent(jda, 5, message));
+        assertTrue(context.isPrivate());
+        assertSame(privateChannel, context.get(PrivateChannel.class));
+        assertNull(context.get(Guild.class));
+        assertEquals(0, context.getServerId());
+        assertArrayEquals(new long[0], context.getRoleIds());
+    }
+
+    /**
+     * Checks that bots and webhooks are detected.
+     */
+    @Test
+    public void isFromBot() {
+        assertFalse(new JDA3MessageContext(new MessageReceivedEvent(jda, 5, message)).isFromBot());
+        Stubs.answer(author, "isBot", true);
+        assertTrue(new JDA3MessageContext(new MessageReceivedEvent(jda, 5, message)).isFromBot());
+        Stubs.answer(author, "isBot", false);
+        Stubs.answer(message, "isWebhookMessage", true);
+        assertTrue(new JDA3MessageContext(new MessageReceivedEvent(jda, 5, message)).isFromBot());
+    }
+
+}
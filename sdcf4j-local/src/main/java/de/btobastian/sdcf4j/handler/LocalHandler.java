@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.CommandHandler;
+import de.btobastian.sdcf4j.MessageContext;
+import de.btobastian.sdcf4j.RejectionReason;
+
+import java.lang.reflect.Method;
+
+/**
+ * A command handler for an in-memory platform.
+ * It doesn't connect to any chat service, messages are passed to {@link #handleMessage(LocalMessage)} and the
+ * outcome of every message is reported to the {@link Listener}. This makes it possible to test commands and to
+ * measure the handler without a network connection.
+ */
+public class LocalHandler extends CommandHandler {
+
+    private static final Listener NO_LISTENER = new Listener() { };
+
+    private final long selfId;
+    private volatile Listener listener = NO_LISTENER;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param selfId The id of the bot user. Used for mentions and to ignore the bot's own messages.
+     */
+    public LocalHandler(long selfId) {
+        this.selfId = selfId;
+    }
+
+    /**
+     * Gets the id of the bot user.
+     *
+     * @return The id of the bot user.
+     */
+    public long getSelfId() {
+        return selfId;
+    }
+
+    /**
+     * Sets the listener which is notified about the outcome of every message.
+     *
+     * @param listener The listener.
+     */
+    public void setListener(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null!");
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the listener which is notified about the outcome of every message.
+     *
+     * @return The listener.
+     */
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * Handles a received message.
+     * Synchronous commands are executed before this method returns, async commands by the executor.
+     *
+     * @param message The received message.
+     */
+    public void handleMessage(LocalMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message cannot be null!");
+        }
+        if (message.getAuthorId() == selfId || isIgnored(message)) {
+            // the engine skips these silently or never sees them, but every message must be reported to the listener
+            listener.messageIgnored(message);
+            return;
+        }
+        dispatch(new LocalMessageContext(this, message));
+    }
+
+    /**
+     * Checks if the message is ignored, before a context is created for it.
+     *
+     * @param message The message.
+     * @return Whether the message is ignored or not.
+     */
+    private boolean isIgnored(LocalMessage message) {
+        if (isIgnored(message.getAuthorId(), message.getChannelId(), message.isFromBot())) {
+            return true;
+        }
+        return hasIgnoredServers() && message.getServerId() != 0 && isIgnoredServer(message.getServerId());
+    }
+
+    @Override
+    protected void messageIgnored(MessageContext context) {
+        listener.messageIgnored(((LocalMessageContext) context).getMessage());
+    }
+
+    @Override
+    protected void commandCompleted(SimpleCommand command, MessageContext context, boolean failed) {
+        listener.commandCompleted(((LocalMessageContext) context).getMessage(), command, failed);
+    }
+
+    @Override
+    protected void reject(SimpleCommand command, MessageContext context, RejectionReason reason) {
+        super.reject(command, context, reason);
+        listener.commandRejected(((LocalMessageContext) context).getMessage(), command, reason);
+    }
+
+    @Override
+    protected void commandPromoted(SimpleCommand command, MessageContext context, long durationNanos) {
+        super.commandPromoted(command, context, durationNanos);
+        listener.commandPromoted(((LocalMessageContext) context).getMessage(), command, durationNanos);
+    }
+
+    @Override
+    protected void handleInvocationError(Method method, Exception e) {
+        listener.invocationFailed(method, e);
+    }
+
+    /**
+     * Is notified about the outcome of the messages of a {@link LocalHandler}.
+     * Every message which is passed to {@link #handleMessage(LocalMessage)} ends in exactly one call of
+     * {@link #messageIgnored(LocalMessage)}, {@link #commandRejected(LocalMessage, SimpleCommand, RejectionReason)}
+     * or {@link #commandCompleted(LocalMessage, SimpleCommand, boolean)}.
+     * The methods are called from the thread which handles the message, so implementations must be thread-safe.
+     */
+    public interface Listener {
+
+        /**
+         * Called if the handler sends a message.
+         *
+         * @param message The message the handler replies to.
+         * @param reply The sent message.
+         */
+        default void replySent(LocalMessage message, String reply) { }
+
+        /**
+         * Called if a message didn't invoke a command, e.g. because it's no command or a reply which was awaited.
+         *
+         * @param message The message.
+         */
+        default void messageIgnored(LocalMessage message) { }
+
+        /**
+         * Called if a command was not executed.
+         *
+         * @param message The message.
+         * @param command The command.
+         * @param reason The reason why the command was not executed.
+         */
+        default void commandRejected(LocalMessage message, SimpleCommand command, RejectionReason reason) { }
+
+        /**
+         * Called after a command was executed and its reply was sent.
+         *
+         * @param message The message.
+         * @param command The command.
+         * @param failed Whether the method threw an exception or not.
+         */
+        default void commandCompleted(LocalMessage message, SimpleCommand command, boolean failed) { }
+
+        /**
+         * Called if a command was promoted to async, because it repeatedly blocked the listener thread.
+         *
+         * @param message The message which triggered the promotion.
+         * @param command The command.
+         * @param durationNanos How long the last execution took in nanoseconds.
+         */
+        default void commandPromoted(LocalMessage message, SimpleCommand command, long durationNanos) { }
+
+        /**
+         * Called if the method of a command or trigger threw an exception.
+         *
+         * @param method The method.
+         * @param e The exception.
+         */
+        default void invocationFailed(Method method, Exception e) { }
+
+    }
+
+}
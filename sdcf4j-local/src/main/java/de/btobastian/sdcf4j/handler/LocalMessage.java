@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+/**
+ * A message of the in-memory platform of the {@link LocalHandler}.
+ */
+public class LocalMessage {
+
+    private static final long[] NO_ROLES = new long[0];
+
+    private final long id;
+    private final int shard;
+    private final long serverId;
+    private final long channelId;
+    private final long authorId;
+    private final String content;
+    private final long[] roleIds;
+    private final long timestamp;
+    private final boolean fromBot;
+
+    /**
+     * Creates a new message.
+     *
+     * @param id The id of the message.
+     * @param serverId The id of the server or <code>0</code> for a private message.
+     * @param channelId The id of the channel.
+     * @param authorId The id of the author.
+     * @param content The content of the message.
+     */
+    public LocalMessage(long id, long serverId, long channelId, long authorId, String content) {
+        this(id, 0, serverId, channelId, authorId, content, NO_ROLES, System.nanoTime());
+    }
+
+    /**
+     * Creates a new message.
+     *
+     * @param id The id of the message.
+     * @param shard The shard which receives the message.
+     * @param serverId The id of the server or <code>0</code> for a private message.
+     * @param channelId The id of the channel.
+     * @param authorId The id of the author.
+     * @param content The content of the message.
+     * @param roleIds The ids of the roles of the author in the server.
+     * @param timestamp The time the message was sent, as returned by {@link System#nanoTime()}.
+     */
+    public LocalMessage(long id, int shard, long serverId, long channelId, long authorId, String content,
+                        long[] roleIds, long timestamp) {
+        this(id, shard, serverId, channelId, authorId, content, roleIds, timestamp, false);
+    }
+
+    /**
+     * Creates a new message.
+     *
+     * @param id The id of the message.
+     * @param shard The shard which receives the message.
+     * @param serverId The id of the server or <code>0</code> for a private message.
+     * @param channelId The id of the channel.
+     * @param authorId The id of the author.
+     * @param content The content of the message.
+     * @param roleIds The ids of the roles of the author in the server.
+     * @param timestamp The time the message was sent, as returned by {@link System#nanoTime()}.
+     * @param fromBot Whether the author is a bot or a webhook.
+     */
+    public LocalMessage(long id, int shard, long serverId, long channelId, long authorId, String content,
+                        long[] roleIds, long timestamp, boolean fromBot) {
+        if (content == null || roleIds == null) {
+            throw new IllegalArgumentException("Content and role ids cannot be null!");
+        }
+        this.id = id;
+        this.shard = shard;
+        this.serverId = serverId;
+        this.channelId = channelId;
+        this.authorId = authorId;
+        this.content = content;
+        this.roleIds = roleIds;
+        this.timestamp = timestamp;
+        this.fromBot = fromBot;
+    }
+
+    /**
+     * Gets the id of the message.
+     *
+     * @return The id of the message.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the shard which receives the message.
+     *
+     * @return The shard which receives the message.
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Gets the id of the server.
+     *
+     * @return The id of the server or <code>0</code> for a private message.
+     */
+    public long getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Gets the id of the channel.
+     *
+     * @return The id of the channel.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the id of the author.
+     *
+     * @return The id of the author.
+     */
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * Gets the content of the message.
+     *
+     * @return The content of the message.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the ids of the roles of the author in the server.
+     *
+     * @return The ids of the roles of the author.
+     */
+    public long[] getRoleIds() {
+        return roleIds;
+    }
+
+    /**
+     * Gets the time the message was sent.
+     *
+     * @return The time the message was sent, as returned by {@link System#nanoTime()}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Checks if the message was sent by a bot or a webhook.
+     *
+     * @return Whether the author is a bot or a webhook.
+     */
+    public boolean isFromBot() {
+        return fromBot;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.MessageContext;
+
+/**
+ * The context of a message received by the {@link LocalHandler}.
+ */
+class LocalMessageContext extends MessageContext {
+
+    private final LocalHandler handler;
+    private final LocalMessage message;
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param handler The handler which received the message.
+     * @param message The received message.
+     */
+    LocalMessageContext(LocalHandler handler, LocalMessage message) {
+        this.handler = handler;
+        this.message = message;
+    }
+
+    /**
+     * Gets the received message.
+     *
+     * @return The received message.
+     */
+    LocalMessage getMessage() {
+        return message;
+    }
+
+    @Override
+    public int getShard() {
+        return message.getShard();
+    }
+
+    @Override
+    public String getContent() {
+        return message.getContent();
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        handler.getListener().replySent(this.message, message);
+    }
+
+    @Override
+    public long getMessageId() {
+        return message.getId();
+    }
+
+    @Override
+    public long getAuthorId() {
+        return message.getAuthorId();
+    }
+
+    @Override
+    public long getChannelId() {
+        return message.getChannelId();
+    }
+
+    @Override
+    public long getServerId() {
+        return message.getServerId();
+    }
+
+    @Override
+    public boolean isFromBot() {
+        return message.isFromBot();
+    }
+
+    @Override
+    public long getSelfId() {
+        return handler.getSelfId();
+    }
+
+    @Override
+    public long[] getRoleIds() {
+        return message.getRoleIds();
+    }
+
+    @Override
+    protected Object resolve(Class<?> type) {
+        if (type == LocalMessage.class) {
+            return message;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.local;
+
+import de.btobastian.sdcf4j.CommandHandler;
+import de.btobastian.sdcf4j.RejectionReason;
+import de.btobastian.sdcf4j.handler.LocalHandler;
+import de.btobastian.sdcf4j.handler.LocalMessage;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the messages of a {@link Workload} to a {@link LocalHandler} at a target rate and reports throughput,
+ * latency percentiles and drops.
+ * Every shard has its own thread and queue, like the listener threads of a real bot. The messages are sent at
+ * fixed times, independent of how fast the handler is. If a queue is full, the message is dropped.
+ */
+public class LoadDriver {
+
+    /**
+     * Tells a shard thread to stop.
+     */
+    private static final LocalMessage STOP = new LocalMessage(0, 0, 0, 0, "");
+
+    private final LocalHandler handler;
+    private final Workload workload;
+
+    private double rate = 0;
+    private int shards = 1;
+    private int queueCapacity = 1024;
+    private long durationNanos = 0;
+    private long drainTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+
+    // message ids are unique over all runs, so the deduplication of the handler doesn't drop messages
+    private long lastId = 0;
+
+    /**
+     * Creates a new driver.
+     *
+     * @param handler The handler which receives the messages.
+     * @param workload The workload which creates the messages.
+     */
+    public LoadDriver(LocalHandler handler, Workload workload) {
+        if (handler == null || workload == null) {
+            throw new IllegalArgumentException("Handler and workload cannot be null!");
+        }
+        this.handler = handler;
+        this.workload = workload;
+    }
+
+    /**
+     * Sets the number of messages which are sent per second.
+     * The default is <code>0</code> which means that messages are sent as fast as the shards handle them.
+     * In this case no message is dropped.
+     *
+     * @param rate The number of messages per second.
+     * @return This driver.
+     */
+    public LoadDriver setRate(double rate) {
+        if (!(rate >= 0)) {
+            throw new IllegalArgumentException("Rate cannot be negative!");
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * Sets the number of shards. The default is <code>1</code>.
+     *
+     * @param shards The number of shards.
+     * @return This driver.
+     */
+    public LoadDriver setShards(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shards must be positive!");
+        }
+        this.shards = shards;
+        return this;
+    }
+
+    /**
+     * Sets how many messages may wait for a shard. The default is <code>1024</code>.
+     *
+     * @param queueCapacity The capacity of the queue of every shard.
+     * @return This driver.
+     */
+    public LoadDriver setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive!");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets how long messages are sent. The default is <code>0</code> which means that messages are sent until
+     * the workload ends.
+     *
+     * @param duration The duration.
+     * @param unit The unit of the duration.
+     * @return This driver.
+     */
+    public LoadDriver setDuration(long duration, TimeUnit unit) {
+        this.durationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets how long the driver waits for unfinished messages after the last message was sent.
+     * Messages which are still unfinished afterwards are reported as lost. The default is 10 seconds.
+     *
+     * @param timeout The timeout.
+     * @param unit The unit of the timeout.
+     * @return This driver.
+     */
+    public LoadDriver setDrainTimeout(long timeout, TimeUnit unit) {
+        this.drainTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Runs the workload.
+     * The listener of the handler is replaced during the run and restored afterwards.
+     *
+     * @return The report of the run.
+     * @throws InterruptedException If the thread was interrupted.
+     */
+    public LoadReport run() throws InterruptedException {
+        Run run = new Run();
+        LocalHandler.Listener previousListener = handler.getListener();
+        handler.setListener(run);
+        List<BlockingQueue<LocalMessage>> queues = new ArrayList<>(shards);
+        Thread[] threads = new Thread[shards];
+        for (int i = 0; i < shards; i++) {
+            BlockingQueue<LocalMessage> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            threads[i] = new Thread(() -> consume(queue), "sdcf4j-local-shard-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        long sent = 0;
+        long dropped = 0;
+        long start = System.nanoTime();
+        try {
+            double intervalNanos = rate > 0 ? 1e9 / rate : 0;
+            for (long i = 0; ; i++) {
+                // without a rate, the latency is measured from the time the message is created
+                long scheduled = rate > 0 ? start + (long) (i * intervalNanos) : System.nanoTime();
+                if (durationNanos > 0 && scheduled - start >= durationNanos) {
+                    break;
+                }
+                LocalMessage message = workload.next(++lastId, scheduled, shards);
+                if (message == null) {
+                    break;
+                }
+                long delay;
+                while ((delay = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                BlockingQueue<LocalMessage> queue = queues.get(message.getShard() % shards);
+                if (rate <= 0) {
+                    queue.put(message);
+                } else if (!queue.offer(message)) {
+                    dropped++;
+                    continue;
+                }
+                sent++;
+            }
+        } finally {
+            for (BlockingQueue<LocalMessage> queue : queues) {
+                queue.put(STOP);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long deadline = System.nanoTime() + drainTimeoutNanos;
+        while (run.finished.get() < sent && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        long end = System.nanoTime();
+        handler.setListener(previousListener);
+
+        Map<RejectionReason, Long> rejected = new EnumMap<>(RejectionReason.class);
+        for (RejectionReason reason : RejectionReason.values()) {
+            long count = run.rejected.get(reason.ordinal());
+            if (count > 0) {
+                rejected.put(reason, count);
+            }
+        }
+        return new LoadReport(sent, dropped, run.completed.get(), run.failed.get(), run.ignored.get(), rejected,
+                sent - run.finished.get(), end - start, run.latencies);
+    }
+
+    /**
+     * Passes the messages of the queue to the handler until the queue is stopped.
+     *
+     * @param queue The queue of the shard.
+     */
+    private void consume(BlockingQueue<LocalMessage> queue) {
+        while (true) {
+            LocalMessage message;
+            try {
+                message = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (message == STOP) {
+                return;
+            }
+            try {
+                handler.handleMessage(message);
+            } catch (RuntimeException ignored) {
+                // the message is reported as lost, but the shard keeps running
+            }
+        }
+    }
+
+    /**
+     * Counts the outcome of the messages of one run.
+     */
+    private static final class Run implements LocalHandler.Listener {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong finished = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong ignored = new AtomicLong();
+        private final AtomicLongArray rejected = new AtomicLongArray(RejectionReason.values().length);
+
+        @Override
+        public void messageIgnored(LocalMessage message) {
+            ignored.incrementAndGet();
+            finish(message);
+        }
+
+        @Override
+        public void commandRejected(LocalMessage message, CommandHandler.SimpleCommand command,
+                                    RejectionReason reason) {
+            rejected.incrementAndGet(reason.ordinal());
+            finish(message);
+        }
+
+        @Override
+        public void commandCompleted(LocalMessage message, CommandHandler.SimpleCommand command, boolean failed) {
+            if (failed) {
+                this.failed.incrementAndGet();
+            }
+            completed.incrementAndGet();
+            finish(message);
+        }
+
+        /**
+         * Records the latency of a finished message.
+         *
+         * @param message The message.
+         */
+        private void finish(LocalMessage message) {
+            latencies.record(System.nanoTime() - message.getTimestamp());
+            finished.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.local;
+
+import de.btobastian.sdcf4j.RejectionReason;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a run of the {@link LoadDriver}.
+ * The latency of a message is measured from the time it was supposed to be sent, not from the time it was
+ * actually sent, so a driver which falls behind its rate doesn't hide the delay.
+ */
+public class LoadReport {
+
+    private final long sent;
+    private final long dropped;
+    private final long completed;
+    private final long failed;
+    private final long ignored;
+    private final Map<RejectionReason, Long> rejected;
+    private final long lost;
+    private final long durationNanos;
+    private final long[] percentiles;
+    private final long maxLatency;
+
+    /**
+     * Creates a new report.
+     *
+     * @param sent The number of messages which were passed to the shards.
+     * @param dropped The number of messages which were dropped because the queue of the shard was full.
+     * @param completed The number of executed commands.
+     * @param failed The number of executed commands which threw an exception.
+     * @param ignored The number of messages which didn't invoke a command.
+     * @param rejected The number of rejected commands per reason.
+     * @param lost The number of messages which were sent but not finished when the driver stopped waiting.
+     * @param durationNanos How long the run took in nanoseconds.
+     * @param latencies The latencies of the finished messages.
+     */
+    LoadReport(long sent, long dropped, long completed, long failed, long ignored, Map<RejectionReason, Long> rejected,
+               long lost, long durationNanos, LatencyHistogram latencies) {
+        this.sent = sent;
+        this.dropped = dropped;
+        this.completed = completed;
+        this.failed = failed;
+        this.ignored = ignored;
+        this.rejected = new EnumMap<>(rejected);
+        this.lost = lost;
+        this.durationNanos = durationNanos;
+        this.percentiles = new long[] {
+                latencies.getPercentile(50), latencies.getPercentile(90),
+                latencies.getPercentile(99), latencies.getPercentile(99.9)
+        };
+        this.maxLatency = latencies.getMax();
+    }
+
+    /**
+     * Gets the number of messages which were passed to the shards.
+     *
+     * @return The number of sent messages.
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * Gets the number of messages which were dropped because the queue of the shard was full.
+     *
+     * @return The number of dropped messages.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the number of executed commands, including the failed ones.
+     *
+     * @return The number of executed commands.
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Gets the number of executed commands which threw an exception.
+     *
+     * @return The number of failed commands.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of messages which didn't invoke a command.
+     *
+     * @return The number of ignored messages.
+     */
+    public long getIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Gets the number of rejected commands with the given reason.
+     *
+     * @param reason The reason.
+     * @return The number of rejected commands.
+     */
+    public long getRejected(RejectionReason reason) {
+        return rejected.getOrDefault(reason, 0L);
+    }
+
+    /**
+     * Gets the number of rejected commands.
+     *
+     * @return The number of rejected commands.
+     */
+    public long getRejected() {
+        long total = 0;
+        for (long count : rejected.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of messages which were sent but not finished when the driver stopped waiting.
+     *
+     * @return The number of lost messages.
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Gets how long the run took.
+     *
+     * @param unit The unit of the duration.
+     * @return The duration of the run.
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of finished messages per second.
+     *
+     * @return The throughput in messages per second.
+     */
+    public double getThroughput() {
+        if (durationNanos <= 0) {
+            return 0;
+        }
+        return (completed + ignored + getRejected()) * 1e9 / durationNanos;
+    }
+
+    /**
+     * Gets the median latency.
+     *
+     * @param unit The unit of the latency.
+     * @return The median latency.
+     */
+    public long getP50(TimeUnit unit) {
+        return unit.convert(percentiles[0], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the 90th percentile of the latency.
+     *
+     * @param unit The unit of the latency.
+     * @return The 90th percentile of the latency.
+     */
+    public long getP90(TimeUnit unit) {
+        return unit.convert(percentiles[1], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the 99th percentile of the latency.
+     *
+     * @param unit The unit of the latency.
+     * @return The 99th percentile of the latency.
+     */
+    public long getP99(TimeUnit unit) {
+        return unit.convert(percentiles[2], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the 99.9th percentile of the latency.
+     *
+     * @param unit The unit of the latency.
+     * @return The 99.9th percentile of the latency.
+     */
+    public long getP999(TimeUnit unit) {
+        return unit.convert(percentiles[3], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the highest latency.
+     *
+     * @param unit The unit of the latency.
+     * @return The highest latency.
+     */
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxLatency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sent=%d dropped=%d lost=%d completed=%d failed=%d ignored=%d rejected=%s%n"
+                        + "duration=%d ms throughput=%.1f msg/s%n"
+                        + "latency p50=%d us p90=%d us p99=%d us p99.9=%d us max=%d us",
+                sent, dropped, lost, completed, failed, ignored, rejected,
+                getDuration(TimeUnit.MILLISECONDS), getThroughput(),
+                getP50(TimeUnit.MICROSECONDS), getP90(TimeUnit.MICROSECONDS), getP99(TimeUnit.MICROSECONDS),
+                getP999(TimeUnit.MICROSECONDS), getMaxLatency(TimeUnit.MICROSECONDS));
+    }
+
+}
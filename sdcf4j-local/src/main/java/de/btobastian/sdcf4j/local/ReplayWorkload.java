@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.local;
+
+import de.btobastian.sdcf4j.audit.AuditLogReader;
+import de.btobastian.sdcf4j.handler.LocalMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A workload which replays recorded messages.
+ * Messages can be read from a text file or from the segments of an {@link de.btobastian.sdcf4j.audit.AuditLog}.
+ * The recorded timing is ignored, the messages are sent at the rate of the {@link LoadDriver}.
+ */
+public class ReplayWorkload implements Workload {
+
+    private static final long[] NO_ROLES = new long[0];
+
+    private final List<Entry> entries;
+    private int loops = 1;
+    private int position = 0;
+    private int loop = 0;
+
+    /**
+     * Creates a new workload which replays the given entries.
+     *
+     * @param entries The entries.
+     */
+    private ReplayWorkload(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the messages from a text file.
+     * Every line has the format <code>serverId&lt;TAB&gt;channelId&lt;TAB&gt;userId&lt;TAB&gt;content</code>,
+     * a server id of <code>0</code> stands for a private message. Empty lines and lines which start with
+     * <code>#</code> are skipped.
+     *
+     * @param file The file.
+     * @return The workload.
+     * @throws IOException If the file could not be read.
+     */
+    public static ReplayWorkload fromFile(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] columns = line.split("\t", 4);
+                if (columns.length < 4) {
+                    throw new IOException("Invalid line " + lineNumber + " in " + file);
+                }
+                try {
+                    entries.add(new Entry(Long.parseLong(columns[0]), Long.parseLong(columns[1]),
+                            Long.parseLong(columns[2]), columns[3]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid line " + lineNumber + " in " + file, e);
+                }
+            }
+        }
+        return new ReplayWorkload(entries);
+    }
+
+    /**
+     * Reads the messages from the segments of an audit log.
+     * Every command which was executed or rejected is replayed.
+     *
+     * @param directory The directory of the audit log.
+     * @return The workload.
+     * @throws IOException If the segments could not be read.
+     */
+    public static ReplayWorkload fromAuditLog(Path directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        AuditLogReader.read(directory, record -> entries.add(new Entry(
+                record.getServerId(), record.getChannelId(), record.getUserId(), record.getContent())));
+        return new ReplayWorkload(entries);
+    }
+
+    /**
+     * Sets how often the messages are replayed. The default is <code>1</code>.
+     *
+     * @param loops How often the messages are replayed or <code>0</code> to replay them forever.
+     * @return This workload.
+     */
+    public ReplayWorkload setLoops(int loops) {
+        if (loops < 0) {
+            throw new IllegalArgumentException("Loops cannot be negative!");
+        }
+        this.loops = loops;
+        return this;
+    }
+
+    /**
+     * Gets the number of recorded messages.
+     *
+     * @return The number of recorded messages.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public LocalMessage next(long id, long timestamp, int shards) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        if (position == entries.size()) {
+            position = 0;
+            loop++;
+        }
+        if (loops > 0 && loop >= loops) {
+            return null;
+        }
+        Entry entry = entries.get(position++);
+        return new LocalMessage(id, Workload.shardOf(entry.serverId, shards), entry.serverId, entry.channelId,
+                entry.userId, entry.content, NO_ROLES, timestamp);
+    }
+
+    /**
+     * A recorded message.
+     */
+    private static final class Entry {
+
+        private final long serverId;
+        private final long channelId;
+        private final long userId;
+        private final String content;
+
+        /**
+         * Creates a new entry.
+         *
+         * @param serverId The id of the server.
+         * @param channelId The id of the channel.
+         * @param userId The id of the author.
+         * @param content The content of the message.
+         */
+        private Entry(long serverId, long channelId, long userId, String content) {
+            this.serverId = serverId;
+            this.channelId = channelId;
+            this.userId = userId;
+            this.content = content;
+        }
+
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.local;
+
+import de.btobastian.sdcf4j.handler.LocalMessage;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A workload which creates random messages.
+ * The content of the messages is picked from a weighted command mix, the authors, servers and channels are
+ * distributed uniformly.
+ */
+public class SyntheticWorkload implements Workload {
+
+    private static final long[] NO_ROLES = new long[0];
+
+    private String[] contents = new String[0];
+    private double[] cumulativeWeights = new double[0];
+    private double totalWeight = 0;
+
+    private int servers = 100;
+    private int channelsPerServer = 5;
+    private int users = 10000;
+    private double privateRatio = 0;
+    private double botRatio = 0;
+    private long messages = 0;
+    private long seed = 0;
+
+    private SplittableRandom random;
+    private long created = 0;
+
+    /**
+     * Adds a message content to the command mix.
+     *
+     * @param content The content, e.g. <code>!roll 6</code>.
+     * @param weight The relative frequency of the content.
+     * @return This workload.
+     */
+    public SyntheticWorkload addCommand(String content, double weight) {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null!");
+        }
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive!");
+        }
+        contents = Arrays.copyOf(contents, contents.length + 1);
+        cumulativeWeights = Arrays.copyOf(cumulativeWeights, cumulativeWeights.length + 1);
+        totalWeight += weight;
+        contents[contents.length - 1] = content;
+        cumulativeWeights[cumulativeWeights.length - 1] = totalWeight;
+        return this;
+    }
+
+    /**
+     * Sets the number of servers. The default is <code>100</code>.
+     *
+     * @param servers The number of servers.
+     * @return This workload.
+     */
+    public SyntheticWorkload setServers(int servers) {
+        if (servers <= 0) {
+            throw new IllegalArgumentException("Servers must be positive!");
+        }
+        this.servers = servers;
+        return this;
+    }
+
+    /**
+     * Sets the number of channels per server. The default is <code>5</code>.
+     *
+     * @param channelsPerServer The number of channels per server.
+     * @return This workload.
+     */
+    public SyntheticWorkload setChannelsPerServer(int channelsPerServer) {
+        if (channelsPerServer <= 0) {
+            throw new IllegalArgumentException("Channels per server must be positive!");
+        }
+        this.channelsPerServer = channelsPerServer;
+        return this;
+    }
+
+    /**
+     * Sets the number of users. The default is <code>10000</code>.
+     *
+     * @param users The number of users.
+     * @return This workload.
+     */
+    public SyntheticWorkload setUsers(int users) {
+        if (users <= 0) {
+            throw new IllegalArgumentException("Users must be positive!");
+        }
+        this.users = users;
+        return this;
+    }
+
+    /**
+     * Sets the share of private messages. The default is <code>0</code>.
+     *
+     * @param privateRatio The share of private messages, between <code>0</code> and <code>1</code>.
+     * @return This workload.
+     */
+    public SyntheticWorkload setPrivateRatio(double privateRatio) {
+        if (!(privateRatio >= 0 && privateRatio <= 1)) {
+            throw new IllegalArgumentException("Private ratio must be between 0 and 1!");
+        }
+        this.privateRatio = privateRatio;
+        return this;
+    }
+
+    /**
+     * Sets the share of messages which are sent by bots. The default is <code>0</code>.
+     *
+     * @param botRatio The share of bot messages, between <code>0</code> and <code>1</code>.
+     * @return This workload.
+     */
+    public SyntheticWorkload setBotRatio(double botRatio) {
+        if (!(botRatio >= 0 && botRatio <= 1)) {
+            throw new IllegalArgumentException("Bot ratio must be between 0 and 1!");
+        }
+        this.botRatio = botRatio;
+        return this;
+    }
+
+    /**
+     * Sets the number of messages. The default is <code>0</code> which means that the workload never ends.
+     *
+     * @param messages The number of messages.
+     * @return This workload.
+     */
+    public SyntheticWorkload setMessages(long messages) {
+        this.messages = messages;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random generator. Workloads with the same seed and settings create the same messages.
+     *
+     * @param seed The seed.
+     * @return This workload.
+     */
+    public SyntheticWorkload setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public LocalMessage next(long id, long timestamp, int shards) {
+        if (contents.length == 0) {
+            throw new IllegalStateException("The command mix is empty!");
+        }
+        if (messages > 0 && created >= messages) {
+            return null;
+        }
+        if (random == null) {
+            random = new SplittableRandom(seed);
+        }
+        created++;
+        String content = contents[pick(random.nextDouble() * totalWeight)];
+        long authorId = 1 + random.nextInt(users);
+        boolean fromBot = botRatio > 0 && random.nextDouble() < botRatio;
+        if (privateRatio > 0 && random.nextDouble() < privateRatio) {
+            // private channels get ids which never collide with server channels
+            return new LocalMessage(id, 0, 0, -authorId, authorId, content, NO_ROLES, timestamp, fromBot);
+        }
+        // shift the index like a snowflake, so the servers are spread over all shards
+        long serverId = (long) (1 + random.nextInt(servers)) << 22;
+        long channelId = serverId + 1 + random.nextInt(channelsPerServer);
+        return new LocalMessage(id, Workload.shardOf(serverId, shards), serverId, channelId, authorId, content,
+                NO_ROLES, timestamp, fromBot);
+    }
+
+    /**
+     * Gets the index of the content with the given cumulative weight.
+     *
+     * @param weight The cumulative weight.
+     * @return The index of the content.
+     */
+    private int pick(double weight) {
+        int index = Arrays.binarySearch(cumulativeWeights, weight);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, contents.length - 1);
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.local;
+
+import de.btobastian.sdcf4j.handler.LocalMessage;
+
+/**
+ * A source of messages for the {@link LoadDriver}.
+ * Workloads are only used by the thread which runs the driver.
+ */
+public interface Workload {
+
+    /**
+     * Creates the next message.
+     *
+     * @param id The id of the message.
+     * @param timestamp The time the message is sent, as returned by {@link System#nanoTime()}.
+     * @param shards The number of shards of the driver.
+     * @return The next message or <code>null</code> if there are no more messages.
+     */
+    LocalMessage next(long id, long timestamp, int shards);
+
+    /**
+     * Gets the shard which receives the messages of the given server.
+     * Uses the same formula as Discord, private messages are received by shard <code>0</code>.
+     *
+     * @param serverId The id of the server or <code>0</code> for private messages.
+     * @param shards The number of shards.
+     * @return The shard.
+     */
+    static int shardOf(long serverId, int shards) {
+        return (int) ((serverId >>> 22) % shards);
+    }
+
+}
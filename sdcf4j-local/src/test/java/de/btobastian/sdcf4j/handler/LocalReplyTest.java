@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.Command;
+import de.btobastian.sdcf4j.CommandExecutor;
+import de.btobastian.sdcf4j.Reply;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the waits for replies of the {@link LocalHandler}.
+ */
+public class LocalReplyTest {
+
+    private final List<String> replies = new ArrayList<>();
+    private LocalHandler handler;
+
+    /**
+     * Creates the handler.
+     */
+    @Before
+    public void setUp() {
+        handler = new LocalHandler(1);
+        handler.setListener(new LocalHandler.Listener() {
+            @Override
+            public void replySent(LocalMessage message, String reply) {
+                replies.add(reply);
+            }
+        });
+        handler.registerCommand(new Commands());
+    }
+
+    /**
+     * Checks that the future is completed with a snapshot of the reply instead of handling it as a command.
+     */
+    @Test
+    public void replyIsSnapshot() {
+        CompletableFuture<Reply> future = handler.awaitReply(3, 4, 1, TimeUnit.MINUTES);
+        handler.handleMessage(new LocalMessage(10, 2, 3, 4, "!ping"));
+        assertTrue(replies.isEmpty());
+        Reply reply = future.getNow(null);
+        assertEquals("!ping", reply.getContent());
+        assertEquals(10, reply.getMessageId());
+        assertEquals(4, reply.getAuthorId());
+        assertEquals(3, reply.getChannelId());
+        assertEquals(2, reply.getServerId());
+
+        handler.handleMessage(new LocalMessage(11, 2, 3, 4, "!ping"));
+        assertEquals(1, replies.size());
+    }
+
+    /**
+     * Checks that only the awaited user in the awaited channel completes the wait.
+     */
+    @Test
+    public void otherUsersAndChannelsAreHandled() {
+        CompletableFuture<Reply> first = handler.awaitReply(3, 4, 1, TimeUnit.MINUTES);
+        CompletableFuture<Reply> second = handler.awaitReply(3, 5, 1, TimeUnit.MINUTES);
+        handler.handleMessage(new LocalMessage(10, 2, 3, 6, "!ping"));
+        handler.handleMessage(new LocalMessage(11, 2, 7, 4, "!ping"));
+        assertEquals(2, replies.size());
+        assertFalse(first.isDone() || second.isDone());
+
+        handler.handleMessage(new LocalMessage(12, 2, 3, 5, "yes"));
+        assertFalse(first.isDone());
+        assertEquals(12, second.getNow(null).getMessageId());
+        handler.handleMessage(new LocalMessage(13, 2, 3, 4, "no"));
+        assertEquals(13, first.getNow(null).getMessageId());
+    }
+
+    /**
+     * Checks that a new wait for the same user in the same channel cancels the old one.
+     */
+    @Test
+    public void newWaitCancelsOldWait() {
+        CompletableFuture<Reply> old = handler.awaitReply(3, 4, 1, TimeUnit.MINUTES);
+        CompletableFuture<Reply> replacement = handler.awaitReply(3, 4, 1, TimeUnit.MINUTES,
+                message -> message.getContent().equals("yes"));
+        assertTrue(old.isCancelled());
+
+        handler.handleMessage(new LocalMessage(10, 2, 3, 4, "!ping"));
+        assertEquals(1, replies.size());
+        handler.handleMessage(new LocalMessage(11, 2, 3, 4, "yes"));
+        assertEquals("yes", replacement.getNow(null).getContent());
+    }
+
+    /**
+     * The commands of the tests.
+     */
+    public static class Commands implements CommandExecutor {
+
+        /**
+         * A command everyone can use.
+         *
+         * @return The reply.
+         */
+        @Command(aliases = "!ping")
+        public String ping() {
+            return "pong";
+        }
+
+    }
+
+}
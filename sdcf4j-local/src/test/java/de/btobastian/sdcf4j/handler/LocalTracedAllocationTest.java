@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.AbstractAllocationTest;
+import de.btobastian.sdcf4j.CommandHandler;
+import org.junit.Before;
+
+/**
+ * Checks the allocations of the {@link LocalHandler} per message if a trace sink is set.
+ * Only the rejected command is always traced, so the other messages must stay within the budgets of the
+ * {@link LocalAllocationTest}.
+ */
+public class LocalTracedAllocationTest extends AbstractAllocationTest {
+
+    private LocalHandler handler;
+
+    /**
+     * Creates a new instance of this class.
+     */
+    public LocalTracedAllocationTest() {
+        super(224, 320, 256);
+    }
+
+    /**
+     * Creates the handler.
+     */
+    @Before
+    public void setUp() {
+        handler = new LocalHandler(SELF_ID);
+        handler.setListener(new LocalHandler.Listener() {
+            @Override
+            public void replySent(LocalMessage message, String reply) {
+                replied(reply);
+            }
+        });
+        handler.registerCommand(new Commands());
+        handler.setTraceSink(trace -> { });
+        handler.setTraceSampleRate(0);
+        handler.setAlwaysTraced("!admin", true);
+    }
+
+    @Override
+    protected Runnable message(String content) {
+        LocalMessage message = new LocalMessage(10, SERVER_ID, CHANNEL_ID, AUTHOR_ID, content);
+        return () -> handler.handleMessage(message);
+    }
+
+    @Override
+    protected CommandHandler getHandler() {
+        return handler;
+    }
+
+}
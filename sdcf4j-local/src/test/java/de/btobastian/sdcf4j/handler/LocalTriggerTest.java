@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 Bastian Oppermann
+ *
+ * This file is part of SDCF4J.
+ *
+ * Javacord is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser general Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * SDCF4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package de.btobastian.sdcf4j.handler;
+
+import de.btobastian.sdcf4j.CommandExecutor;
+import de.btobastian.sdcf4j.Trigger;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the triggers of the {@link LocalHandler}.
+ */
+public class LocalTriggerTest {
+
+    private final List<String> matches = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+    private LocalHandler handler;
+
+    /**
+     * Creates the handler.
+     */
+    @Before
+    public void setUp() {
+        handler = new LocalHandler(1);
+        handler.setListener(new LocalHandler.Listener() {
+            @Override
+            public void invocationFailed(Method method, Exception e) {
+                errors.add(e);
+            }
+        });
+    }
+
+    /**
+     * Checks that keywords only match whole words.
+     */
+    @Test
+    public void keywordMatchesWholeWords() {
+        handler.registerCommand(new Keywords());
+        send("the weather");
+        send("other");
+        assertTrue(matches.isEmpty());
+        send("Hello, he said");
+        assertEquals(1, matches.size());
+        assertEquals("he", matches.get(0).toLowerCase());
+    }
+
+    /**
+     * Checks that a trigger with an invalid pattern is not registered and the other triggers keep working.
+     */
+    @Test
+    public void invalidPatternIsNotRegistered() {
+        handler.registerCommand(new Keywords());
+        try {
+            handler.registerCommand(new InvalidPattern());
+            fail("The invalid pattern was not rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertEquals(1, handler.getTriggers().size());
+        send("he did");
+        assertEquals(1, matches.size());
+    }
+
+    /**
+     * Checks that an async trigger the executor doesn't accept is reported.
+     */
+    @Test
+    public void rejectedAsyncTriggerIsReported() {
+        handler.setExecutorService(new RejectingExecutor());
+        handler.registerCommand(new AsyncKeyword());
+        send("ping");
+        assertTrue(matches.isEmpty());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RejectedExecutionException);
+    }
+
+    /**
+     * Sends a message to the handler.
+     *
+     * @param content The content of the message.
+     */
+    private void send(String content) {
+        handler.handleMessage(new LocalMessage(10, 2, 3, 4, content));
+    }
+
+    /**
+     * A trigger with a keyword.
+     */
+    public class Keywords implements CommandExecutor {
+
+        /**
+         * Records the match.
+         *
+         * @param match The matched keyword.
+         */
+        @Trigger(keywords = "he")
+        public void onHe(String match) {
+            matches.add(match);
+        }
+
+    }
+
+    /**
+     * A trigger with a pattern which doesn't compile.
+     */
+    public class InvalidPattern implements CommandExecutor {
+
+        /**
+         * Records the match.
+         *
+         * @param match The match.
+         */
+        @Trigger(patterns = "(unclosed")
+        public void onMatch(String match) {
+            matches.add(match);
+        }
+
+    }
+
+    /**
+     * An async trigger with a keyword.
+     */
+    public class AsyncKeyword implements CommandExecutor {
+
+        /**
+         * Records the match.
+         *
+         * @param match The matched keyword.
+         */
+        @Trigger(keywords = "ping", async = true)
+        public void onPing(String match) {
+            matches.add(match);
+        }
+
+    }
+
+    /**
+     * An executor which rejects every task.
+     */
+    private static class RejectingExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            throw new RejectedExecutionException("Rejected");
+        }
+
+        @Override
+        public void shutdown() { }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+
+    }
+
+}